@@ -0,0 +1,311 @@
+/*
+ * Copyright 2016 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.ann.proc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates the TCK's META-INF/batch.xml at compile time, replacing the reflective scan
+ * done by com.ibm.jbatch.tck.utils.BatchXMLGenerator.
+ *
+ * Every class annotated with @javax.inject.Named that implements or extends a javax.batch type
+ * (directly or through a supertype) is a batch artifact.  Both checks are made on the source model,
+ * so no artifact class is loaded or initialized.  The ref id is the @Named value, or the CDI default
+ * name (the simple name with its first letter lower-cased) if the value is empty.
+ *
+ * Two files are written to the SOURCE_OUTPUT location, under "generate-tck":
+ * <ul>
+ * <li>META-INF/batch.xml - one &lt;ref&gt; per artifact, sorted by class name</li>
+ * <li>META-INF/batch-artifacts.index - one "id=class" line per artifact, for runtimes that can
+ * resolve a ref with a lookup rather than by parsing batch.xml</li>
+ * </ul>
+ *
+ * The index is a properties file (java.util.Properties can load it as is) whose lines are in
+ * minimal perfect hash order: the id in slot i, counting from 0, is on the i-th line after the
+ * "#displacements=" comment.  To look up an id, with n entries and that comment's comma-separated
+ * list of m displacements:
+ * <pre>
+ *   bucket = hash(id, 0) % m
+ *   slot   = hash(id, displacements[bucket]) % n
+ * </pre>
+ * and compare the id in that slot (see {@link #hash(String, int)}).  Any other id can land on an
+ * occupied slot, so the comparison is what tells a miss.  com.ibm.jbatch.tck.utils.BatchArtifactIndex
+ * reads this format.
+ *
+ * The processor does nothing unless the "tck.batchXML.package" option names the package
+ * (and its subpackages) holding the artifacts, e.g. -Atck.batchXML.package=com.ibm.jbatch.tck.artifacts
+ */
+@SupportedAnnotationTypes("javax.inject.Named")
+@SupportedOptions(BatchArtifactProcessor.PACKAGE_OPTION)
+public class BatchArtifactProcessor extends AbstractProcessor {
+
+	public static final String PACKAGE_OPTION = "tck.batchXML.package";
+
+	private static final String NAMED = "javax.inject.Named";
+	private static final String BATCH_API_PREFIX = "javax.batch.";
+	private static final String OUTPUT_DIR = "generate-tck/";
+	private static final int MAX_DISPLACEMENT = 1 << 20;
+
+	/**
+	 * Maps the binary class name of each artifact to its ref id.
+	 */
+	private TreeMap<String, String> artifacts = new TreeMap<String, String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotationTypes, RoundEnvironment roundEnvironment) {
+		String artifactPackage = processingEnv.getOptions().get(PACKAGE_OPTION);
+		if (artifactPackage == null) {
+			return false;
+		}
+
+		for (TypeElement annotationType : annotationTypes) {
+			if (!annotationType.getQualifiedName().contentEquals(NAMED)) {
+				continue;
+			}
+			for (Element element : roundEnvironment.getElementsAnnotatedWith(annotationType)) {
+				if (element.getKind() == ElementKind.CLASS) {
+					processClass((TypeElement) element, artifactPackage);
+				}
+			}
+		}
+
+		if (roundEnvironment.processingOver()) {
+			writeBatchXML();
+			writeIndex();
+		}
+
+		return false;
+	}
+
+	private void processClass(TypeElement artifactClass, String artifactPackage) {
+		String packageName = processingEnv.getElementUtils().getPackageOf(artifactClass).getQualifiedName().toString();
+		if (!packageName.equals(artifactPackage) && !packageName.startsWith(artifactPackage + ".")) {
+			return;
+		}
+		if (!isBatchArtifact(artifactClass.asType())) {
+			return;
+		}
+
+		String className = processingEnv.getElementUtils().getBinaryName(artifactClass).toString();
+		String beanID = getNamedValue(artifactClass);
+		// If we see a @Named with empty value (default), then use the CDI default name
+		if (beanID == null || beanID.trim().isEmpty()) {
+			String simpleName = artifactClass.getSimpleName().toString();
+			beanID = simpleName.substring(0, 1).toLowerCase() + simpleName.substring(1);
+		}
+
+		String previous = artifacts.put(className, beanID);
+		if (previous != null && !previous.equals(beanID)) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Batch artifact " + className + " found with two ids: " + previous + " and " + beanID, artifactClass);
+		}
+	}
+
+	/*
+	 * True if the type, or any of its supertypes, is declared in a javax.batch package.
+	 */
+	private boolean isBatchArtifact(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return false;
+		}
+		TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+		if (typeElement.getQualifiedName().toString().startsWith(BATCH_API_PREFIX)) {
+			return true;
+		}
+		for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+			if (isBatchArtifact(supertype)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String getNamedValue(TypeElement artifactClass) {
+		for (AnnotationMirror annotation : artifactClass.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (!annotationType.getQualifiedName().contentEquals(NAMED)) {
+				continue;
+			}
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+				if (entry.getKey().getSimpleName().contentEquals("value")) {
+					return (String) entry.getValue().getValue();
+				}
+			}
+		}
+		return null;
+	}
+
+	private void writeBatchXML() {
+		try {
+			FileObject batchXMLFile = processingEnv.getFiler().createResource(StandardLocation.SOURCE_OUTPUT, "", OUTPUT_DIR + "META-INF/batch.xml");
+			Writer writer = batchXMLFile.openWriter();
+
+			writer.write("<batch-artifacts xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\">\n");
+			for (Map.Entry<String, String> artifact : artifacts.entrySet()) {
+				writer.write("    <ref id=\"" + artifact.getValue() + "\" class=\"" + artifact.getKey() + "\" />\n");
+			}
+			writer.write("</batch-artifacts>\n");
+
+			writer.close();
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write batch.xml: " + e);
+		}
+	}
+
+	private void writeIndex() {
+		TreeMap<String, String> classNamesById = new TreeMap<String, String>();
+		for (Map.Entry<String, String> artifact : artifacts.entrySet()) {
+			String previous = classNamesById.put(artifact.getValue(), artifact.getKey());
+			if (previous != null) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+						"Batch artifact id " + artifact.getValue() + " is used by both " + previous + " and " + artifact.getKey());
+			}
+		}
+
+		String[] ids = classNamesById.keySet().toArray(new String[classNamesById.size()]);
+		int[] displacements = new int[Math.max(1, (ids.length + 3) / 4)];
+		String[] slots = new String[ids.length];
+		if (!placeIds(ids, displacements, slots)) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't find a perfect hash for " + ids.length + " batch artifact ids");
+			return;
+		}
+
+		try {
+			FileObject indexFile = processingEnv.getFiler().createResource(StandardLocation.SOURCE_OUTPUT, "", OUTPUT_DIR + "META-INF/batch-artifacts.index");
+			Writer writer = indexFile.openWriter();
+
+			StringBuilder header = new StringBuilder("#displacements=");
+			for (int i = 0; i < displacements.length; i++) {
+				if (i > 0) {
+					header.append(',');
+				}
+				header.append(displacements[i]);
+			}
+			writer.write(header.append('\n').toString());
+
+			for (String id : slots) {
+				writer.write(id + "=" + classNamesById.get(id) + "\n");
+			}
+
+			writer.close();
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write batch-artifacts.index: " + e);
+		}
+	}
+
+	/*
+	 * Hash and displace: the buckets are placed largest first, each with the smallest
+	 * displacement (from 1) that puts all of its ids in free slots.  Fills in displacements
+	 * and slots, or returns false if some bucket can't be placed.
+	 */
+	private static boolean placeIds(String[] ids, int[] displacements, String[] slots) {
+		final List<List<String>> buckets = new ArrayList<List<String>>();
+		for (int i = 0; i < displacements.length; i++) {
+			buckets.add(new ArrayList<String>());
+		}
+		for (String id : ids) {
+			buckets.get(hash(id, 0) % displacements.length).add(id);
+		}
+
+		Integer[] order = new Integer[displacements.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer b1, Integer b2) {
+				return buckets.get(b2).size() - buckets.get(b1).size();
+			}
+		});
+
+		for (int bucket : order) {
+			List<String> bucketIds = buckets.get(bucket);
+			if (bucketIds.isEmpty()) {
+				displacements[bucket] = 1;
+				continue;
+			}
+			boolean placed = false;
+			for (int displacement = 1; displacement < MAX_DISPLACEMENT && !placed; displacement++) {
+				Set<Integer> taken = new HashSet<Integer>();
+				placed = true;
+				for (String id : bucketIds) {
+					int slot = hash(id, displacement) % slots.length;
+					if (slots[slot] != null || !taken.add(slot)) {
+						placed = false;
+						break;
+					}
+				}
+				if (placed) {
+					displacements[bucket] = displacement;
+					for (String id : bucketIds) {
+						slots[hash(id, displacement) % slots.length] = id;
+					}
+				}
+			}
+			if (!placed) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The index's hash: 32-bit FNV-1a over the UTF-16 chars of the id, starting from a basis
+	 * varied by the seed, with the high bits folded in and the sign bit cleared.
+	 */
+	public static int hash(String id, int seed) {
+		int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+		for (int i = 0; i < id.length(); i++) {
+			h ^= id.charAt(i);
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		return h & 0x7FFFFFFF;
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ArrayIndexCheckpointData;
+import com.ibm.jbatch.tck.artifacts.chunktypes.InventoryCheckpointData;
+import com.ibm.jbatch.tck.artifacts.chunktypes.NumbersCheckpointData;
+import com.ibm.jbatch.tck.artifacts.reusable.ExternalizableString;
+import com.ibm.jbatch.tck.artifacts.reusable.MyPersistentRestartUserData;
+
+/**
+ * The checkpoint and persistent user data types of the TCK, each with a typical value
+ * and a compact binary variant of its encoding.
+ *
+ * The compact variant is what an artifact would get by returning a byte[] from checkpointInfo()
+ * instead of the Externalizable: ints are written as unsigned LEB128 varints (so small counts and
+ * indexes take one or two bytes) and strings as a varint length followed by UTF-8, with -1 for null.
+ */
+public enum CheckpointKind {
+
+	ARRAY_INDEX {
+		@Override
+		public Externalizable sample() {
+			ArrayIndexCheckpointData data = new ArrayIndexCheckpointData();
+			data.setCurrentIndex(4999);
+			return data;
+		}
+
+		@Override
+		public Externalizable newInstance() {
+			return new ArrayIndexCheckpointData();
+		}
+
+		@Override
+		void encode(Externalizable value, DataOutputStream out) throws IOException {
+			writeVarInt(out, ((ArrayIndexCheckpointData) value).getCurrentIndex());
+		}
+
+		@Override
+		Externalizable decode(DataInputStream in) throws IOException {
+			ArrayIndexCheckpointData data = new ArrayIndexCheckpointData();
+			data.setCurrentIndex(readVarInt(in));
+			return data;
+		}
+	},
+
+	INVENTORY {
+		@Override
+		public Externalizable sample() {
+			InventoryCheckpointData data = new InventoryCheckpointData();
+			data.setInventoryCount(15);
+			return data;
+		}
+
+		@Override
+		public Externalizable newInstance() {
+			return new InventoryCheckpointData();
+		}
+
+		@Override
+		void encode(Externalizable value, DataOutputStream out) throws IOException {
+			writeVarInt(out, ((InventoryCheckpointData) value).getInventoryCount());
+		}
+
+		@Override
+		Externalizable decode(DataInputStream in) throws IOException {
+			InventoryCheckpointData data = new InventoryCheckpointData();
+			data.setInventoryCount(readVarInt(in));
+			return data;
+		}
+	},
+
+	NUMBERS {
+		@Override
+		public Externalizable sample() {
+			NumbersCheckpointData data = new NumbersCheckpointData();
+			data.setCount(12);
+			return data;
+		}
+
+		@Override
+		public Externalizable newInstance() {
+			return new NumbersCheckpointData();
+		}
+
+		@Override
+		void encode(Externalizable value, DataOutputStream out) throws IOException {
+			writeVarInt(out, ((NumbersCheckpointData) value).getCount());
+		}
+
+		@Override
+		Externalizable decode(DataInputStream in) throws IOException {
+			NumbersCheckpointData data = new NumbersCheckpointData();
+			data.setCount(readVarInt(in));
+			return data;
+		}
+	},
+
+	PERSISTENT_USER_DATA {
+		@Override
+		public Externalizable sample() {
+			return new MyPersistentRestartUserData(2, "5,13,22,30");
+		}
+
+		@Override
+		public Externalizable newInstance() {
+			return new MyPersistentRestartUserData();
+		}
+
+		@Override
+		void encode(Externalizable value, DataOutputStream out) throws IOException {
+			MyPersistentRestartUserData data = (MyPersistentRestartUserData) value;
+			writeVarInt(out, data.getExecutionNumber());
+			writeString(out, data.getNextWritePoints());
+		}
+
+		@Override
+		Externalizable decode(DataInputStream in) throws IOException {
+			int executionNumber = readVarInt(in);
+			return new MyPersistentRestartUserData(executionNumber, readString(in));
+		}
+	},
+
+	STRING {
+		@Override
+		public Externalizable sample() {
+			return new ExternalizableString("C");
+		}
+
+		@Override
+		public Externalizable newInstance() {
+			return new ExternalizableString();
+		}
+
+		@Override
+		void encode(Externalizable value, DataOutputStream out) throws IOException {
+			writeString(out, ((ExternalizableString) value).getString());
+		}
+
+		@Override
+		Externalizable decode(DataInputStream in) throws IOException {
+			return new ExternalizableString(readString(in));
+		}
+	};
+
+	/**
+	 * @return a new instance holding a value typical of the TCK jobs
+	 */
+	public abstract Externalizable sample();
+
+	/**
+	 * @return an empty instance, for readExternal()
+	 */
+	public abstract Externalizable newInstance();
+
+	abstract void encode(Externalizable value, DataOutputStream out) throws IOException;
+
+	abstract Externalizable decode(DataInputStream in) throws IOException;
+
+	public byte[] toCompactBytes(Externalizable value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+		DataOutputStream out = new DataOutputStream(bytes);
+		encode(value, out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	public Externalizable fromCompactBytes(byte[] bytes) throws IOException {
+		return decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, -1);
+			return;
+		}
+		byte[] utf8 = value.getBytes("UTF-8");
+		writeVarInt(out, utf8.length);
+		out.write(utf8);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		int length = readVarInt(in);
+		if (length == -1) {
+			return null;
+		}
+		byte[] utf8 = new byte[length];
+		in.readFully(utf8);
+		return new String(utf8, "UTF-8");
+	}
+}
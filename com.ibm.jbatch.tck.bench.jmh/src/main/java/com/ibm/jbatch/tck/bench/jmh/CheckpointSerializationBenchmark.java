@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round-trip (serialize then deserialize) cost of each TCK checkpoint type, for every encoding:
+ * <ul>
+ * <li>objectStream - writeObject()/readObject() through fresh Object streams, as a runtime does
+ * when it persists the checkpoint at each chunk commit</li>
+ * <li>externalizable - calling writeExternal()/readExternal() directly on the Object streams, which
+ * leaves out the class descriptor and the reflective instantiation</li>
+ * <li>compactObjectStream - the compact byte[] encoding, persisted through the Object streams as
+ * the runtime would if checkpointInfo() returned it</li>
+ * <li>compact - the compact encoding alone</li>
+ * </ul>
+ * The serialized sizes are logged once per trial.  See {@link ChunkCheckpointBenchmark} for the
+ * cost per chunk commit.
+ *
+ * Run with:  java -jar target/benchmarks.jar CheckpointSerializationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckpointSerializationBenchmark {
+
+	private final static Logger logger = Logger.getLogger(CheckpointSerializationBenchmark.class.getName());
+
+	@Param({ "ARRAY_INDEX", "INVENTORY", "NUMBERS", "PERSISTENT_USER_DATA", "STRING" })
+	public CheckpointKind kind;
+
+	private Externalizable checkpoint;
+
+	@Setup
+	public void setup() throws Exception {
+		checkpoint = kind.sample();
+
+		logger.info(kind + " serialized sizes: objectStream=" + serialize(checkpoint).length
+				+ " externalizable=" + writeExternal(checkpoint).length
+				+ " compactObjectStream=" + serialize(kind.toCompactBytes(checkpoint)).length
+				+ " compact=" + kind.toCompactBytes(checkpoint).length + " bytes");
+	}
+
+	@Benchmark
+	public Object objectStream() throws Exception {
+		return deserialize(serialize(checkpoint));
+	}
+
+	@Benchmark
+	public Object externalizable() throws Exception {
+		return readExternal(kind, writeExternal(checkpoint));
+	}
+
+	@Benchmark
+	public Object compactObjectStream() throws Exception {
+		return kind.fromCompactBytes((byte[]) deserialize(serialize(kind.toCompactBytes(checkpoint))));
+	}
+
+	@Benchmark
+	public Object compact() throws Exception {
+		return kind.fromCompactBytes(kind.toCompactBytes(checkpoint));
+	}
+
+	static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(value);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+
+	static byte[] writeExternal(Externalizable value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		value.writeExternal(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	static Externalizable readExternal(CheckpointKind kind, byte[] bytes) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			Externalizable value = kind.newInstance();
+			value.readExternal(in);
+			return value;
+		} finally {
+			in.close();
+		}
+	}
+}
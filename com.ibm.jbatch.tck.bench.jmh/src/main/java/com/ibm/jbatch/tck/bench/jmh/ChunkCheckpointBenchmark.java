@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench.jmh;
+
+import static com.ibm.jbatch.tck.bench.jmh.CheckpointSerializationBenchmark.deserialize;
+import static com.ibm.jbatch.tck.bench.jmh.CheckpointSerializationBenchmark.serialize;
+
+import java.io.Externalizable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checkpoint serialization cost per item, at the checkpoint frequency given by item-count.
+ *
+ * Each op stands for one item; every itemCount-th op round-trips everything a runtime saves
+ * at a chunk boundary of the DoSomething jobs: the reader and writer checkpoints
+ * (ArrayIndexCheckpointData) and the step's persistent user data (MyPersistentRestartUserData).
+ * With itemCount=1 every op is a chunk commit, so that time can be set directly against the
+ * commit latency reported by the chunk throughput benchmark in com.ibm.jbatch.tck.bench.
+ *
+ * Run with:  java -jar target/benchmarks.jar ChunkCheckpointBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkCheckpointBenchmark {
+
+	@Param({ "1", "10", "100", "1000" })
+	public int itemCount;
+
+	private Externalizable readerCheckpoint;
+	private Externalizable writerCheckpoint;
+	private Externalizable userData;
+
+	private int item = 0;
+
+	@Setup
+	public void setup() {
+		readerCheckpoint = CheckpointKind.ARRAY_INDEX.sample();
+		writerCheckpoint = CheckpointKind.ARRAY_INDEX.sample();
+		userData = CheckpointKind.PERSISTENT_USER_DATA.sample();
+	}
+
+	@Benchmark
+	public Object objectStream() throws Exception {
+		if (++item < itemCount) {
+			return null;
+		}
+		item = 0;
+		return objectStreamPerCommit();
+	}
+
+	@Benchmark
+	public Object compact() throws Exception {
+		if (++item < itemCount) {
+			return null;
+		}
+		item = 0;
+		return compactPerCommit();
+	}
+
+	private Object objectStreamPerCommit() throws Exception {
+		deserialize(serialize(readerCheckpoint));
+		deserialize(serialize(writerCheckpoint));
+		return deserialize(serialize(userData));
+	}
+
+	private Object compactPerCommit() throws Exception {
+		roundTripCompact(CheckpointKind.ARRAY_INDEX, readerCheckpoint);
+		roundTripCompact(CheckpointKind.ARRAY_INDEX, writerCheckpoint);
+		return roundTripCompact(CheckpointKind.PERSISTENT_USER_DATA, userData);
+	}
+
+	private static Object roundTripCompact(CheckpointKind kind, Externalizable value) throws Exception {
+		return kind.fromCompactBytes((byte[]) deserialize(serialize(kind.toCompactBytes(value))));
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.ibm.jbatch.tck.utils.BatchArtifactIndex;
+
+/**
+ * Checks that a runtime resolving artifact refs through META-INF/batch-artifacts.index picks the
+ * same class for every ref as one resolving through the META-INF/batch.xml next to it, and that
+ * ids batch.xml doesn't define aren't resolved at all.  Then reports the cost of resolving a ref
+ * each way, including the load of the file.
+ *
+ * System properties:
+ * <ul>
+ * <li>bench.index.iterations - times each way is timed, default 200</li>
+ * </ul>
+ */
+public class ArtifactRefIndexTests {
+
+	private final static Logger logger = Logger.getLogger(ArtifactRefIndexTests.class.getName());
+
+	private static final int ITERATIONS = Integer.getInteger("bench.index.iterations", 200);
+
+	private static URL indexURL;
+	private static URL batchXMLURL;
+	private static Map<String, String> batchXMLRefs;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		indexURL = classLoader.getResource(BatchArtifactIndex.INDEX_RESOURCE);
+		assertWithMessage("Found " + BatchArtifactIndex.INDEX_RESOURCE, true, indexURL != null);
+		batchXMLURL = new URL(indexURL, "batch.xml");
+		batchXMLRefs = parseBatchXML(batchXMLURL);
+	}
+
+	@Test
+	public void testIndexResolvesSameClassesAsBatchXML() throws Exception {
+		Reporter.log("Resolve each of the " + batchXMLRefs.size() + " refs in " + batchXMLURL + " through the index<p>");
+
+		BatchArtifactIndex index = BatchArtifactIndex.load(Thread.currentThread().getContextClassLoader());
+		assertWithMessage("Refs in index", batchXMLRefs.size(), index.size());
+
+		for (Map.Entry<String, String> ref : batchXMLRefs.entrySet()) {
+			String className = index.getClassName(ref.getKey());
+			assertWithMessage("Class for ref " + ref.getKey(), ref.getValue(), className);
+			Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+		}
+	}
+
+	@Test
+	public void testIndexLoadsAsProperties() throws Exception {
+		Reporter.log("Load the index with java.util.Properties<p>");
+
+		Properties properties = new Properties();
+		InputStream in = indexURL.openStream();
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+
+		assertWithMessage("Refs in index", batchXMLRefs.size(), properties.size());
+		for (Map.Entry<String, String> ref : batchXMLRefs.entrySet()) {
+			assertWithMessage("Class for ref " + ref.getKey(), ref.getValue(), properties.getProperty(ref.getKey()));
+		}
+	}
+
+	@Test
+	public void testUnknownRefsDoNotResolve() throws Exception {
+		BatchArtifactIndex index = BatchArtifactIndex.load(Thread.currentThread().getContextClassLoader());
+
+		Set<String> unknownIds = new HashSet<String>();
+		unknownIds.add("");
+		unknownIds.add("batch");
+		for (String id : batchXMLRefs.keySet()) {
+			unknownIds.add(id + "X");
+			unknownIds.add(id.substring(0, id.length() - 1));
+			unknownIds.add(id.toUpperCase());
+			unknownIds.add(batchXMLRefs.get(id));
+		}
+		unknownIds.removeAll(batchXMLRefs.keySet());
+
+		Reporter.log("Resolve " + unknownIds.size() + " ids that aren't in batch.xml through the index<p>");
+		for (String id : unknownIds) {
+			assertWithMessage("Class for unknown ref '" + id + "'", null, index.getClassName(id));
+		}
+	}
+
+	@Test
+	public void testResolutionCost() throws Exception {
+		String[] ids = batchXMLRefs.keySet().toArray(new String[batchXMLRefs.size()]);
+
+		// Warm up both ways before timing them
+		for (int i = 0; i < 20; i++) {
+			resolveThroughBatchXML(ids[i % ids.length]);
+			resolveThroughIndex(ids[i % ids.length]);
+		}
+
+		long batchXMLNanos = 0;
+		long indexNanos = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			String id = ids[i % ids.length];
+
+			long start = System.nanoTime();
+			String fromBatchXML = resolveThroughBatchXML(id);
+			batchXMLNanos += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			String fromIndex = resolveThroughIndex(id);
+			indexNanos += System.nanoTime() - start;
+
+			assertWithMessage("Class for ref " + id, fromBatchXML, fromIndex);
+		}
+
+		String report = "Load and resolve one ref, mean of " + ITERATIONS + ": batch.xml " + (batchXMLNanos / ITERATIONS / 1000)
+				+ " us, index " + (indexNanos / ITERATIONS / 1000) + " us";
+		logger.info(report);
+		Reporter.log(report + "<p>");
+	}
+
+	private static String resolveThroughBatchXML(String id) throws Exception {
+		return parseBatchXML(batchXMLURL).get(id);
+	}
+
+	private static String resolveThroughIndex(String id) throws Exception {
+		InputStream in = indexURL.openStream();
+		try {
+			return BatchArtifactIndex.load(in).getClassName(id);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static Map<String, String> parseBatchXML(URL url) throws Exception {
+		InputStream in = url.openStream();
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			Document document = factory.newDocumentBuilder().parse(in);
+
+			Map<String, String> refs = new LinkedHashMap<String, String>();
+			NodeList refElements = document.getElementsByTagNameNS("*", "ref");
+			for (int i = 0; i < refElements.getLength(); i++) {
+				Element ref = (Element) refElements.item(i);
+				refs.put(ref.getAttribute("id"), ref.getAttribute("class"));
+			}
+			return refs;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+
+/**
+ * Common setup and reporting for the benchmarks in this module that run long jobs.
+ * <p>
+ * Before the subclass's own @BeforeClass methods, creates the JobOperatorBridge with the wait for each job raised
+ * to 30 minutes, unless tck.execution.waiter.timeout is set.  The system property is only changed while the bridge
+ * is created, since that's when the bridge reads it.
+ * <p>
+ * Result lines passed to {@link #addResult(String)} go to the TestNG report and the log as they're produced,
+ * and are logged together, under {@link #resultsHeading()}, once the class has finished.
+ */
+public abstract class BenchmarkBase {
+
+	static final String WAITER_TIMEOUT_PROP = "tck.execution.waiter.timeout";
+	private static final long BENCH_TIMEOUT = 1800000;
+
+	protected static volatile JobOperatorBridge jobOp = null;
+
+	private final List<String> results = new ArrayList<String>();
+
+	@BeforeClass
+	public void createJobOperator() {
+		jobOp = newJobOperator(Long.getLong(WAITER_TIMEOUT_PROP, BENCH_TIMEOUT));
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void logResults() {
+		if (results.isEmpty()) {
+			return;
+		}
+		StringBuilder buf = new StringBuilder(resultsHeading()).append(':');
+		for (String result : results) {
+			buf.append("\n  ").append(result);
+		}
+		Logger.getLogger(getClass().getName()).info(buf.toString());
+	}
+
+	/**
+	 * @return the heading of the results logged when the class has finished
+	 */
+	protected abstract String resultsHeading();
+
+	protected void addResult(String result) {
+		Reporter.log(result + "<p>");
+		Logger.getLogger(getClass().getName()).info(result);
+		results.add(result);
+	}
+
+	/**
+	 * @return a JobOperatorBridge that waits at most timeout ms for each job execution to end.
+	 * tck.execution.waiter.timeout is restored once the bridge has been created.
+	 */
+	static JobOperatorBridge newJobOperator(long timeout) {
+		String previous = System.getProperty(WAITER_TIMEOUT_PROP);
+		System.setProperty(WAITER_TIMEOUT_PROP, String.valueOf(timeout));
+		try {
+			return new JobOperatorBridge();
+		} finally {
+			if (previous == null) {
+				System.clearProperty(WAITER_TIMEOUT_PROP);
+			} else {
+				System.setProperty(WAITER_TIMEOUT_PROP, previous);
+			}
+		}
+	}
+
+	/**
+	 * @return the comma-separated integers in the given system property, or in defaultValues if it isn't set
+	 */
+	protected static int[] intValues(String property, String defaultValues) {
+		String[] values = System.getProperty(property, defaultValues).trim().split("\\s*,\\s*");
+		int[] ints = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			ints[i] = Integer.parseInt(values[i]);
+		}
+		return ints;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.ChunkPhaseTimingListener;
+import com.ibm.jbatch.tck.artifacts.perf.LatencyHistogram;
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+
+/**
+ * Checks that chunkPhaseTimingListener times every read, process, write and commit of a chunk step,
+ * however often its ring buffer is drained, and that its histograms report percentiles within their
+ * stated precision.
+ */
+public class ChunkPhaseTimingTests {
+
+	private static final String JOB_NAME = "bench_chunk_phase_timing";
+
+	private static final int ITEMS = 1000;
+	private static final int ITEM_COUNT = 10;
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+	}
+
+	@Test
+	public void testPhaseTimingsInExitStatus() throws Exception {
+		JobExecution execution = runJob(null, ChunkPhaseTimingListener.PUBLISH_TO_EXIT_STATUS);
+		checkCounts(getStepExecution(execution).getExitStatus());
+	}
+
+	/**
+	 * A ring buffer smaller than a chunk drains several times per chunk.
+	 */
+	@Test
+	public void testPhaseTimingsWithSmallRingBuffer() throws Exception {
+		JobExecution execution = runJob("16", ChunkPhaseTimingListener.PUBLISH_TO_EXIT_STATUS);
+		checkCounts(getStepExecution(execution).getExitStatus());
+	}
+
+	@Test
+	public void testPhaseTimingsInPersistentUserData() throws Exception {
+		JobExecution execution = runJob(null, ChunkPhaseTimingListener.PUBLISH_TO_PERSISTENT_USER_DATA);
+		StepExecution step = getStepExecution(execution);
+		assertWithMessage("Exit status left alone", "COMPLETED", step.getExitStatus());
+		checkCounts((String) step.getPersistentUserData());
+	}
+
+	/**
+	 * Compares the histogram's percentiles to the exact ones from LatencySamples, over
+	 * values spanning several orders of magnitude.
+	 */
+	@Test
+	public void testHistogramPrecision() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		LatencySamples samples = new LatencySamples(100000);
+		Random random = new Random(352);
+		for (int i = 0; i < 100000; i++) {
+			long value = (long) Math.pow(10, 1 + random.nextDouble() * 8);
+			histogram.record(value);
+			samples.record(value);
+		}
+
+		assertWithMessage("Count", (long) samples.getCount(), histogram.getCount());
+		assertWithMessage("Max", samples.getMax(), histogram.getMax());
+		for (double percentile : new double[] { 0, 1, 10, 50, 90, 99, 99.9, 100 }) {
+			long exact = samples.getPercentile(percentile);
+			long reported = histogram.getPercentile(percentile);
+			Reporter.log("p" + percentile + ": exact=" + exact + " histogram=" + reported + "<p>");
+			assertWithMessage("p" + percentile + " of " + reported + " is at least " + exact, true, reported >= exact);
+			assertWithMessage("p" + percentile + " of " + reported + " is within 1/64 of " + exact, true, reported <= exact + exact / 64);
+		}
+	}
+
+	private static JobExecution runJob(String ringSize, String publishTo) throws Exception {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("app.arraysize", String.valueOf(ITEMS));
+		jobParams.setProperty("item.count", String.valueOf(ITEM_COUNT));
+		jobParams.setProperty("publish.to", publishTo);
+		if (ringSize != null) {
+			jobParams.setProperty("ring.size", ringSize);
+		}
+		Reporter.log("Run " + ITEMS + " items, item-count=" + ITEM_COUNT + ", ring.size=" + ringSize + ", publish.to=" + publishTo + "<p>");
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+		return execution;
+	}
+
+	private static StepExecution getStepExecution(JobExecution execution) throws Exception {
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of StepExecutions", 1, steps.size());
+		return steps.get(0);
+	}
+
+	/*
+	 * The last chunk reads only the null marking the end of the input, so it processes and
+	 * writes nothing, and isn't followed by a commit.
+	 */
+	private static void checkCounts(String summaryString) {
+		Reporter.log("Phase timings = " + summaryString + "<p>");
+		Properties summary = ThroughputRecorder.parseSummary(summaryString);
+		int chunks = ITEMS / ITEM_COUNT + 1;
+
+		assertWithMessage("Reads timed", String.valueOf(ITEMS + 1), summary.getProperty(ChunkPhaseTimingListener.READ + ChunkPhaseTimingListener.COUNT));
+		assertWithMessage("Items processed timed", String.valueOf(ITEMS), summary.getProperty(ChunkPhaseTimingListener.PROCESS + ChunkPhaseTimingListener.COUNT));
+		assertWithMessage("Writes timed", String.valueOf(chunks - 1), summary.getProperty(ChunkPhaseTimingListener.WRITE + ChunkPhaseTimingListener.COUNT));
+		assertWithMessage("Commits timed", String.valueOf(chunks - 1), summary.getProperty(ChunkPhaseTimingListener.COMMIT + ChunkPhaseTimingListener.COUNT));
+		assertWithMessage("Chunks timed", String.valueOf(chunks), summary.getProperty(ChunkPhaseTimingListener.CHUNK + ChunkPhaseTimingListener.COUNT));
+
+		for (String phase : new String[] { ChunkPhaseTimingListener.READ, ChunkPhaseTimingListener.PROCESS, ChunkPhaseTimingListener.WRITE,
+				ChunkPhaseTimingListener.COMMIT, ChunkPhaseTimingListener.CHUNK }) {
+			long p50 = Long.parseLong(summary.getProperty(phase + ChunkPhaseTimingListener.P50));
+			long p99 = Long.parseLong(summary.getProperty(phase + ChunkPhaseTimingListener.P99));
+			long max = Long.parseLong(summary.getProperty(phase + ChunkPhaseTimingListener.MAX));
+			assertWithMessage(phase + " percentiles are ordered", true, 0 < p50 && p50 <= p99 && p99 <= max);
+		}
+	}
+}
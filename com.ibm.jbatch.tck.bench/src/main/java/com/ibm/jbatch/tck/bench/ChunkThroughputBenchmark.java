@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+
+/**
+ * Drives the DoSomething reader and processor through bench_chunk_throughput.xml, sweeping
+ * the total number of items and the item-count (i.e. the commit interval), and reports for each run
+ * the throughput in items/sec, the per-chunk commit latency percentiles and the allocation rate of the step thread.
+ *
+ * Configured through system properties (comma-separated lists):
+ * <ul>
+ * <li>bench.items - total items per job, default "1000000"</li>
+ * <li>bench.item.counts - item-count values, default "10,100,1000"</li>
+ * <li>bench.warmup.items - items run once before measuring, to warm up the JIT, default "20000"</li>
+ * </ul>
+ */
+public class ChunkThroughputBenchmark extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_chunk_throughput";
+
+	@BeforeClass
+	public void warmUp() throws Exception {
+		int warmupItems = Integer.parseInt(System.getProperty("bench.warmup.items", "20000"));
+		if (warmupItems > 0) {
+			Reporter.log("Warming up with " + warmupItems + " items<p>");
+			runJob(warmupItems, 100);
+		}
+	}
+
+	@DataProvider(name = "sweep")
+	public Object[][] sweep() {
+		List<Object[]> configs = new ArrayList<Object[]>();
+		for (int items : intValues("bench.items", "1000000")) {
+			for (int itemCount : intValues("bench.item.counts", "10,100,1000")) {
+				configs.add(new Object[] { items, itemCount });
+			}
+		}
+		return configs.toArray(new Object[configs.size()][]);
+	}
+
+	@Test(dataProvider = "sweep")
+	public void testChunkThroughput(int items, int itemCount) throws Exception {
+		Reporter.log("Run " + items + " items with item-count=" + itemCount + "<p>");
+		Properties summary = runJob(items, itemCount);
+
+		long written = Long.parseLong(summary.getProperty(ThroughputRecorder.ITEMS));
+		assertWithMessage("Items written", (long) items, written);
+
+		long elapsedNanos = Long.parseLong(summary.getProperty(ThroughputRecorder.ELAPSED_NANOS));
+		long allocatedBytes = Long.parseLong(summary.getProperty(ThroughputRecorder.ALLOCATED_BYTES));
+		double seconds = elapsedNanos / 1e9;
+
+		String result = String.format("items=%d itemCount=%d chunks=%s items/sec=%.0f "
+				+ "commit p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus chunk p50=%.1fus p99=%.1fus alloc=%s",
+				items, itemCount, summary.getProperty(ThroughputRecorder.CHUNKS), written / seconds,
+				micros(summary, ThroughputRecorder.COMMIT_P50), micros(summary, ThroughputRecorder.COMMIT_P90),
+				micros(summary, ThroughputRecorder.COMMIT_P99), micros(summary, ThroughputRecorder.COMMIT_MAX),
+				micros(summary, ThroughputRecorder.CHUNK_P50), micros(summary, ThroughputRecorder.CHUNK_P99),
+				allocatedBytes < 0 ? "n/a" : String.format("%.1fMB/s (%.0f bytes/item)",
+						allocatedBytes / seconds / (1024 * 1024), (double) allocatedBytes / written));
+
+		addResult(result);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Chunk throughput results";
+	}
+
+	private Properties runJob(int items, int itemCount) throws Exception {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("app.arraysize", String.valueOf(items));
+		jobParams.setProperty("item.count", String.valueOf(itemCount));
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of steps", 1, steps.size());
+		return ThroughputRecorder.parseSummary(steps.get(0).getExitStatus());
+	}
+
+	private static double micros(Properties summary, String key) {
+		return Long.parseLong(summary.getProperty(key)) / 1000.0;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.PayloadDeliveryAnalyzer;
+import com.ibm.jbatch.tck.artifacts.perf.SizedPayload;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+
+/**
+ * Sends collector payloads of increasing size from the partitions of a chunk step (bench_collector_payload.xml)
+ * to the analyzer, and reports for each size the payload delivery latency percentiles, payloads/sec and MB/sec
+ * through the runtime's collector queue.  Each result also gives the Java-serialized size of one payload, which is
+ * what a runtime that serializes collector data (e.g. to run partitions remotely) has to move.
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.payload.bytes - comma-separated payload sizes, default "16,1024,65536,1048576"</li>
+ * <li>bench.partitions - number of partitions, default "8"</li>
+ * <li>bench.partition.items - items read by each partition, default "500"</li>
+ * <li>bench.item.count - item-count of the chunk step, i.e. the number of items per collector call, default "10"</li>
+ * <li>bench.collect.interval.ms - minimum gap between two payloads from one partition, default "0", i.e. one
+ * payload per chunk</li>
+ * </ul>
+ */
+public class CollectorPayloadBenchmark extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_collector_payload";
+
+	private int partitions;
+	private int partitionItems;
+	private int itemCount;
+	private String minGapMillis;
+
+	@BeforeClass
+	public void warmUp() throws Exception {
+		partitions = Integer.parseInt(System.getProperty("bench.partitions", "8"));
+		partitionItems = Integer.parseInt(System.getProperty("bench.partition.items", "500"));
+		itemCount = Integer.parseInt(System.getProperty("bench.item.count", "10"));
+		minGapMillis = System.getProperty("bench.collect.interval.ms", "0");
+
+		Reporter.log("Warming up with 1024 byte payloads<p>");
+		runJob(1024);
+	}
+
+	@DataProvider(name = "sweep")
+	public Object[][] sweep() {
+		List<Object[]> configs = new ArrayList<Object[]>();
+		for (int bytes : intValues("bench.payload.bytes", "16,1024,65536,1048576")) {
+			configs.add(new Object[] { bytes });
+		}
+		return configs.toArray(new Object[configs.size()][]);
+	}
+
+	@Test(dataProvider = "sweep")
+	public void testCollectorPayload(int payloadBytes) throws Exception {
+		Reporter.log("Run " + partitions + " partitions sending " + payloadBytes + " byte payloads<p>");
+		Properties summary = runJob(payloadBytes);
+
+		long payloads = longValue(summary, PayloadDeliveryAnalyzer.PAYLOADS);
+		long bytes = longValue(summary, PayloadDeliveryAnalyzer.BYTES);
+		assertWithMessage("Payloads delivered", true, payloads >= partitions);
+		assertWithMessage("Bytes delivered", payloads * payloadBytes, bytes);
+
+		double seconds = longValue(summary, PayloadDeliveryAnalyzer.SPAN_NANOS) / 1e9;
+
+		String result = String.format("payloadBytes=%d serializedBytes=%d payloads=%d payloads/sec=%.0f MB/sec=%.1f "
+				+ "latency mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+				payloadBytes, serializedSize(payloadBytes), payloads, payloads / seconds, bytes / seconds / (1024 * 1024),
+				micros(summary, PayloadDeliveryAnalyzer.LATENCY_MEAN), micros(summary, PayloadDeliveryAnalyzer.LATENCY_P50),
+				micros(summary, PayloadDeliveryAnalyzer.LATENCY_P90), micros(summary, PayloadDeliveryAnalyzer.LATENCY_P99),
+				micros(summary, PayloadDeliveryAnalyzer.LATENCY_MAX));
+
+		addResult(result);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Collector payload results";
+	}
+
+	private Properties runJob(int payloadBytes) throws Exception {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("numPartitionsProp", String.valueOf(partitions));
+		jobParams.setProperty("app.arraysize", String.valueOf(partitionItems));
+		jobParams.setProperty("item.count", String.valueOf(itemCount));
+		jobParams.setProperty("payload.bytes", String.valueOf(payloadBytes));
+		jobParams.setProperty("collect.interval.ms", minGapMillis);
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of steps", 1, steps.size());
+
+		String exitStatus = steps.get(0).getExitStatus();
+		Reporter.log("Step exit status = " + exitStatus + "<p>");
+		Properties summary = ThroughputRecorder.parseSummary(exitStatus);
+		assertWithMessage("Partition statuses analyzed", String.valueOf(partitions), summary.getProperty(PayloadDeliveryAnalyzer.STATUSES));
+		return summary;
+	}
+
+	private static int serializedSize(int payloadBytes) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloadBytes + 128);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(new SizedPayload(payloadBytes));
+		out.close();
+		return bytes.size();
+	}
+
+	private static long longValue(Properties summary, String key) {
+		String value = summary.getProperty(key);
+		assertWithMessage("Summary has " + key, true, value != null);
+		return Long.parseLong(value);
+	}
+
+	private static double micros(Properties summary, String key) {
+		return longValue(summary, key) / 1000.0;
+	}
+}
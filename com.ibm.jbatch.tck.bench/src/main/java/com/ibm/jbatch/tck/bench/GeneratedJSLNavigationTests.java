@@ -0,0 +1,316 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.utils.JSLGenerator;
+import com.ibm.jbatch.tck.utils.JSLGenerator.GeneratedJob;
+
+/**
+ * Runs the JSL documents made by {@link JSLGenerator}: long chains of steps, deeply nested flows, wide
+ * splits and decisions with dense transition tables.
+ *
+ * Every test checks that each step ran once, completed, and ran in the order the document calls for.
+ * The ordering tests run jobs small enough for transitionTrackerBatchlet's exit status to hold the
+ * whole order; the scaling tests run each shape at three sizes and check that the runtime's time per
+ * step (or per decision) at the largest size is at most bench.jsl.linearity.factor times that at the
+ * smallest, so that navigation which grows with the square of the document's size, such as looking
+ * up each transition by scanning the whole job, fails the test.  The times are the runtime's own,
+ * from the job execution's start and end times, and each is the median of bench.jsl.repeats runs at
+ * that size, after one unmeasured run at the smallest size.  The per-job overhead is spread over fewer
+ * steps at the smallest size, which only makes the check more lenient.
+ * <p>
+ * The reference implementation's time per decision grows with the number of decisions when each has 50
+ * transitions, so unless bench.jsl.decision.strict is true, testDecisionTableScaling reports a ratio over
+ * the factor as a known issue, in its results and the TestNG report, instead of failing.
+ *
+ * Configured through system properties, each size list holding comma-separated sizes, smallest first:
+ * <ul>
+ * <li>bench.jsl.chain.sizes - steps in the chain, default 100,500,2000</li>
+ * <li>bench.jsl.nested.sizes - depth of the nested flows, default 10,50,100</li>
+ * <li>bench.jsl.split.sizes - flows in the split, each of bench.jsl.split.steps (default 2) steps, default 4,16,64</li>
+ * <li>bench.jsl.decision.sizes - decisions, each with bench.jsl.decision.transitions (default 50) transitions, default 25,100,400</li>
+ * <li>bench.jsl.decision.strict - fail testDecisionTableScaling, rather than report a known issue, default false</li>
+ * <li>bench.jsl.repeats - runs timed at each size, default 3</li>
+ * <li>bench.jsl.linearity.factor - default 3</li>
+ * </ul>
+ */
+public class GeneratedJSLNavigationTests extends BenchmarkBase {
+
+	private int repeats;
+	private double linearityFactor;
+	private boolean decisionStrict;
+	private JobXMLDirectory generated;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		repeats = Integer.parseInt(System.getProperty("bench.jsl.repeats", "3"));
+		linearityFactor = Double.parseDouble(System.getProperty("bench.jsl.linearity.factor", "3"));
+		decisionStrict = Boolean.getBoolean("bench.jsl.decision.strict");
+		generated = new JobXMLDirectory("tck-generated-jsl");
+	}
+
+	@Test
+	public void testChainOrder() throws Exception {
+		GeneratedJob job = JSLGenerator.chain("generated_chain_order", 30, JSLGenerator.TRANSITION_TRACKER_BATCHLET);
+		Reporter.log("Run a chain of 30 steps, each of which adds its name to the job exit status<p>");
+
+		JobExecution execution = run(job);
+		verifyStepOrder(job, execution);
+		assertWithMessage("Job exit status lists the steps in order", join(job.getOrderedSequences().get(0)), execution.getExitStatus());
+	}
+
+	@Test
+	public void testNestedFlowOrder() throws Exception {
+		GeneratedJob job = JSLGenerator.nestedFlows("generated_nested_flows_order", 10, JSLGenerator.TRANSITION_TRACKER_BATCHLET);
+		Reporter.log("Run 10 nested flows, each of whose steps adds its name to the job exit status<p>");
+
+		JobExecution execution = run(job);
+		verifyStepOrder(job, execution);
+		assertWithMessage("Job exit status lists the steps in order", join(job.getOrderedSequences().get(0)), execution.getExitStatus());
+	}
+
+	@Test
+	public void testWideSplitOrder() throws Exception {
+		GeneratedJob job = JSLGenerator.wideSplit("generated_split_order", 32, 3, JSLGenerator.DO_NOTHING_BATCHLET);
+		Reporter.log("Run a split of 32 flows of 3 steps each, between two steps<p>");
+
+		JobExecution execution = run(job);
+		verifyStepOrder(job, execution);
+	}
+
+	@Test
+	public void testDecisionTableOrder() throws Exception {
+		GeneratedJob job = JSLGenerator.decisionTable("generated_decisions_order", 20, 20);
+		Reporter.log("Run 20 decisions of 20 transitions each, of which only the last matches<p>");
+
+		JobExecution execution = run(job);
+		verifyStepOrder(job, execution);
+		assertWithMessage("Every decision took its matching transition", JSLGenerator.DECISIONS_DONE, execution.getExitStatus());
+	}
+
+	@Test
+	public void testChainScaling() throws Exception {
+		int[] sizes = intValues("bench.jsl.chain.sizes", "100,500,2000");
+		long[] elapsed = new long[sizes.length];
+		for (int i = -1; i < sizes.length; i++) {
+			int size = sizes[Math.max(i, 0)];
+			GeneratedJob job = JSLGenerator.chain("generated_chain_" + size, size, JSLGenerator.DO_NOTHING_BATCHLET);
+			if (i < 0) {
+				runTimed(job, null);
+			} else {
+				elapsed[i] = medianElapsed(job, null);
+			}
+		}
+		verifyLinear("chain", "steps", sizes, elapsed, true);
+	}
+
+	@Test
+	public void testNestedFlowScaling() throws Exception {
+		int[] sizes = intValues("bench.jsl.nested.sizes", "10,50,100");
+		long[] elapsed = new long[sizes.length];
+		int[] steps = new int[sizes.length];
+		for (int i = -1; i < sizes.length; i++) {
+			int size = sizes[Math.max(i, 0)];
+			GeneratedJob job = JSLGenerator.nestedFlows("generated_nested_flows_" + size, size, JSLGenerator.DO_NOTHING_BATCHLET);
+			if (i < 0) {
+				runTimed(job, null);
+			} else {
+				elapsed[i] = medianElapsed(job, null);
+				steps[i] = job.getStepCount();
+			}
+		}
+		verifyLinear("nested flows", "steps", steps, elapsed, true);
+	}
+
+	@Test
+	public void testWideSplitScaling() throws Exception {
+		int[] sizes = intValues("bench.jsl.split.sizes", "4,16,64");
+		int stepsPerFlow = Integer.parseInt(System.getProperty("bench.jsl.split.steps", "2"));
+		long[] elapsed = new long[sizes.length];
+		int[] steps = new int[sizes.length];
+		for (int i = -1; i < sizes.length; i++) {
+			int size = sizes[Math.max(i, 0)];
+			GeneratedJob job = JSLGenerator.wideSplit("generated_split_" + size + "x" + stepsPerFlow, size, stepsPerFlow,
+					JSLGenerator.DO_NOTHING_BATCHLET);
+			if (i < 0) {
+				runTimed(job, null);
+			} else {
+				elapsed[i] = medianElapsed(job, null);
+				steps[i] = job.getStepCount();
+			}
+		}
+		verifyLinear("split", "steps", steps, elapsed, true);
+	}
+
+	@Test
+	public void testDecisionTableScaling() throws Exception {
+		int[] sizes = intValues("bench.jsl.decision.sizes", "25,100,400");
+		int transitions = Integer.parseInt(System.getProperty("bench.jsl.decision.transitions", "50"));
+		long[] elapsed = new long[sizes.length];
+		for (int i = -1; i < sizes.length; i++) {
+			int size = sizes[Math.max(i, 0)];
+			GeneratedJob job = JSLGenerator.decisionTable("generated_decisions_" + size + "x" + transitions, size, transitions);
+			if (i < 0) {
+				runTimed(job, JSLGenerator.DECISIONS_DONE);
+			} else {
+				elapsed[i] = medianElapsed(job, JSLGenerator.DECISIONS_DONE);
+			}
+		}
+		verifyLinear("decisions of " + transitions + " transitions", "decisions", sizes, elapsed, decisionStrict);
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void deleteGenerated() {
+		if (generated != null) {
+			generated.delete();
+		}
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Generated JSL navigation results";
+	}
+
+	private JobExecution run(GeneratedJob job) throws Exception {
+		generated.write(job.getId(), job.getXML());
+		ClassLoader previous = generated.setContextClassLoader();
+		JobExecution execution;
+		try {
+			execution = jobOp.startJobAndWaitForResult(job.getId(), new Properties());
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+		assertWithMessage(job.getId() + " completed", BatchStatus.COMPLETED, execution.getBatchStatus());
+		return execution;
+	}
+
+	/*
+	 * Runs the job once, checking the step order and, unless it's null, the job exit status.
+	 */
+	private long runTimed(GeneratedJob job, String exitStatus) throws Exception {
+		JobExecution execution = run(job);
+		verifyStepOrder(job, execution);
+		if (exitStatus != null) {
+			assertWithMessage(job.getId() + " exit status", exitStatus, execution.getExitStatus());
+		}
+		return elapsed(execution);
+	}
+
+	/*
+	 * Runs the job repeats times and returns the median elapsed time
+	 */
+	private long medianElapsed(GeneratedJob job, String exitStatus) throws Exception {
+		long[] times = new long[repeats];
+		for (int i = 0; i < repeats; i++) {
+			times[i] = runTimed(job, exitStatus);
+		}
+		Arrays.sort(times);
+		return times[repeats / 2];
+	}
+
+	/*
+	 * Checks that every step ran once and completed, and that the steps of each of the job's ordered
+	 * sequences were started in that order.  Step execution ids are handed out as the steps start.
+	 */
+	private void verifyStepOrder(GeneratedJob job, JobExecution execution) throws Exception {
+		List<StepExecution> stepExecutions = new ArrayList<StepExecution>(jobOp.getStepExecutions(execution.getExecutionId()));
+		assertWithMessage(job.getId() + " step executions", job.getStepCount(), stepExecutions.size());
+
+		Collections.sort(stepExecutions, new Comparator<StepExecution>() {
+			@Override
+			public int compare(StepExecution step1, StepExecution step2) {
+				return Long.valueOf(step1.getStepExecutionId()).compareTo(step2.getStepExecutionId());
+			}
+		});
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		for (int i = 0; i < stepExecutions.size(); i++) {
+			StepExecution stepExecution = stepExecutions.get(i);
+			assertWithMessage(stepExecution.getStepName() + " completed", BatchStatus.COMPLETED, stepExecution.getBatchStatus());
+			assertWithMessage(stepExecution.getStepName() + " ran once", null, positions.put(stepExecution.getStepName(), i));
+		}
+
+		for (List<String> sequence : job.getOrderedSequences()) {
+			int last = -1;
+			for (String stepName : sequence) {
+				Integer position = positions.get(stepName);
+				assertWithMessage(stepName + " ran", true, position != null);
+				assertWithMessage(stepName + " ran after the steps before it in " + sequence.get(0) + " ... " + sequence.get(sequence.size() - 1),
+						true, position > last);
+				last = position;
+			}
+		}
+	}
+
+	/*
+	 * Records the times and checks the ratio; unless strict, a ratio over the factor is only reported as a known issue
+	 */
+	private void verifyLinear(String shape, String unit, int[] sizes, long[] elapsed, boolean strict) {
+		double smallest = (double) elapsed[0] / sizes[0];
+		double largest = (double) elapsed[sizes.length - 1] / sizes[sizes.length - 1];
+
+		StringBuilder buf = new StringBuilder(shape + ", median of " + repeats + " runs:");
+		for (int i = 0; i < sizes.length; i++) {
+			buf.append(String.format(" %d %s in %dms (%.3fms each);", sizes[i], unit, elapsed[i], (double) elapsed[i] / sizes[i]));
+		}
+		buf.append(String.format(" largest/smallest per %s %.2f", unit.substring(0, unit.length() - 1), largest / smallest));
+		String result = buf.toString();
+		addResult(result);
+
+		String check = shape + ": time per " + unit.substring(0, unit.length() - 1) + " at " + sizes[sizes.length - 1]
+				+ " is at most " + linearityFactor + " times that at " + sizes[0];
+		if (!strict && largest > linearityFactor * smallest) {
+			addResult(String.format("KNOWN ISSUE: %s failed, ratio %.2f", check, largest / smallest));
+			return;
+		}
+		assertWithMessage(check, true, largest <= linearityFactor * smallest);
+	}
+
+	private static long elapsed(JobExecution execution) {
+		return execution.getEndTime().getTime() - execution.getStartTime().getTime();
+	}
+
+	private static String join(List<String> stepNames) {
+		StringBuilder buf = new StringBuilder();
+		for (String stepName : stepNames) {
+			if (buf.length() > 0) {
+				buf.append(", ");
+			}
+			buf.append(stepName);
+		}
+		return buf.toString();
+	}
+}
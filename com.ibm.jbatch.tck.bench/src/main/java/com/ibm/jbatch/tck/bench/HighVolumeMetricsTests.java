@@ -0,0 +1,261 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.MetricsProbe;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+
+/**
+ * High-volume variants of MetricsTests: runs bench.metrics.items items (default 1000000) through
+ * highVolumeItemReader and highVolumeItemProcessor, which periodically skip reads, skip processing and
+ * filter items, and checks that
+ * <ul>
+ * <li>the step metrics, from JobOperator and from StepContext.getMetrics() at the end of the step, are exact</li>
+ * <li>every StepContext.getMetrics() called from metricsProbeListener during the step is consistent</li>
+ * <li>the median cost of StepContext.getMetrics() doesn't grow with the number of items, or with the
+ * number of partitions calling it at once on the metrics of the same step</li>
+ * </ul>
+ *
+ * Each cost is the median over bench.metrics.repeats runs (default 3) of the median of every call in a run.
+ */
+public class HighVolumeMetricsTests extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_high_volume_metrics";
+	private static final String PARTITIONED_JOB_NAME = "bench_high_volume_metrics_partitioned";
+
+	private static final int ITEM_COUNT = 100;
+	private static final int READ_SKIP_INTERVAL = 97;
+	private static final int PROCESS_SKIP_INTERVAL = 89;
+	private static final int FILTER_INTERVAL = 10;
+	private static final int PARTITIONS = 8;
+
+	private int items;
+	private int repeats;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		items = Integer.parseInt(System.getProperty("bench.metrics.items", "1000000"));
+		repeats = Math.max(Integer.parseInt(System.getProperty("bench.metrics.repeats", "3")), 1);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "High volume metrics results";
+	}
+
+	/**
+	 * With skips, READ_COUNT and FILTER_COUNT depend on whether the runtime counts the items skipped (the
+	 * specification doesn't say; the reference implementation does), so those two are only checked in the
+	 * run without skips.  Every other metric is checked exactly in both runs.
+	 */
+	@Test
+	public void testHighVolumeMetricsAreExact() throws Exception {
+		checkExactMetrics(jobParameters(items, 1000));
+		checkExactMetrics(jobParametersWithoutSkips(items, 1000));
+	}
+
+	private void checkExactMetrics(Properties jobParams) throws Exception {
+		Reporter.log("Run " + JOB_NAME + " with " + jobParams + "<p>");
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		Map<Metric.MetricType, Long> expected = expectedMetrics(jobParams, 1);
+		StepExecution step = getStepExecution(execution);
+		checkMetrics("StepExecution", expected, toMap(step.getMetrics()));
+
+		Properties summary = ThroughputRecorder.parseSummary(step.getExitStatus());
+		Reporter.log("Step exit status = " + step.getExitStatus() + "<p>");
+		Map<Metric.MetricType, Long> fromStepContext = new EnumMap<Metric.MetricType, Long>(Metric.MetricType.class);
+		for (Metric.MetricType type : expected.keySet()) {
+			String value = summary.getProperty(type.name());
+			fromStepContext.put(type, value == null ? null : Long.valueOf(value));
+		}
+		checkMetrics("StepContext", expected, fromStepContext);
+		assertWithMessage("Inconsistent StepContext.getMetrics() results", "0", summary.getProperty(MetricsProbe.INCONSISTENT));
+	}
+
+	/**
+	 * Calls getMetrics() after every read, and compares the median cost with a hundredth of the items to that with all of them.
+	 */
+	@Test
+	public void testGetMetricsCostIsBounded() throws Exception {
+		int fewItems = Math.max(items / 100, 1000);
+
+		// Warm up the JIT
+		probeCost(JOB_NAME, fewItems, null);
+
+		long fewP50 = medianProbeP50(JOB_NAME, fewItems, null);
+		long manyP50 = medianProbeP50(JOB_NAME, items, null);
+
+		long bound = 4 * fewP50 + 1000;
+		assertWithMessage("Median getMetrics() of " + manyP50 + "ns with " + items + " items is within " + bound + "ns", true, manyP50 <= bound);
+	}
+
+	/**
+	 * Splits the items over one and then several partitions, each calling getMetrics() on the top-level step's
+	 * StepContext after every read, and checks the metrics of the step add up, and that the median cost per call
+	 * of the slowest partition with several partitions stays within a small factor of that with one.
+	 */
+	@Test
+	public void testPartitionedMetricsUnderContention() throws Exception {
+		int partitionItems = items / PARTITIONS;
+
+		// Warm up the JIT
+		probeCost(PARTITIONED_JOB_NAME, partitionItems / 10, 1);
+
+		long oneP50 = medianProbeP50(PARTITIONED_JOB_NAME, partitionItems, 1);
+		long severalP50 = medianProbeP50(PARTITIONED_JOB_NAME, partitionItems, PARTITIONS);
+
+		long bound = 4 * oneP50 + 1000;
+		assertWithMessage("Median getMetrics() of " + severalP50 + "ns with " + PARTITIONS + " partitions is within " + bound + "ns",
+				true, severalP50 <= bound);
+	}
+
+	/*
+	 * Runs the job repeats times and returns the median of the median cost of getMetrics() in each run
+	 */
+	private long medianProbeP50(String jobName, int stepItems, Integer partitions) throws Exception {
+		long[] p50s = new long[repeats];
+		for (int i = 0; i < repeats; i++) {
+			p50s[i] = Long.parseLong(probeCost(jobName, stepItems, partitions).getProperty(MetricsProbe.PROBE_P50));
+		}
+		Arrays.sort(p50s);
+		return p50s[repeats / 2];
+	}
+
+	/*
+	 * Runs the job with getMetrics() probed after every read, checks the metrics and
+	 * returns the probe summary.
+	 */
+	private Properties probeCost(String jobName, int stepItems, Integer partitions) throws Exception {
+		Properties jobParams = jobParameters(stepItems, 1);
+		if (partitions != null) {
+			jobParams.setProperty("numPartitionsProp", String.valueOf(partitions));
+		}
+		JobExecution execution = jobOp.startJobAndWaitForResult(jobName, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		StepExecution step = getStepExecution(execution);
+		checkMetrics("StepExecution", expectedMetrics(jobParams, partitions == null ? 1 : partitions), toMap(step.getMetrics()));
+
+		String result = "items=" + stepItems + (partitions == null ? "" : " partitions=" + partitions) + " " + step.getExitStatus();
+		addResult(result);
+		Properties summary = ThroughputRecorder.parseSummary(step.getExitStatus());
+		assertWithMessage("Inconsistent StepContext.getMetrics() results", "0", summary.getProperty(MetricsProbe.INCONSISTENT));
+		return summary;
+	}
+
+	private static Properties jobParameters(int stepItems, int probeInterval) {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("items", String.valueOf(stepItems));
+		jobParams.setProperty("item.count", String.valueOf(ITEM_COUNT));
+		jobParams.setProperty("read.skip.interval", String.valueOf(READ_SKIP_INTERVAL));
+		jobParams.setProperty("process.skip.interval", String.valueOf(PROCESS_SKIP_INTERVAL));
+		jobParams.setProperty("filter.interval", String.valueOf(FILTER_INTERVAL));
+		jobParams.setProperty("probe.interval", String.valueOf(probeInterval));
+		return jobParams;
+	}
+
+	private static Properties jobParametersWithoutSkips(int stepItems, int probeInterval) {
+		Properties jobParams = jobParameters(stepItems, probeInterval);
+		jobParams.setProperty("read.skip.interval", "0");
+		jobParams.setProperty("process.skip.interval", "0");
+		return jobParams;
+	}
+
+	/*
+	 * Follows highVolumeItemReader and highVolumeItemProcessor: a record is skipped on reading, else skipped
+	 * on processing, else filtered, else written.  READ_COUNT and FILTER_COUNT are left out if anything is
+	 * skipped (see testHighVolumeMetricsAreExact); COMMIT_COUNT is always checked.
+	 */
+	private static Map<Metric.MetricType, Long> expectedMetrics(Properties jobParams, int partitions) {
+		int stepItems = Integer.parseInt(jobParams.getProperty("items"));
+		int itemCount = Integer.parseInt(jobParams.getProperty("item.count"));
+		int readSkipInterval = Integer.parseInt(jobParams.getProperty("read.skip.interval"));
+		int processSkipInterval = Integer.parseInt(jobParams.getProperty("process.skip.interval"));
+		int filterInterval = Integer.parseInt(jobParams.getProperty("filter.interval"));
+
+		long readSkips = 0, reads = 0, processSkips = 0, filters = 0, writes = 0;
+		for (int record = 1; record <= stepItems; record++) {
+			if (readSkipInterval > 0 && record % readSkipInterval == 0) {
+				readSkips++;
+				continue;
+			}
+			reads++;
+			if (processSkipInterval > 0 && record % processSkipInterval == 0) {
+				processSkips++;
+			} else if (filterInterval > 0 && record % filterInterval == 0) {
+				filters++;
+			} else {
+				writes++;
+			}
+		}
+
+		Map<Metric.MetricType, Long> expected = new EnumMap<Metric.MetricType, Long>(Metric.MetricType.class);
+		if (readSkips + processSkips == 0) {
+			expected.put(Metric.MetricType.READ_COUNT, reads * partitions);
+			expected.put(Metric.MetricType.FILTER_COUNT, filters * partitions);
+		}
+		expected.put(Metric.MetricType.READ_SKIP_COUNT, readSkips * partitions);
+		expected.put(Metric.MetricType.PROCESS_SKIP_COUNT, processSkips * partitions);
+		expected.put(Metric.MetricType.WRITE_COUNT, writes * partitions);
+		expected.put(Metric.MetricType.WRITE_SKIP_COUNT, 0L);
+		expected.put(Metric.MetricType.ROLLBACK_COUNT, 0L);
+		// A chunk is committed for every item.count records read, counting those skipped on reading as the reference
+		// implementation's READ_COUNT does, and then once more for the chunk that reads the end of the data, even if
+		// that chunk is empty
+		expected.put(Metric.MetricType.COMMIT_COUNT, (stepItems / itemCount + 1L) * partitions);
+		return expected;
+	}
+
+	private static void checkMetrics(String source, Map<Metric.MetricType, Long> expected, Map<Metric.MetricType, Long> actual) {
+		for (Map.Entry<Metric.MetricType, Long> entry : expected.entrySet()) {
+			assertWithMessage(source + " " + entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	private static StepExecution getStepExecution(JobExecution execution) throws Exception {
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of StepExecutions", 1, steps.size());
+		return steps.get(0);
+	}
+
+	private static Map<Metric.MetricType, Long> toMap(Metric[] metrics) {
+		Map<Metric.MetricType, Long> values = new EnumMap<Metric.MetricType, Long>(Metric.MetricType.class);
+		for (Metric metric : metrics) {
+			values.put(metric.getType(), metric.getValue());
+		}
+		return values;
+	}
+}
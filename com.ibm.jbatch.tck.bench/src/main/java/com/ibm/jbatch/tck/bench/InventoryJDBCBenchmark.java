@@ -0,0 +1,155 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.testng.Reporter;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.chunkartifacts.ConnectionHelper;
+
+/**
+ * Runs the inventory artifacts of the EE transaction tests (bench_inventory.xml) with each of their ways of using
+ * JDBC, checks that every way leaves the same inventory and orders behind, and reports how long the chunk step took.
+ * <ul>
+ * <li>writer batch.updates=false (the default) against batch.updates=true, i.e. one executeUpdate per order
+ * against one JDBC batch per chunk</li>
+ * <li>inventoryReader against inventoryChunkReader, i.e. a SELECT and an UPDATE of the inventory per order
+ * against one of each per chunk</li>
+ * </ul>
+ * This needs the same jdbc/orderDB data source as the EE transaction tests; the tests are skipped if it can't be
+ * looked up.
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.inventory.quantity - initial inventory, and so the number of orders written, default 1000</li>
+ * <li>bench.inventory.commit.intervals - comma-separated item-counts of the chunk step, default "1,10,100"</li>
+ * <li>bench.inventory.repeats - runs of each variant per item-count, the fastest of which is reported, default 3</li>
+ * </ul>
+ */
+public class InventoryJDBCBenchmark extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_inventory";
+
+	private int quantity;
+	private int repeats;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		try {
+			new InitialContext().lookup(ConnectionHelper.jndiName);
+		} catch (NamingException e) {
+			throw new SkipException(ConnectionHelper.jndiName + " isn't available: " + e);
+		}
+		quantity = Integer.parseInt(System.getProperty("bench.inventory.quantity", "1000"));
+		repeats = Integer.parseInt(System.getProperty("bench.inventory.repeats", "3"));
+	}
+
+	@DataProvider(name = "commitIntervals")
+	public Object[][] commitIntervals() {
+		List<Object[]> configs = new ArrayList<Object[]>();
+		for (int commitInterval : intValues("bench.inventory.commit.intervals", "1,10,100")) {
+			configs.add(new Object[] { commitInterval });
+		}
+		return configs.toArray(new Object[configs.size()][]);
+	}
+
+	@Test(dataProvider = "commitIntervals")
+	public void testWriterBatchUpdates(int commitInterval) throws Exception {
+		Reporter.log("Write " + quantity + " orders with commit.interval=" + commitInterval + ", without and with batch.updates<p>");
+
+		Properties unbatched = jobParameters(commitInterval);
+		unbatched.setProperty("batch.updates", "false");
+		Properties batched = jobParameters(commitInterval);
+		batched.setProperty("batch.updates", "true");
+
+		long unbatchedMillis = Long.MAX_VALUE;
+		long batchedMillis = Long.MAX_VALUE;
+		for (int i = 0; i < repeats; i++) {
+			unbatchedMillis = Math.min(unbatchedMillis, runJob(unbatched));
+			batchedMillis = Math.min(batchedMillis, runJob(batched));
+		}
+
+		addResult(String.format("writer commit.interval=%d orders=%d: executeUpdate %dms, executeBatch %dms",
+				commitInterval, quantity, unbatchedMillis, batchedMillis));
+	}
+
+	@Test(dataProvider = "commitIntervals")
+	public void testChunkReader(int commitInterval) throws Exception {
+		Reporter.log("Read " + quantity + " orders with commit.interval=" + commitInterval + ", with inventoryReader and inventoryChunkReader<p>");
+
+		Properties perItem = jobParameters(commitInterval);
+		perItem.setProperty("inventory.reader", "inventoryReader");
+		Properties perChunk = jobParameters(commitInterval);
+		perChunk.setProperty("inventory.reader", "inventoryChunkReader");
+
+		long perItemMillis = Long.MAX_VALUE;
+		long perChunkMillis = Long.MAX_VALUE;
+		for (int i = 0; i < repeats; i++) {
+			perItemMillis = Math.min(perItemMillis, runJob(perItem));
+			perChunkMillis = Math.min(perChunkMillis, runJob(perChunk));
+		}
+
+		addResult(String.format("reader commit.interval=%d orders=%d: inventoryReader %dms, inventoryChunkReader %dms",
+				commitInterval, quantity, perItemMillis, perChunkMillis));
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Inventory JDBC results";
+	}
+
+	private Properties jobParameters(int commitInterval) {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("javax.transaction.global.timeout", "300");
+		jobParams.setProperty("commit.interval", String.valueOf(commitInterval));
+		jobParams.setProperty("init.inventory.quantity", String.valueOf(quantity));
+		return jobParams;
+	}
+
+	/*
+	 * Runs the job, checks that it used up the inventory and wrote an order for each item, and returns
+	 * how long the chunk step took in ms.
+	 */
+	private long runJob(Properties jobParams) throws Exception {
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+		assertWithMessage("Inventory and orders", "Inventory=0 InitialCheckpoint=null OrderCount=" + quantity,
+				execution.getExitStatus());
+
+		for (StepExecution step : jobOp.getStepExecutions(execution.getExecutionId())) {
+			if (step.getStepName().equals("step2")) {
+				return step.getEndTime().getTime() - step.getStartTime().getTime();
+			}
+		}
+		throw new IllegalStateException("No step2 in execution " + execution.getExecutionId());
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.batch.operations.JobExecutionAlreadyCompleteException;
+import javax.batch.operations.JobStartException;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
+import com.ibm.jbatch.tck.spi.JobExecutionTimeoutException;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
+
+/**
+ * Checks JobOperatorBridge.startJobAsync() and restartJobAsync(), which the benchmarks use to start
+ * jobs without blocking on each one: several outstanding waits, a restart, the timeout, cancelling a
+ * wait, and the exceptions start() and restart() throw.
+ *
+ * The stop and timeout tests wait for job_batchlet_longrunning to signal it's running, which only
+ * works if the jobs run in this JVM.
+ */
+public class JobOperatorBridgeAsyncTests {
+
+	private final static Logger logger = Logger.getLogger(JobOperatorBridgeAsyncTests.class.getName());
+
+	private static final String LONG_RUNNING_JOB = "job_batchlet_longrunning";
+	private static final long SHORT_TIMEOUT = 500;
+	private static final long RUNNING_TIMEOUT = 60000;
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+	}
+
+	@Test
+	public void testStartJobAsync() throws Exception {
+		Reporter.log("Start job_batchlet_1step 3 times before waiting for any of them<p>");
+
+		List<Future<TCKJobExecutionWrapper>> futures = new ArrayList<Future<TCKJobExecutionWrapper>>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(jobOp.startJobAsync("job_batchlet_1step", new Properties()));
+		}
+
+		Set<Long> executionIds = new HashSet<Long>();
+		for (Future<TCKJobExecutionWrapper> future : futures) {
+			JobExecution execution = future.get();
+			Reporter.log("Execution " + execution.getExecutionId() + " ended " + execution.getBatchStatus() + "<p>");
+			assertWithMessage("Future is done", true, future.isDone());
+			assertWithMessage("Batch status", BatchStatus.COMPLETED, execution.getBatchStatus());
+			assertWithMessage("Exit status is set", true, execution.getExitStatus() != null);
+			executionIds.add(execution.getExecutionId());
+		}
+		assertWithMessage("Distinct executions", 3, executionIds.size());
+	}
+
+	@Test
+	public void testRestartJobAsync() throws Exception {
+		Reporter.log("Start " + LONG_RUNNING_JOB + " to run until stopped, stop it, then restart it to run to completion<p>");
+
+		JobExecution stopped = startAndStop();
+		assertWithMessage("Batch status after stop", BatchStatus.STOPPED, stopped.getBatchStatus());
+
+		Properties restartParameters = new Properties();
+		restartParameters.setProperty("run.indefinitely", "false");
+		JobExecution restarted = jobOp.restartJobAsync(stopped.getExecutionId(), restartParameters).get();
+		Reporter.log("Restart execution " + restarted.getExecutionId() + " ended " + restarted.getBatchStatus() + "<p>");
+
+		assertWithMessage("Restart is a new execution", true, restarted.getExecutionId() != stopped.getExecutionId());
+		assertWithMessage("Same job instance", jobOp.getJobInstance(stopped.getExecutionId()).getInstanceId(),
+				jobOp.getJobInstance(restarted.getExecutionId()).getInstanceId());
+		assertWithMessage("Batch status after restart", BatchStatus.COMPLETED, restarted.getBatchStatus());
+	}
+
+	@Test
+	public void testAsyncTimeout() throws Exception {
+		Reporter.log("Start " + LONG_RUNNING_JOB + " to run until stopped, with a " + SHORT_TIMEOUT + " ms waiter timeout<p>");
+
+		JobOperatorBridge shortTimeoutJobOp = newBridge(SHORT_TIMEOUT);
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("run.indefinitely", "true");
+		Future<TCKJobExecutionWrapper> future = shortTimeoutJobOp.startJobAsync(LONG_RUNNING_JOB, jobParameters);
+
+		try {
+			future.get(RUNNING_TIMEOUT, TimeUnit.MILLISECONDS);
+			assertWithMessage("Future failed with a timeout", true, false);
+		} catch (ExecutionException e) {
+			Reporter.log("get() threw " + e + "<p>");
+			assertWithMessage("Cause is a JobExecutionTimeoutException", true, e.getCause() instanceof JobExecutionTimeoutException);
+		} finally {
+			stopRunning();
+		}
+		assertWithMessage("Future is done", true, future.isDone());
+		assertWithMessage("Future isn't cancelled", false, future.isCancelled());
+	}
+
+	@Test
+	public void testCancelAsyncWait() throws Exception {
+		Reporter.log("Start " + LONG_RUNNING_JOB + " to run until stopped, then cancel the wait<p>");
+
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("run.indefinitely", "true");
+		Future<TCKJobExecutionWrapper> future = jobOp.startJobAsync(LONG_RUNNING_JOB, jobParameters);
+		try {
+			assertWithMessage("cancel() succeeds on an outstanding wait", true, future.cancel(false));
+			assertWithMessage("Future is cancelled", true, future.isCancelled());
+			assertWithMessage("Future is done", true, future.isDone());
+			assertWithMessage("cancel() fails once done", false, future.cancel(false));
+			try {
+				future.get();
+				assertWithMessage("get() threw a CancellationException", true, false);
+			} catch (CancellationException e) {
+				Reporter.log("get() threw " + e + "<p>");
+			}
+		} finally {
+			stopRunning();
+		}
+	}
+
+	@Test
+	public void testStartJobAsyncNoSuchJob() throws Exception {
+		Reporter.log("Start a job with no JSL document<p>");
+		try {
+			jobOp.startJobAsync("no_such_job_xml", new Properties());
+			assertWithMessage("startJobAsync() threw a JobStartException", true, false);
+		} catch (JobStartException e) {
+			Reporter.log("startJobAsync() threw " + e + "<p>");
+		}
+	}
+
+	@Test
+	public void testRestartJobAsyncCompleted() throws Exception {
+		Reporter.log("Restart a completed execution of job_batchlet_1step<p>");
+		JobExecution completed = jobOp.startJobAndWaitForResult("job_batchlet_1step", new Properties());
+		assertWithMessage("Batch status", BatchStatus.COMPLETED, completed.getBatchStatus());
+		try {
+			jobOp.restartJobAsync(completed.getExecutionId(), new Properties());
+			assertWithMessage("restartJobAsync() threw a JobExecutionAlreadyCompleteException", true, false);
+		} catch (JobExecutionAlreadyCompleteException e) {
+			Reporter.log("restartJobAsync() threw " + e + "<p>");
+		}
+	}
+
+	private JobExecution startAndStop() throws Exception {
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("run.indefinitely", "true");
+		JobExecution execution = jobOp.startJobWithoutWaitingForResult(LONG_RUNNING_JOB, jobParameters);
+		assertWithMessage("Batchlet signaled running", true,
+				JobExecutionRunningSignals.await(execution.getExecutionId(), 1, RUNNING_TIMEOUT));
+		return jobOp.stopJobAndWaitForResult(execution);
+	}
+
+	/*
+	 * Stops any running executions of the long-running job, i.e. the one a test started.
+	 */
+	private void stopRunning() throws Exception {
+		for (long executionId : jobOp.getRunningExecutions(LONG_RUNNING_JOB)) {
+			JobExecution execution = jobOp.getJobExecution(executionId);
+			JobExecutionRunningSignals.await(executionId, 1, RUNNING_TIMEOUT);
+			logger.fine("Stopping execution " + executionId);
+			jobOp.stopJobAndWaitForResult(execution);
+		}
+	}
+
+	/*
+	 * The bridge reads the waiter timeout when it's created.
+	 */
+	private static JobOperatorBridge newBridge(long timeout) {
+		return BenchmarkBase.newJobOperator(timeout);
+	}
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.artifacts.perf.StartLatencyRecorder;
+import com.ibm.jbatch.tck.artifacts.perf.TrivialArtifact;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+
+/**
+ * Measures how long each of the TCK's own JSL documents takes to get from JobOperator.start() to the
+ * first call to one of its artifacts.
+ *
+ * Each document in the TCK's META-INF/batch-jobs is copied with every artifact ref replaced by
+ * {@link TrivialArtifact}, so the job does no work, and with any item-count, time-limit, skip-limit,
+ * retry-limit, threads or partitions attribute that's set from a job parameter removed (partitions
+ * is set to 2), since the jobs are started without parameters.  The copies are written to a temporary
+ * directory that's put on the thread context class loader while each job is started.
+ *
+ * For each document, these are reported:
+ * <ul>
+ * <li>parse - parsing the copy and validating it against jobXML_1_0.xsd, here in the test, as an estimate of
+ * the runtime's own JSL parse and validation</li>
+ * <li>start - the JobOperator.start() call</li>
+ * <li>toInstantiation - from start() being called to the first artifact being created, which includes the JSL
+ * parse and validation, creating the job instance and execution, and the dispatch to the job's thread</li>
+ * <li>dispatch - toInstantiation less start, that is from start() returning to the first artifact being created,
+ * which is mostly the hand-off to the job's thread (0 if the first artifact was created before start() returned)</li>
+ * <li>instantiation - from the first artifact being created to the first call to an artifact, which is mostly
+ * creating and injecting the job's first artifacts</li>
+ * <li>total - from start() being called to the first call to an artifact</li>
+ * </ul>
+ * along with whether the first call was made on the thread that called start().
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.start.iterations - starts measured per document, default 5, after bench.start.warmup (default 1) unmeasured ones</li>
+ * <li>bench.start.parse.iterations - times each copy is parsed and validated, default 20</li>
+ * <li>bench.start.jobs - comma-separated names of the documents to start, default all of them</li>
+ * </ul>
+ * The artifacts report to {@link StartLatencyRecorder}, which only works if the jobs run in this JVM.
+ */
+public class JobStartLatencyBenchmark {
+
+	private final static Logger logger = Logger.getLogger(JobStartLatencyBenchmark.class.getName());
+
+	private static final String COPY_PREFIX = "start_latency_";
+
+	private static final List<String> PARAMETER_ATTRIBUTES = Arrays.asList("item-count", "time-limit", "skip-limit", "retry-limit", "threads");
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	private final List<String> results = new ArrayList<String>();
+	private final TreeMap<String, Long> totalsByJob = new TreeMap<String, Long>();
+	private final LatencySamples allParses = new LatencySamples();
+	private final LatencySamples allStarts = new LatencySamples();
+	private final LatencySamples allToInstantiations = new LatencySamples();
+	private final LatencySamples allDispatches = new LatencySamples();
+	private final LatencySamples allInstantiations = new LatencySamples();
+	private final LatencySamples allTotals = new LatencySamples();
+	private final List<String> notInvoked = new ArrayList<String>();
+
+	private int iterations;
+	private int warmup;
+	private int parseIterations;
+	private List<String> jobXMLNames;
+	private JobXMLDirectory copies;
+	private Schema schema;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+		iterations = Integer.parseInt(System.getProperty("bench.start.iterations", "5"));
+		warmup = Integer.parseInt(System.getProperty("bench.start.warmup", "1"));
+		parseIterations = Integer.parseInt(System.getProperty("bench.start.parse.iterations", "20"));
+
+		String jobs = System.getProperty("bench.start.jobs");
+		if (jobs != null) {
+			jobXMLNames = Arrays.asList(jobs.split("\\s*,\\s*"));
+		} else {
+			jobXMLNames = JobXMLDirectory.listJobXMLNames("job_batchlet_1step");
+		}
+
+		URL xsd = Thread.currentThread().getContextClassLoader().getResource("xsd/jobXML_1_0.xsd");
+		if (xsd != null) {
+			schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsd);
+		} else {
+			logger.warning("xsd/jobXML_1_0.xsd isn't on the classpath, so the parse times don't include validation");
+		}
+
+		copies = new JobXMLDirectory("tck-start-latency");
+	}
+
+	@DataProvider(name = "jobXMLNames")
+	public Iterator<Object[]> jobXMLNames() {
+		List<Object[]> data = new ArrayList<Object[]>();
+		for (String jobXMLName : jobXMLNames) {
+			data.add(new Object[] { jobXMLName });
+		}
+		return data.iterator();
+	}
+
+	@Test(dataProvider = "jobXMLNames")
+	public void testStartLatency(String jobXMLName) throws Exception {
+		Document jsl = JobXMLDirectory.parseJobXML(jobXMLName);
+		if (jsl == null) {
+			Reporter.log(jobXMLName + " isn't a job, skipping it<p>");
+			logger.info(jobXMLName + " isn't a job, skipping it");
+			return;
+		}
+		replaceArtifacts(jsl);
+		String copyName = COPY_PREFIX + jobXMLName;
+		copies.write(copyName, jsl);
+
+		Reporter.log("Start " + jobXMLName + " " + iterations + " times with every ref replaced by trivialArtifact<p>");
+
+		LatencySamples parses = timeParse(jsl);
+		LatencySamples starts = new LatencySamples(iterations);
+		LatencySamples toInstantiations = new LatencySamples(iterations);
+		LatencySamples dispatches = new LatencySamples(iterations);
+		LatencySamples instantiations = new LatencySamples(iterations);
+		LatencySamples totals = new LatencySamples(iterations);
+		BatchStatus status = null;
+		boolean sameThread = false;
+
+		for (int i = -warmup; i < iterations; i++) {
+			String startingThread = Thread.currentThread().getName();
+			ClassLoader previous = copies.setContextClassLoader();
+			Future<? extends JobExecution> termination;
+			long called;
+			long returned;
+			try {
+				called = StartLatencyRecorder.arm();
+				termination = jobOp.startJobAsync(copyName, new Properties());
+				returned = System.nanoTime();
+			} finally {
+				Thread.currentThread().setContextClassLoader(previous);
+			}
+
+			JobExecution execution = termination.get();
+			StartLatencyRecorder.disarm();
+			status = execution.getBatchStatus();
+			assertWithMessage(jobXMLName + " execution " + execution.getExecutionId() + " ended", true,
+					status != BatchStatus.STARTING && status != BatchStatus.STARTED && status != BatchStatus.STOPPING);
+
+			long instantiated = StartLatencyRecorder.getFirstInstantiated();
+			long invoked = StartLatencyRecorder.getFirstInvoked();
+			if (i >= 0) {
+				starts.record(returned - called);
+				if (StartLatencyRecorder.isInstantiated() && StartLatencyRecorder.isInvoked()) {
+					toInstantiations.record(instantiated - called);
+					dispatches.record(Math.max(instantiated - returned, 0));
+					instantiations.record(invoked - instantiated);
+					totals.record(invoked - called);
+					sameThread = startingThread.equals(StartLatencyRecorder.getInvokingThread());
+				}
+			}
+		}
+
+		String result;
+		if (totals.getCount() == 0) {
+			notInvoked.add(jobXMLName + " (" + status + ")");
+			result = String.format("%s: no artifact called, ended %s; parse p50=%.2fms, start() p50=%.2fms",
+					jobXMLName, status, millis(parses.getPercentile(50)), millis(starts.getPercentile(50)));
+		} else {
+			result = String.format("%s: total p50=%.2fms max=%.2fms; parse p50=%.2fms, start() p50=%.2fms, "
+					+ "toInstantiation p50=%.2fms, dispatch p50=%.2fms, instantiation p50=%.2fms, %s thread, ended %s",
+					jobXMLName, millis(totals.getPercentile(50)), millis(totals.getMax()), millis(parses.getPercentile(50)),
+					millis(starts.getPercentile(50)), millis(toInstantiations.getPercentile(50)),
+					millis(dispatches.getPercentile(50)), millis(instantiations.getPercentile(50)), sameThread ? "starting" : "job", status);
+			totalsByJob.put(jobXMLName, totals.getPercentile(50));
+			allToInstantiations.record(toInstantiations.getPercentile(50));
+			allDispatches.record(dispatches.getPercentile(50));
+			allInstantiations.record(instantiations.getPercentile(50));
+			allTotals.record(totals.getPercentile(50));
+		}
+		allParses.record(parses.getPercentile(50));
+		allStarts.record(starts.getPercentile(50));
+
+		Reporter.log(result + "<p>");
+		logger.info(result);
+		results.add(result);
+	}
+
+	@AfterClass
+	public void report() {
+		if (copies != null) {
+			copies.delete();
+		}
+
+		StringBuilder buf = new StringBuilder("Job start latency results:");
+		for (String result : results) {
+			buf.append("\n  ").append(result);
+		}
+		buf.append(String.format("%nAcross the p50s of %d documents: total p50=%.2fms p90=%.2fms max=%.2fms; parse p50=%.2fms p90=%.2fms; "
+				+ "start() p50=%.2fms p90=%.2fms; toInstantiation p50=%.2fms p90=%.2fms; dispatch p50=%.2fms p90=%.2fms; instantiation p50=%.2fms p90=%.2fms",
+				allTotals.getCount(), millis(allTotals.getPercentile(50)), millis(allTotals.getPercentile(90)), millis(allTotals.getMax()),
+				millis(allParses.getPercentile(50)), millis(allParses.getPercentile(90)),
+				millis(allStarts.getPercentile(50)), millis(allStarts.getPercentile(90)),
+				millis(allToInstantiations.getPercentile(50)), millis(allToInstantiations.getPercentile(90)),
+				millis(allDispatches.getPercentile(50)), millis(allDispatches.getPercentile(90)),
+				millis(allInstantiations.getPercentile(50)), millis(allInstantiations.getPercentile(90))));
+
+		List<String> slowest = new ArrayList<String>(totalsByJob.keySet());
+		Collections.sort(slowest, new Comparator<String>() {
+			@Override
+			public int compare(String job1, String job2) {
+				return totalsByJob.get(job2).compareTo(totalsByJob.get(job1));
+			}
+		});
+		buf.append("\nSlowest to start:");
+		for (String job : slowest.subList(0, Math.min(5, slowest.size()))) {
+			buf.append(String.format(" %s (%.2fms)", job, millis(totalsByJob.get(job))));
+		}
+		if (!notInvoked.isEmpty()) {
+			buf.append("\nNo artifact called: ").append(notInvoked);
+		}
+		logger.info(buf.toString());
+	}
+
+	/*
+	 * Points every ref at trivialArtifact, and drops the attributes that the TCK tests set from job parameters.
+	 */
+	private static void replaceArtifacts(Document jsl) {
+		NodeList elements = jsl.getElementsByTagNameNS("*", "*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			if (element.hasAttribute("ref")) {
+				element.setAttribute("ref", "trivialArtifact");
+			}
+			List<Attr> parameterized = new ArrayList<Attr>();
+			for (int a = 0; a < element.getAttributes().getLength(); a++) {
+				Attr attribute = (Attr) element.getAttributes().item(a);
+				if (attribute.getValue().contains("#{") && (PARAMETER_ATTRIBUTES.contains(attribute.getName()) || "partitions".equals(attribute.getName()))) {
+					parameterized.add(attribute);
+				}
+			}
+			for (Attr attribute : parameterized) {
+				if ("partitions".equals(attribute.getName())) {
+					attribute.setValue("2");
+				} else {
+					element.removeAttributeNode(attribute);
+				}
+			}
+		}
+	}
+
+	private LatencySamples timeParse(Document jsl) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(jsl), new StreamResult(bytes));
+		byte[] document = bytes.toByteArray();
+
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		LatencySamples parses = new LatencySamples(parseIterations);
+		for (int i = 0; i < parseIterations; i++) {
+			long start = System.nanoTime();
+			Document parsed = factory.newDocumentBuilder().parse(new ByteArrayInputStream(document));
+			if (schema != null) {
+				schema.newValidator().validate(new DOMSource(parsed));
+			}
+			parses.record(System.nanoTime() - start);
+		}
+		return parses;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
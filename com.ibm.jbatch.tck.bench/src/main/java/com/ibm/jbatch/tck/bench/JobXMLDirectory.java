@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A temporary META-INF/batch-jobs directory for JSL documents written by a test, and a class loader
+ * that adds it to the classpath.  While that class loader is the thread context class loader,
+ * JobOperator.start() can load the documents the same way as the ones packaged with the TCK.
+ *
+ * The class loader delegates to its parent first, so the documents need names of their own.
+ */
+class JobXMLDirectory {
+
+	static final String BATCH_JOBS = "META-INF/batch-jobs/";
+
+	private final File root;
+	private final File batchJobs;
+	private final URLClassLoader classLoader;
+
+	JobXMLDirectory(String prefix) throws IOException {
+		root = File.createTempFile(prefix, "");
+		if (!root.delete() || !root.mkdir()) {
+			throw new IOException("Couldn't create directory " + root);
+		}
+		batchJobs = new File(root, BATCH_JOBS);
+		if (!batchJobs.mkdirs()) {
+			throw new IOException("Couldn't create directory " + batchJobs);
+		}
+		classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, Thread.currentThread().getContextClassLoader());
+	}
+
+	void write(String jobXMLName, Document jsl) throws Exception {
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(jsl),
+				new StreamResult(new File(batchJobs, jobXMLName + ".xml")));
+	}
+
+	void write(String jobXMLName, String jsl) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(batchJobs, jobXMLName + ".xml")), "UTF-8");
+		try {
+			writer.write(jsl);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Makes this directory's class loader the thread context class loader.
+	 *
+	 * @return the previous thread context class loader, to restore afterwards
+	 */
+	ClassLoader setContextClassLoader() {
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(classLoader);
+		return previous;
+	}
+
+	void delete() {
+		File[] files = batchJobs.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		batchJobs.delete();
+		batchJobs.getParentFile().delete();
+		root.delete();
+	}
+
+	/**
+	 * @return the names (without .xml) of the JSL documents in the META-INF/batch-jobs directory that
+	 * holds the given one, found through the thread context class loader, in a directory or a jar
+	 */
+	static List<String> listJobXMLNames(String knownJobXMLName) throws IOException {
+		URL known = Thread.currentThread().getContextClassLoader().getResource(BATCH_JOBS + knownJobXMLName + ".xml");
+		if (known == null) {
+			throw new IOException("Couldn't find " + BATCH_JOBS + knownJobXMLName + ".xml");
+		}
+
+		List<String> names = new ArrayList<String>();
+		if ("jar".equals(known.getProtocol())) {
+			JarURLConnection connection = (JarURLConnection) known.openConnection();
+			Enumeration<JarEntry> entries = connection.getJarFile().entries();
+			while (entries.hasMoreElements()) {
+				String entryName = entries.nextElement().getName();
+				if (entryName.startsWith(BATCH_JOBS) && entryName.endsWith(".xml") && entryName.indexOf('/', BATCH_JOBS.length()) < 0) {
+					names.add(entryName.substring(BATCH_JOBS.length(), entryName.length() - ".xml".length()));
+				}
+			}
+		} else {
+			File[] files;
+			try {
+				files = new File(known.toURI()).getParentFile().listFiles();
+			} catch (Exception e) {
+				throw new IOException("Couldn't list the directory of " + known, e);
+			}
+			for (File file : files) {
+				if (file.getName().endsWith(".xml")) {
+					names.add(file.getName().substring(0, file.getName().length() - ".xml".length()));
+				}
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * @return the JSL document, or null if it isn't a job (some files in batch-jobs only hold a comment)
+	 */
+	static Document parseJobXML(String jobXMLName) throws Exception {
+		InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(BATCH_JOBS + jobXMLName + ".xml");
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			// Rethrows parse errors without also printing them
+			builder.setErrorHandler(new DefaultHandler());
+			Document jsl = builder.parse(in);
+			return "job".equals(jsl.getDocumentElement().getLocalName()) ? jsl : null;
+		} catch (SAXParseException e) {
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import org.testng.Reporter;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.metrics.FileMetricsSink;
+import com.ibm.jbatch.tck.metrics.TCKMetrics;
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+import com.ibm.jbatch.tck.utils.ServiceGateway;
+
+/**
+ * Checks that the TCKMetricsSink SPI is loaded through ServiceGateway, that FileMetricsSink writes the
+ * events of each execution in both formats and is disabled without tck.metrics.dir, and, when the suite is run with tck.metrics.dir set, that
+ * metricsSinkListener (bench_metrics_sink.xml) reports every chunk of a step started without waiting.
+ */
+public class MetricsSinkTests {
+
+	private static final String JOB_NAME = "bench_metrics_sink";
+
+	private static final int ITEMS = 100;
+	private static final int ITEM_COUNT = 10;
+
+	private static final long TEST_EXECUTION_ID = -1;
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+	}
+
+	@Test
+	public void testServiceGatewayLoadsFileMetricsSink() throws Exception {
+		String previous = setProperty(ServiceGateway.METRICS_SINK_PROP, FileMetricsSink.class.getName());
+		try {
+			TCKMetricsSink sink = ServiceGateway.getMetricsSinkService();
+			Reporter.log("Loaded " + sink + "<p>");
+			assertWithMessage("Loaded FileMetricsSink", true, sink instanceof FileMetricsSink);
+		} finally {
+			setProperty(ServiceGateway.METRICS_SINK_PROP, previous);
+		}
+	}
+
+	@Test
+	public void testServiceGatewayRejectsUnlistedMetricsSink() throws Exception {
+		String previous = setProperty(ServiceGateway.METRICS_SINK_PROP, "com.example.UnlistedMetricsSink");
+		try {
+			ServiceGateway.getMetricsSinkService();
+			assertWithMessage("IllegalStateException thrown for an unlisted sink", true, false);
+		} catch (IllegalStateException e) {
+			Reporter.log("Caught expected exception: " + e.getMessage() + "<p>");
+		} finally {
+			setProperty(ServiceGateway.METRICS_SINK_PROP, previous);
+		}
+	}
+
+	@Test
+	public void testFileMetricsSinkCsv() throws Exception {
+		List<String> lines = writeEvents("csv", ".csv");
+
+		assertWithMessage("Lines written", 7, lines.size());
+		assertWithMessage("Header", "test,job,executionId,step,metric,chunk,nanos", lines.get(0));
+		String test = getClass().getName() + ".testFileMetricsSinkCsv";
+		assertWithMessage("jobStart row", test + ",testJob," + TEST_EXECUTION_ID + ",,jobStart,0,100", lines.get(1));
+		assertWithMessage("firstRead row", test + ",testJob," + TEST_EXECUTION_ID + ",\"step,1\",firstRead,0,200", lines.get(2));
+		assertWithMessage("read row", test + ",testJob," + TEST_EXECUTION_ID + ",\"step,1\",read,1,300", lines.get(3));
+		assertWithMessage("checkpoint row", test + ",testJob," + TEST_EXECUTION_ID + ",\"step,1\",checkpoint,1,600", lines.get(6));
+	}
+
+	@Test
+	public void testFileMetricsSinkJson() throws Exception {
+		List<String> lines = writeEvents("json", ".jsonl");
+
+		assertWithMessage("Lines written", 6, lines.size());
+		String test = getClass().getName() + ".testFileMetricsSinkJson";
+		assertWithMessage("jobStart line", "{\"test\":\"" + test + "\",\"job\":\"testJob\",\"executionId\":" + TEST_EXECUTION_ID
+				+ ",\"step\":null,\"metric\":\"jobStart\",\"chunk\":0,\"nanos\":100}", lines.get(0));
+		assertWithMessage("write line", "{\"test\":\"" + test + "\",\"job\":\"testJob\",\"executionId\":" + TEST_EXECUTION_ID
+				+ ",\"step\":\"step,1\",\"metric\":\"write\",\"chunk\":1,\"nanos\":500}", lines.get(4));
+	}
+
+	@Test
+	public void testFileMetricsSinkWithoutDirIsDisabled() throws Exception {
+		FileMetricsSink sink;
+		String previousDir = setProperty(FileMetricsSink.DIR_PROP, null);
+		try {
+			sink = new FileMetricsSink();
+		} finally {
+			setProperty(FileMetricsSink.DIR_PROP, previousDir);
+		}
+		assertWithMessage("FileMetricsSink without " + FileMetricsSink.DIR_PROP + " is enabled", false, sink.isEnabled());
+	}
+
+	@Test
+	public void testListenerReportsToSink() throws Exception {
+		TCKMetricsSink sink = TCKMetrics.getSink();
+		String dirName = System.getProperty(FileMetricsSink.DIR_PROP);
+		if (!(sink instanceof FileMetricsSink) || dirName == null || dirName.trim().isEmpty()) {
+			throw new SkipException("Needs FileMetricsSink with " + FileMetricsSink.DIR_PROP + " set");
+		}
+		boolean json = "json".equalsIgnoreCase(System.getProperty(FileMetricsSink.FORMAT_PROP));
+		File file = new File(dirName.trim(), getClass().getName() + ".testListenerReportsToSink" + (json ? ".jsonl" : ".csv"));
+
+		Properties jobParams = new Properties();
+		jobParams.setProperty("app.arraysize", String.valueOf(ITEMS));
+		jobParams.setProperty("item.count", String.valueOf(ITEM_COUNT));
+		JobExecution execution = jobOp.startJobWithoutWaitingForResult(JOB_NAME, jobParams);
+		long executionId = execution.getExecutionId();
+
+		// The events are written when the bridge sees the execution end, without anyone waiting for it
+		String idField = json ? "\"executionId\":" + executionId + "," : "," + executionId + ",";
+		List<String> rows = new ArrayList<String>();
+		long deadline = System.currentTimeMillis() + Long.getLong("tck.execution.waiter.timeout", 60000);
+		while (rows.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			for (String line : readLines(file)) {
+				if (line.contains(idField)) {
+					rows.add(line);
+				}
+			}
+		}
+		assertWithMessage("Execution ended", BatchStatus.COMPLETED, jobOp.getJobExecution(executionId).getBatchStatus());
+		Reporter.log("Rows for execution " + executionId + ": " + rows + "<p>");
+
+		assertWithMessage("jobStart rows", 1, count(rows, "jobStart", json));
+		assertWithMessage("firstRead rows", 1, count(rows, "firstRead", json));
+		assertWithMessage("checkpoint rows (one per chunk that wrote items)", ITEMS / ITEM_COUNT, count(rows, "checkpoint", json));
+		assertWithMessage("write rows (one per chunk)", count(rows, "read", json), count(rows, "write", json));
+		assertWithMessage("At least one write row per chunk that wrote items", true, count(rows, "write", json) >= ITEMS / ITEM_COUNT);
+	}
+
+	/*
+	 * Sends the events of one execution, with a step name that needs quoting in CSV, to a FileMetricsSink
+	 * writing to a new directory, and returns the lines of the file named after the calling test.
+	 */
+	private List<String> writeEvents(String format, String suffix) throws Exception {
+		File tempDir = File.createTempFile("tck-metrics", "");
+		tempDir.delete();
+
+		FileMetricsSink sink;
+		String previousDir = setProperty(FileMetricsSink.DIR_PROP, tempDir.getAbsolutePath());
+		String previousFormat = setProperty(FileMetricsSink.FORMAT_PROP, format);
+		try {
+			sink = new FileMetricsSink();
+		} finally {
+			setProperty(FileMetricsSink.DIR_PROP, previousDir);
+			setProperty(FileMetricsSink.FORMAT_PROP, previousFormat);
+		}
+
+		assertWithMessage("FileMetricsSink with a directory is enabled", true, sink.isEnabled());
+		sink.jobStarted("testJob", TEST_EXECUTION_ID, 100);
+		sink.firstRead(TEST_EXECUTION_ID, "step,1", 200);
+		sink.chunkCompleted(TEST_EXECUTION_ID, "step,1", 1, 300, 400, 500);
+		sink.checkpointCompleted(TEST_EXECUTION_ID, "step,1", 1, 600);
+		sink.jobEnded(TEST_EXECUTION_ID, "COMPLETED");
+
+		File[] files = tempDir.listFiles();
+		assertWithMessage("Files written", 1, files == null ? 0 : files.length);
+		String test = Reporter.getCurrentTestResult().getMethod().getMethodName();
+		assertWithMessage("File name", getClass().getName() + "." + test + suffix, files[0].getName());
+		List<String> lines = readLines(files[0]);
+
+		for (File file : files) {
+			file.delete();
+		}
+		tempDir.delete();
+		return lines;
+	}
+
+	private static int count(List<String> rows, String metric, boolean json) {
+		String field = json ? "\"metric\":\"" + metric + "\"" : "," + metric + ",";
+		int count = 0;
+		for (String row : rows) {
+			if (row.contains(field)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		if (!file.exists()) {
+			return lines;
+		}
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		return lines;
+	}
+
+	/*
+	 * Sets or (for null) clears the system property, returning its previous value
+	 */
+	private static String setProperty(String key, String value) {
+		return value == null ? System.clearProperty(key) : System.setProperty(key, value);
+	}
+}
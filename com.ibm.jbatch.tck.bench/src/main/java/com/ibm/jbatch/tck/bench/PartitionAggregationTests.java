@@ -0,0 +1,324 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import javax.batch.api.partition.PartitionReducer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+import com.ibm.jbatch.tck.artifacts.reusable.AggregatingPartitionAnalyzer;
+import com.ibm.jbatch.tck.artifacts.reusable.AggregatingPartitionReducer;
+import com.ibm.jbatch.tck.artifacts.reusable.ExternalizableString;
+import com.ibm.jbatch.tck.artifacts.reusable.PartitionDataAggregate;
+import com.ibm.jbatch.tck.artifacts.specialized.MyPartitionAnalyzer;
+import com.ibm.jbatch.tck.artifacts.specialized.MyPartitionReducer;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+
+/**
+ * Checks the aggregating partition analyzer and reducer: that they count every payload and status
+ * when run by the runtime, that the aggregate stays exact when fed from many threads at once, that
+ * the analyzer leaves the step exit status to the reducer, so it is set once however many partitions
+ * there are, and that the median cost of an analyzer call doesn't grow with the number of partitions.
+ * MyPartitionAnalyzer and MyPartitionReducer, which the certification tests use, are also driven
+ * directly, to check the step exit status they build.
+ *
+ * The latency test runs each partition count bench.partition.repeats times (default 5) and compares
+ * the median of each run's median call.
+ */
+public class PartitionAggregationTests {
+
+	private final static Logger logger = Logger.getLogger(PartitionAggregationTests.class.getName());
+
+	private static final String JOB_NAME = "bench_partition_aggregate";
+
+	private static final int PAYLOADS_PER_PARTITION = 10;
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	private int repeats;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+		repeats = Integer.parseInt(System.getProperty("bench.partition.repeats", "5"));
+	}
+
+	@DataProvider(name = "partitionCounts")
+	public Object[][] partitionCounts() {
+		return new Object[][] { { 10 }, { 100 }, { 500 } };
+	}
+
+	@Test(dataProvider = "partitionCounts")
+	public void testAggregatingArtifacts(int partitions) throws Exception {
+		Reporter.log("Run " + partitions + " partitions through aggregatingPartitionAnalyzer and aggregatingPartitionReducer<p>");
+
+		Properties jobParams = new Properties();
+		jobParams.setProperty("numPartitionsProp", String.valueOf(partitions));
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+
+		Reporter.log("Job exit status = " + execution.getExitStatus() + "<p>");
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		Properties summary = ThroughputRecorder.parseSummary(execution.getExitStatus());
+		assertWithMessage("Payloads analyzed", String.valueOf(partitions), summary.getProperty(PartitionDataAggregate.PAYLOADS));
+		assertWithMessage("'C' payloads analyzed", String.valueOf(partitions), summary.getProperty(PartitionDataAggregate.PAYLOAD_PREFIX + "C"));
+		assertWithMessage("Statuses analyzed", String.valueOf(partitions), summary.getProperty(PartitionDataAggregate.STATUSES));
+		assertWithMessage("COMPLETED statuses analyzed", String.valueOf(partitions),
+				summary.getProperty(PartitionDataAggregate.STATUS_PREFIX + BatchStatus.COMPLETED));
+	}
+
+	@Test
+	public void testConcurrentAggregation() throws Exception {
+		final int threads = 8;
+		final int payloadsPerThread = 100000;
+		final PartitionDataAggregate aggregate = new PartitionDataAggregate();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		Reporter.log("Feed one aggregate from " + threads + " threads at once<p>");
+		Thread[] feeders = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			feeders[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < payloadsPerThread; i++) {
+						aggregate.addPayload(new ExternalizableString(i % 2 == 0 ? "C" : "X"));
+					}
+					aggregate.addStatus(BatchStatus.COMPLETED);
+				}
+			};
+			feeders[t].start();
+		}
+		start.countDown();
+		for (Thread feeder : feeders) {
+			feeder.join();
+		}
+
+		assertWithMessage("Payloads", (long) threads * payloadsPerThread, aggregate.getPayloadCount());
+		assertWithMessage("'C' payloads", (long) threads * payloadsPerThread / 2, aggregate.getPayloadCount("C"));
+		assertWithMessage("'X' payloads", (long) threads * payloadsPerThread / 2, aggregate.getPayloadCount("X"));
+		assertWithMessage("COMPLETED statuses", (long) threads, aggregate.getStatusCount(BatchStatus.COMPLETED));
+	}
+
+	@DataProvider(name = "analyzedPartitionCounts")
+	public Object[][] analyzedPartitionCounts() {
+		return new Object[][] { { 100 }, { 1000 }, { 10000 } };
+	}
+
+	/**
+	 * Drives MyPartitionAnalyzer and MyPartitionReducer the way the runtime does for a step that
+	 * completes, and checks the step exit status the reducer builds from the analyzer's.
+	 */
+	@Test(dataProvider = "analyzedPartitionCounts")
+	public void testMyPartitionAnalyzerExitStatus(int partitions) throws Exception {
+		Reporter.log("Analyze " + partitions + " partitions with myPartitionAnalyzer and myPartitionReducer<p>");
+
+		StepContextStub stepCtx = new StepContextStub();
+		JobContext jobCtx = newJobContext();
+		MyPartitionAnalyzer analyzer = new MyPartitionAnalyzer();
+		inject(analyzer, "stepCtx", stepCtx.proxy);
+		MyPartitionReducer reducer = new MyPartitionReducer();
+		inject(reducer, "stepCtx", stepCtx.proxy);
+		inject(reducer, "jobCtx", jobCtx);
+
+		reducer.beginPartitionedStep();
+		StringBuilder expected = new StringBuilder("nullBegin");
+		for (int p = 0; p < partitions; p++) {
+			analyzer.analyzeCollectorData(new ExternalizableString("C"));
+			analyzer.analyzeStatus(BatchStatus.COMPLETED, null);
+			expected.append("CA");
+		}
+		reducer.beforePartitionedStepCompletion();
+		reducer.afterPartitionedStepCompletion(PartitionReducer.PartitionStatus.COMMIT);
+		expected.append("BeforeAfter");
+
+		assertWithMessage("Step exit status", expected.toString(), stepCtx.exitStatus);
+	}
+
+	/**
+	 * Drives AggregatingPartitionAnalyzer and AggregatingPartitionReducer the same way, and checks the
+	 * counts in the summary, and that the exit status and the aggregate are each set once.
+	 */
+	@Test(dataProvider = "analyzedPartitionCounts")
+	public void testAggregatingAnalyzerSetsExitStatusOnce(int partitions) throws Exception {
+		Reporter.log("Analyze " + partitions + " partitions with aggregatingPartitionAnalyzer and aggregatingPartitionReducer<p>");
+
+		StepContextStub stepCtx = new StepContextStub();
+		JobContext jobCtx = newJobContext();
+		AggregatingPartitionAnalyzer analyzer = new AggregatingPartitionAnalyzer();
+		inject(analyzer, "stepCtx", stepCtx.proxy);
+		AggregatingPartitionReducer reducer = new AggregatingPartitionReducer();
+		inject(reducer, "stepCtx", stepCtx.proxy);
+		inject(reducer, "jobCtx", jobCtx);
+
+		reducer.beginPartitionedStep();
+		for (int p = 0; p < partitions; p++) {
+			for (int i = 0; i < PAYLOADS_PER_PARTITION; i++) {
+				analyzer.analyzeCollectorData(new ExternalizableString("C"));
+			}
+			analyzer.analyzeStatus(BatchStatus.COMPLETED, null);
+		}
+		reducer.afterPartitionedStepCompletion(PartitionReducer.PartitionStatus.COMMIT);
+
+		Reporter.log("Step exit status = " + stepCtx.exitStatus + "<p>");
+		Properties summary = ThroughputRecorder.parseSummary(stepCtx.exitStatus);
+		assertWithMessage("Payloads analyzed", String.valueOf(partitions * PAYLOADS_PER_PARTITION),
+				summary.getProperty(PartitionDataAggregate.PAYLOADS));
+		assertWithMessage("Statuses analyzed", String.valueOf(partitions), summary.getProperty(PartitionDataAggregate.STATUSES));
+		assertWithMessage("Step exit status sets", 1, stepCtx.exitStatusSets);
+		assertWithMessage("Transient user data sets", 1, stepCtx.transientUserDataSets);
+	}
+
+	/**
+	 * Times each call to AggregatingPartitionAnalyzer, driven as above, and checks that the median call
+	 * with the most partitions is within a small factor of that with the fewest.
+	 */
+	@Test
+	public void testAnalyzerLatencyIsBounded() throws Exception {
+		Object[][] partitionCounts = analyzedPartitionCounts();
+		int fewest = (Integer) partitionCounts[0][0];
+		int most = (Integer) partitionCounts[partitionCounts.length - 1][0];
+		Reporter.log("Time aggregatingPartitionAnalyzer calls for " + fewest + " to " + most + " partitions, " + repeats + " runs each<p>");
+
+		// Warm up the JIT on the largest count
+		timeAnalyzer(most);
+
+		long fewestP50 = 0;
+		for (Object[] partitionCount : partitionCounts) {
+			int partitions = (Integer) partitionCount[0];
+			long[] p50s = new long[repeats];
+			long p99 = 0;
+			long max = 0;
+			for (int i = 0; i < repeats; i++) {
+				LatencySamples latencies = timeAnalyzer(partitions);
+				p50s[i] = latencies.getPercentile(50);
+				p99 = Math.max(p99, latencies.getPercentile(99));
+				max = Math.max(max, latencies.getMax());
+			}
+			Arrays.sort(p50s);
+			long p50 = p50s[repeats / 2];
+			String result = String.format("partitions=%d calls=%d median p50=%dns max p99=%dns max=%dns",
+					partitions, partitions * (PAYLOADS_PER_PARTITION + 1), p50, p99, max);
+			Reporter.log(result + "<p>");
+			logger.info(result);
+
+			if (partitions == fewest) {
+				fewestP50 = p50;
+			} else {
+				long bound = 4 * fewestP50 + 1000;
+				assertWithMessage("Median analyzer call of " + p50 + "ns with " + partitions + " partitions is within " + bound + "ns",
+						true, p50 <= bound);
+			}
+		}
+	}
+
+	private static LatencySamples timeAnalyzer(int partitions) throws Exception {
+		StepContextStub stepCtx = new StepContextStub();
+		AggregatingPartitionAnalyzer analyzer = new AggregatingPartitionAnalyzer();
+		inject(analyzer, "stepCtx", stepCtx.proxy);
+		LatencySamples latencies = new LatencySamples(partitions * (PAYLOADS_PER_PARTITION + 1));
+		ExternalizableString payload = new ExternalizableString("C");
+
+		for (int p = 0; p < partitions; p++) {
+			for (int i = 0; i < PAYLOADS_PER_PARTITION; i++) {
+				long start = System.nanoTime();
+				analyzer.analyzeCollectorData(payload);
+				latencies.record(System.nanoTime() - start);
+			}
+			long start = System.nanoTime();
+			analyzer.analyzeStatus(BatchStatus.COMPLETED, null);
+			latencies.record(System.nanoTime() - start);
+		}
+
+		PartitionDataAggregate aggregate = (PartitionDataAggregate) stepCtx.transientUserData;
+		assertWithMessage("Payloads", (long) partitions * PAYLOADS_PER_PARTITION, aggregate.getPayloadCount());
+		assertWithMessage("Statuses", (long) partitions, aggregate.getStatusCount());
+		return latencies;
+	}
+
+	private static void inject(Object artifact, String fieldName, Object value) throws Exception {
+		Field field = artifact.getClass().getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(artifact, value);
+	}
+
+	private static JobContext newJobContext() {
+		return (JobContext) Proxy.newProxyInstance(JobContext.class.getClassLoader(), new Class<?>[] { JobContext.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * StepContext that only holds the exit status and transient user data, and counts how often each is set.
+	 */
+	private static class StepContextStub implements InvocationHandler {
+
+		final StepContext proxy = (StepContext) Proxy.newProxyInstance(StepContext.class.getClassLoader(),
+				new Class<?>[] { StepContext.class }, this);
+
+		String exitStatus;
+		int exitStatusSets;
+
+		Object transientUserData;
+		int transientUserDataSets;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("getExitStatus")) {
+				return exitStatus;
+			} else if (name.equals("setExitStatus")) {
+				exitStatus = (String) args[0];
+				exitStatusSets++;
+			} else if (name.equals("getTransientUserData")) {
+				return transientUserData;
+			} else if (name.equals("setTransientUserData")) {
+				transientUserData = args[0];
+				transientUserDataSets++;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.PartitionStressRecorder;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+
+/**
+ * Maps a chunk step (the DoSomething reader and processor) into hundreds of partitions with MyPartitionMapper,
+ * through bench_partition_stress.xml, and reports for each partition count:
+ * <ul>
+ * <li>partition dispatch latency - from the start of the step to the first chunk of each partition, p50/p99/max,
+ * and the resulting dispatch rate</li>
+ * <li>collector to analyzer queue - payloads per second through MyPartitionCollector to MyPartitionAnalyzer,
+ * the mean time a payload waits in the queue, and the time the analyzer spends on each payload</li>
+ * <li>thread-pool saturation - the number of threads the partitions ran on and the peak number inside a chunk at once</li>
+ * </ul>
+ * The collector is called at every chunk checkpoint of every partition, so the number of payloads is
+ * roughly partitions * (items / item-count + 1).
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.partitions - comma-separated partition counts, default "100,250,500,1000"</li>
+ * <li>bench.partition.items - items read by each partition, default "100"</li>
+ * <li>bench.item.count - item-count of the chunk step, default "10"</li>
+ * </ul>
+ */
+public class PartitionStressBenchmark extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_partition_stress";
+	private static final int WARMUP_PARTITIONS = 20;
+
+	private int partitionItems;
+	private int itemCount;
+
+	@BeforeClass
+	public void warmUp() throws Exception {
+		partitionItems = Integer.parseInt(System.getProperty("bench.partition.items", "100"));
+		itemCount = Integer.parseInt(System.getProperty("bench.item.count", "10"));
+
+		Reporter.log("Warming up with " + WARMUP_PARTITIONS + " partitions<p>");
+		runJob(WARMUP_PARTITIONS);
+	}
+
+	@DataProvider(name = "sweep")
+	public Object[][] sweep() {
+		List<Object[]> configs = new ArrayList<Object[]>();
+		for (int partitions : intValues("bench.partitions", "100,250,500,1000")) {
+			configs.add(new Object[] { partitions });
+		}
+		return configs.toArray(new Object[configs.size()][]);
+	}
+
+	@Test(dataProvider = "sweep")
+	public void testPartitionStress(int partitions) throws Exception {
+		Reporter.log("Run " + partitions + " partitions of " + partitionItems + " items with item-count=" + itemCount + "<p>");
+		Properties summary = runJob(partitions);
+
+		assertWithMessage("Partitions started", partitions, intValue(summary, PartitionStressRecorder.PARTITIONS));
+		assertWithMessage("Partition statuses analyzed", partitions, intValue(summary, PartitionStressRecorder.STATUSES_ANALYZED));
+		long payloads = longValue(summary, PartitionStressRecorder.PAYLOADS_SENT);
+		assertWithMessage("Payloads analyzed", payloads, longValue(summary, PartitionStressRecorder.PAYLOADS_ANALYZED));
+
+		long dispatchMax = longValue(summary, PartitionStressRecorder.DISPATCH_MAX);
+		long queueSpan = longValue(summary, PartitionStressRecorder.QUEUE_SPAN_NANOS);
+
+		String result = String.format("partitions=%d threads=%s peakRunning=%s elapsed=%.1fms "
+				+ "dispatch p50=%.2fms p99=%.2fms max=%.2fms (%.0f partitions/sec) "
+				+ "payloads=%d queue=%.0f payloads/sec mean wait=%.1fus analyze p50=%.1fus p99=%.1fus max=%.1fus total=%.1fms",
+				partitions, summary.getProperty(PartitionStressRecorder.THREADS), summary.getProperty(PartitionStressRecorder.PEAK_RUNNING),
+				millis(summary, PartitionStressRecorder.ELAPSED_NANOS),
+				millis(summary, PartitionStressRecorder.DISPATCH_P50), millis(summary, PartitionStressRecorder.DISPATCH_P99),
+				millis(summary, PartitionStressRecorder.DISPATCH_MAX), partitions / (dispatchMax / 1e9),
+				payloads, queueSpan == 0 ? 0 : payloads / (queueSpan / 1e9),
+				micros(summary, PartitionStressRecorder.QUEUE_MEAN),
+				micros(summary, PartitionStressRecorder.ANALYZE_P50), micros(summary, PartitionStressRecorder.ANALYZE_P99),
+				micros(summary, PartitionStressRecorder.ANALYZE_MAX), millis(summary, PartitionStressRecorder.ANALYZE_TOTAL_NANOS));
+
+		addResult(result);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Partition stress results";
+	}
+
+	private Properties runJob(int partitions) throws Exception {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("numPartitionsProp", String.valueOf(partitions));
+		jobParams.setProperty("app.arraysize", String.valueOf(partitionItems));
+		jobParams.setProperty("item.count", String.valueOf(itemCount));
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of steps", 1, steps.size());
+		return ThroughputRecorder.parseSummary(steps.get(0).getExitStatus());
+	}
+
+	private static int intValue(Properties summary, String key) {
+		return Integer.parseInt(summary.getProperty(key));
+	}
+
+	private static long longValue(Properties summary, String key) {
+		return Long.parseLong(summary.getProperty(key));
+	}
+
+	private static double micros(Properties summary, String key) {
+		return longValue(summary, key) / 1000.0;
+	}
+
+	private static double millis(Properties summary, String key) {
+		return longValue(summary, key) / 1e6;
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.chunkartifacts.PooledConnectionCache;
+
+/**
+ * Checks that PooledConnectionCache reuses connections and statements, and really closes them when it
+ * should, against a DataSource stub that counts the physical connections and statements.
+ */
+public class PooledConnectionCacheTests {
+
+	private static final String SQL1 = "select 1";
+	private static final String SQL2 = "select 2";
+	private static final String SQL3 = "select 3";
+
+	@Test
+	public void testConnectionReused() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 16);
+
+		Connection first = cache.borrow(stub.dataSource);
+		first.close();
+		Connection second = cache.borrow(stub.dataSource);
+
+		Reporter.log("A connection closed by its borrower is handed out again<p>");
+		assertWithMessage("Physical connections opened", 1, stub.connectionsOpened);
+		assertWithMessage("Physical connections closed", 0, stub.connectionsClosed);
+		assertWithMessage("Earlier handle is closed", true, first.isClosed());
+		assertWithMessage("New handle is open", false, second.isClosed());
+		try {
+			first.prepareStatement(SQL1);
+			assertWithMessage("Earlier handle is usable", false, true);
+		} catch (SQLException e) {
+			Reporter.log("Using the earlier handle threw " + e + "<p>");
+		}
+	}
+
+	@Test
+	public void testStatementReused() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 16);
+
+		for (int i = 0; i < 3; i++) {
+			Connection connection = cache.borrow(stub.dataSource);
+			PreparedStatement statement = connection.prepareStatement(SQL1);
+			statement.setInt(1, i);
+			statement.close();
+			connection.close();
+		}
+
+		Reporter.log("A statement closed by its borrower is prepared once and has its parameters cleared<p>");
+		assertWithMessage("Physical statements prepared", 1, stub.statementsPrepared);
+		assertWithMessage("Physical statements closed", 0, stub.statementsClosed);
+		assertWithMessage("Parameters cleared", 3, stub.parametersCleared);
+	}
+
+	@Test
+	public void testStatementInUseNotShared() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 16);
+
+		Connection connection = cache.borrow(stub.dataSource);
+		PreparedStatement cached = connection.prepareStatement(SQL1);
+		PreparedStatement uncached = connection.prepareStatement(SQL1);
+		uncached.close();
+		cached.close();
+
+		Reporter.log("A second statement for the same SQL while the first is open is a separate, uncached one<p>");
+		assertWithMessage("Physical statements prepared", 2, stub.statementsPrepared);
+		assertWithMessage("Physical statements closed", 1, stub.statementsClosed);
+	}
+
+	@Test
+	public void testStatementEvicted() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 2);
+
+		Connection connection = cache.borrow(stub.dataSource);
+		for (String sql : new String[] { SQL1, SQL2, SQL3, SQL1 }) {
+			connection.prepareStatement(sql).close();
+		}
+
+		Reporter.log("With room for 2 statements, the least recently used one is closed when a third is prepared<p>");
+		assertWithMessage("Physical statements prepared", 4, stub.statementsPrepared);
+		assertWithMessage("Physical statements closed", 2, stub.statementsClosed);
+	}
+
+	@Test
+	public void testAutoCommitOffNotPooled() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 16);
+
+		Connection connection = cache.borrow(stub.dataSource);
+		connection.prepareStatement(SQL1).close();
+		connection.setAutoCommit(false);
+		connection.close();
+		cache.borrow(stub.dataSource).close();
+
+		Reporter.log("A connection returned with autoCommit off is really closed, with its statements<p>");
+		assertWithMessage("Physical connections opened", 2, stub.connectionsOpened);
+		assertWithMessage("Physical connections closed", 1, stub.connectionsClosed);
+		assertWithMessage("Physical statements closed", 1, stub.statementsClosed);
+	}
+
+	@Test
+	public void testIdleLimit() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(2, 16);
+
+		Connection[] connections = new Connection[3];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = cache.borrow(stub.dataSource);
+		}
+		for (Connection connection : connections) {
+			connection.close();
+		}
+
+		Reporter.log("With room for 2 idle connections, the third one returned is really closed<p>");
+		assertWithMessage("Physical connections opened", 3, stub.connectionsOpened);
+		assertWithMessage("Physical connections closed", 1, stub.connectionsClosed);
+	}
+
+	@Test
+	public void testCloseIdle() throws Exception {
+		StubDataSource stub = new StubDataSource();
+		PooledConnectionCache cache = new PooledConnectionCache(4, 16);
+
+		Connection idle = cache.borrow(stub.dataSource);
+		Connection borrowed = cache.borrow(stub.dataSource);
+		idle.prepareStatement(SQL1).close();
+		idle.close();
+		cache.closeIdle();
+
+		Reporter.log("closeIdle() really closes the idle connections and their statements, but not borrowed ones<p>");
+		assertWithMessage("Physical connections closed", 1, stub.connectionsClosed);
+		assertWithMessage("Physical statements closed", 1, stub.statementsClosed);
+		assertWithMessage("Borrowed handle is open", false, borrowed.isClosed());
+
+		borrowed.close();
+		cache.borrow(stub.dataSource);
+		assertWithMessage("Physical connections opened", 2, stub.connectionsOpened);
+	}
+
+	/*
+	 * Hands out stub connections and statements, which only count the calls made on them.
+	 */
+	private static class StubDataSource {
+
+		int connectionsOpened = 0;
+		int connectionsClosed = 0;
+		int statementsPrepared = 0;
+		int statementsClosed = 0;
+		int parametersCleared = 0;
+
+		final DataSource dataSource = (DataSource) stub(DataSource.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getConnection")) {
+					connectionsOpened++;
+					return newConnection();
+				}
+				return defaultValue(proxy, method, args);
+			}
+		});
+
+		private Connection newConnection() {
+			return (Connection) stub(Connection.class, new InvocationHandler() {
+				private boolean closed = false;
+				private boolean autoCommit = true;
+
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("close")) {
+						if (!closed) {
+							closed = true;
+							connectionsClosed++;
+						}
+						return null;
+					} else if (name.equals("isClosed")) {
+						return closed;
+					} else if (name.equals("setAutoCommit")) {
+						autoCommit = (Boolean) args[0];
+						return null;
+					} else if (name.equals("getAutoCommit")) {
+						return autoCommit;
+					} else if (name.equals("prepareStatement")) {
+						statementsPrepared++;
+						return newStatement();
+					}
+					return defaultValue(proxy, method, args);
+				}
+			});
+		}
+
+		private PreparedStatement newStatement() {
+			return (PreparedStatement) stub(PreparedStatement.class, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("close")) {
+						statementsClosed++;
+					} else if (name.equals("clearParameters")) {
+						parametersCleared++;
+					}
+					return defaultValue(proxy, method, args);
+				}
+			});
+		}
+
+		private static Object stub(Class<?> type, InvocationHandler handler) {
+			return Proxy.newProxyInstance(PooledConnectionCacheTests.class.getClassLoader(), new Class<?>[] { type }, handler);
+		}
+
+		private static Object defaultValue(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "stub " + method.getDeclaringClass().getSimpleName();
+			}
+			Class<?> type = method.getReturnType();
+			if (type == boolean.class) {
+				return false;
+			} else if (type == int.class) {
+				return 0;
+			} else if (type == long.class) {
+				return 0L;
+			} else if (type.isPrimitive() && type != void.class) {
+				throw new UnsupportedOperationException(method.toString());
+			}
+			return null;
+		}
+	}
+}
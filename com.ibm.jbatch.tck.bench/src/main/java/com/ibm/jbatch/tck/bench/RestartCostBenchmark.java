@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.artifacts.perf.RestartCostRecorder;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
+
+/**
+ * Measures the cost of restarting a chunk step from a checkpoint deep into a large input, through
+ * bench_restart_cost.xml: restartTimingArrayItemReader, which works like DoSomethingArrayItemReaderImpl, fails
+ * on purpose at readrecord.fail on the first execution (as numbered in the persistent user data), like
+ * ChunkTests.testChunkRestartItemCount7 but over millions of items, and the job is restarted.  Once the restart has read its first item, it's stopped rather than left to read the rest.
+ *
+ * For each failure point, the medians over the repeats are reported of:
+ * <ul>
+ * <li>restart() - how long JobOperator.restart() took to return</li>
+ * <li>to step - from the restart() call to beforeStep() of the restarted step</li>
+ * <li>load, open and first read - see {@link RestartCostRecorder}</li>
+ * <li>to first read - from the restart() call to the first item read, i.e. the time to resume</li>
+ * </ul>
+ * If restarting is O(1), these don't grow with the failure point.  Note the reader, like
+ * DoSomethingArrayItemReaderImpl, fills its whole array in open() whatever the checkpoint, so its open()
+ * is O(app.arraysize), but not O(items processed).
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.restart.items - app.arraysize, default 1000000</li>
+ * <li>bench.restart.fail.points - comma-separated readrecord.fail values, each past the first checkpoint,
+ * default 0.1%, 50% and 90% of the items</li>
+ * <li>bench.restart.item.count - item-count of the chunk step, default 100</li>
+ * <li>bench.restart.repeats - restarts measured per failure point, default 3</li>
+ * </ul>
+ */
+public class RestartCostBenchmark extends BenchmarkBase {
+
+	private static final String JOB_NAME = "bench_restart_cost";
+	private static final long RUNNING_TIMEOUT = 60000;
+
+	private int items;
+	private int itemCount;
+	private int repeats;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		items = Integer.parseInt(System.getProperty("bench.restart.items", "1000000"));
+		itemCount = Integer.parseInt(System.getProperty("bench.restart.item.count", "100"));
+		repeats = Integer.parseInt(System.getProperty("bench.restart.repeats", "3"));
+	}
+
+	@DataProvider(name = "failPoints")
+	public Object[][] failPoints() {
+		String failPoints = System.getProperty("bench.restart.fail.points");
+		if (failPoints == null) {
+			int items = Integer.parseInt(System.getProperty("bench.restart.items", "1000000"));
+			int itemCount = Integer.parseInt(System.getProperty("bench.restart.item.count", "100"));
+			failPoints = Math.max(items / 1000, itemCount + 1) + "," + items / 2 + "," + (int) (items * 9L / 10);
+		}
+		List<Object[]> configs = new ArrayList<Object[]>();
+		for (String failPoint : failPoints.split(",")) {
+			configs.add(new Object[] { Integer.parseInt(failPoint.trim()) });
+		}
+		return configs.toArray(new Object[configs.size()][]);
+	}
+
+	@Test(dataProvider = "failPoints")
+	public void testRestartCost(int failPoint) throws Exception {
+		assertWithMessage("Failure point " + failPoint + " is after the first checkpoint, at " + itemCount, true, failPoint > itemCount);
+		Reporter.log("Fail at record " + failPoint + " of " + items + " with item-count=" + itemCount + ", then restart, " + repeats + " times<p>");
+
+		LatencySamples restartCalls = new LatencySamples(repeats);
+		LatencySamples toStep = new LatencySamples(repeats);
+		LatencySamples loads = new LatencySamples(repeats);
+		LatencySamples opens = new LatencySamples(repeats);
+		LatencySamples firstReads = new LatencySamples(repeats);
+		LatencySamples toFirstRead = new LatencySamples(repeats);
+
+		// The reader fails reading index failPoint - 1, so the last checkpoint is at the chunk before
+		long expectedFirstRecord = (long) (failPoint - 1) / itemCount * itemCount;
+
+		for (int i = 0; i < repeats; i++) {
+			Properties jobParams = new Properties();
+			jobParams.setProperty("readrecord.fail", String.valueOf(failPoint));
+			jobParams.setProperty("app.arraysize", String.valueOf(items));
+			jobParams.setProperty("item.count", String.valueOf(itemCount));
+
+			JobExecution failed = jobOp.startJobAndWaitForResult(JOB_NAME, jobParams);
+			assertWithMessage("Testing execution #1", BatchStatus.FAILED, failed.getBatchStatus());
+
+			long restartCalledMillis = System.currentTimeMillis();
+			long restartCalled = System.nanoTime();
+			JobExecution restarted = jobOp.restartJobWithoutWaitingForResult(failed.getExecutionId(), jobParams);
+			restartCalls.record(System.nanoTime() - restartCalled);
+
+			boolean resumed = JobExecutionRunningSignals.await(restarted.getExecutionId(), 1, RUNNING_TIMEOUT);
+			JobExecution stopped = jobOp.stopJobAndWaitForResult(restarted);
+			Reporter.log("Restart #" + (i + 1) + " signaled resumption: " + resumed + ", then " + stopped.getBatchStatus() + "<p>");
+
+			List<StepExecution> steps = jobOp.getStepExecutions(restarted.getExecutionId());
+			assertWithMessage("Number of StepExecutions", 1, steps.size());
+			Properties summary = ThroughputRecorder.parseSummary(steps.get(0).getExitStatus());
+			Reporter.log("Restart #" + (i + 1) + " timings = " + steps.get(0).getExitStatus() + "<p>");
+
+			assertWithMessage("Resumed from the last checkpoint", expectedFirstRecord, longValue(summary, RestartCostRecorder.FIRST_RECORD));
+			toStep.record(1000000L * (longValue(summary, RestartCostRecorder.STEP_START_MILLIS) - restartCalledMillis));
+			loads.record(longValue(summary, RestartCostRecorder.LOAD_NANOS));
+			opens.record(longValue(summary, RestartCostRecorder.OPEN_NANOS));
+			firstReads.record(longValue(summary, RestartCostRecorder.FIRST_READ_NANOS));
+			toFirstRead.record(1000000L * (longValue(summary, RestartCostRecorder.FIRST_READ_MILLIS) - restartCalledMillis));
+		}
+
+		String result = String.format("failPoint=%d checkpoint=%d restart()=%.2fms to step=%.0fms load=%.2fms open=%.2fms first read=%.2fms to first read=%.0fms",
+				failPoint, expectedFirstRecord, millis(restartCalls.getPercentile(50)), millis(toStep.getPercentile(50)),
+				millis(loads.getPercentile(50)), millis(opens.getPercentile(50)), millis(firstReads.getPercentile(50)),
+				millis(toFirstRead.getPercentile(50)));
+		addResult(result);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Restart cost results (" + items + " items)";
+	}
+
+	private static long longValue(Properties summary, String key) {
+		return Long.parseLong(summary.getProperty(key));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.Properties;
+
+import javax.batch.operations.JobOperator;
+import javax.batch.runtime.BatchRuntime;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.polling.TCKSignalingExecutionWaiterFactory;
+import com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+import com.ibm.jbatch.tck.utils.ServiceGateway;
+
+/**
+ * Checks that TCKSignalingExecutionWaiterFactory, selected through tck.execution.waiter.factory, is woken by
+ * terminationSignalJobListener (bench_termination_signal.xml), both when the waiter is created through
+ * JobOperatorBridge as usual or by its startJobAsync(), and when the job has already ended before the waiter is created.
+ *
+ * Like the listener itself, this only works if the job runs in this JVM.
+ */
+public class SignalingWaiterTests {
+
+	private static final String JOB_NAME = "bench_termination_signal";
+
+	private static final long TIMEOUT = Long.getLong("tck.execution.waiter.timeout", 60000);
+
+	private static volatile JobOperatorBridge jobOp = null;
+	private static volatile JobExecutionWaiterFactory waiterFactory = null;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		String previous = System.setProperty(ServiceGateway.WAITER_FACTORY_PROP, TCKSignalingExecutionWaiterFactory.class.getName());
+		try {
+			jobOp = new JobOperatorBridge();
+			waiterFactory = ServiceGateway.getJobExecutionWaiterFactoryService();
+		} finally {
+			if (previous == null) {
+				System.clearProperty(ServiceGateway.WAITER_FACTORY_PROP);
+			} else {
+				System.setProperty(ServiceGateway.WAITER_FACTORY_PROP, previous);
+			}
+		}
+		assertWithMessage("Loaded TCKSignalingExecutionWaiterFactory", true, waiterFactory instanceof TCKSignalingExecutionWaiterFactory);
+	}
+
+	@Test
+	public void testBridgeWaitIsSignaled() throws Exception {
+		Reporter.log("Start " + JOB_NAME + " and wait for it through JobOperatorBridge<p>");
+		long signaledBefore = TCKSignalingExecutionWaiterFactory.getSignaledWaits();
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(JOB_NAME, new Properties());
+
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+		assertWithMessage("Waits ended on a termination signal", signaledBefore + 1, TCKSignalingExecutionWaiterFactory.getSignaledWaits());
+	}
+
+	@Test
+	public void testAsyncWaitIsSignaled() throws Exception {
+		Reporter.log("Start " + JOB_NAME + " through JobOperatorBridge.startJobAsync() and wait on the future<p>");
+		long signaledBefore = TCKSignalingExecutionWaiterFactory.getSignaledWaits();
+
+		JobExecution execution = jobOp.startJobAsync(JOB_NAME, new Properties()).get();
+
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+		assertWithMessage("Waits ended on a termination signal", signaledBefore + 1, TCKSignalingExecutionWaiterFactory.getSignaledWaits());
+	}
+
+	@Test
+	public void testSignalBeforeWaiterIsKept() throws Exception {
+		Reporter.log("Start " + JOB_NAME + ", let it end, and only then create the waiter<p>");
+		JobOperator operator = BatchRuntime.getJobOperator();
+		long executionId = operator.start(JOB_NAME, new Properties());
+
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (operator.getJobExecution(executionId).getEndTime() == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertWithMessage("Execution " + executionId + " ended within " + TIMEOUT + " ms", true,
+				operator.getJobExecution(executionId).getEndTime() != null);
+
+		long signaledBefore = TCKSignalingExecutionWaiterFactory.getSignaledWaits();
+		JobExecution execution = waiterFactory.createWaiter(executionId, operator, TIMEOUT).awaitTermination();
+
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+		assertWithMessage("Waits ended on a termination signal", signaledBefore + 1, TCKSignalingExecutionWaiterFactory.getSignaledWaits());
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.artifacts.perf.SplitFlowBatchlet;
+import com.ibm.jbatch.tck.artifacts.perf.SplitFlowRecorder;
+import com.ibm.jbatch.tck.artifacts.specialized.ThreadRecordingStepListener;
+import com.ibm.jbatch.tck.artifacts.specialized.ThreadTrackingJobListener;
+import com.ibm.jbatch.tck.artifacts.specialized.ThreadTrackingStepListener;
+
+/**
+ * Measures how a split scales with the number of its flows: a step, then a split of N flows of one step each,
+ * then a step, where each flow step sleeps or keeps the CPU busy (see {@link SplitFlowBatchlet}).
+ *
+ * For each kind of work and number of flows, the p50 over the runs of these is reported:
+ * <ul>
+ * <li>makespan - from the end of the step before the split to the start of the step after it, against the
+ * ideal: the work of one flow for sleep, and for cpu the work of all the flows spread over the available
+ * processors (but no less than one flow's work)</li>
+ * <li>fanOut - from the end of the step before the split to the start of the last flow step</li>
+ * <li>join - from the end of the last flow step to the start of the step after the split</li>
+ * </ul>
+ * along with the number of distinct threads (by thread id) the flows ran on, how many were virtual, and the most flows
+ * that were running at once.  The job has {@link ThreadTrackingJobListener} and, on the step after the split,
+ * {@link ThreadTrackingStepListener}, which fails the job unless that step runs on the job's own thread, and
+ * {@link ThreadRecordingStepListener}, whose record of that thread is compared to the flows' threads.
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.split.flows - comma-separated numbers of flows, default 2,4,8,16,32,64,128,256</li>
+ * <li>bench.split.work - comma-separated kinds of work, sleep and/or cpu, default both</li>
+ * <li>bench.split.work.millis - work per flow step, default 100</li>
+ * <li>bench.split.repeats - runs per data point, default 3</li>
+ * </ul>
+ * The batchlets report to {@link SplitFlowRecorder}, which only works if the jobs run in this JVM.
+ */
+public class SplitScalingBenchmark extends BenchmarkBase {
+
+	private static final String JOB_PREFIX = "bench_split_scaling_";
+
+	private int workMillis;
+	private int repeats;
+	private int processors;
+	private JobXMLDirectory generated;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		workMillis = Integer.parseInt(System.getProperty("bench.split.work.millis", "100"));
+		repeats = Integer.parseInt(System.getProperty("bench.split.repeats", "3"));
+		processors = Runtime.getRuntime().availableProcessors();
+		generated = new JobXMLDirectory("tck-split-scaling");
+
+		// Warm up the runtime's split handling before the first measured run
+		runSplit(2, SplitFlowBatchlet.SLEEP, 1);
+	}
+
+	@DataProvider(name = "splits")
+	public Iterator<Object[]> splits() {
+		List<Object[]> data = new ArrayList<Object[]>();
+		for (String work : System.getProperty("bench.split.work", SplitFlowBatchlet.SLEEP + "," + SplitFlowBatchlet.CPU).split("\\s*,\\s*")) {
+			for (String flows : System.getProperty("bench.split.flows", "2,4,8,16,32,64,128,256").split("\\s*,\\s*")) {
+				data.add(new Object[] { work, Integer.parseInt(flows) });
+			}
+		}
+		return data.iterator();
+	}
+
+	@Test(dataProvider = "splits")
+	public void testSplitScaling(String work, int flows) throws Exception {
+		Reporter.log("Run a split of " + flows + " flows, each a " + workMillis + "ms " + work + " step, " + repeats + " times<p>");
+
+		LatencySamples makespans = new LatencySamples(repeats);
+		LatencySamples fanOuts = new LatencySamples(repeats);
+		LatencySamples joins = new LatencySamples(repeats);
+		int threads = 0;
+		int virtualThreads = 0;
+		int peakRunning = 0;
+		boolean joinOnFlowThread = false;
+
+		for (int i = 0; i < repeats; i++) {
+			String joinThread = runSplit(flows, work, workMillis);
+
+			long beforeEnded = SplitFlowRecorder.getBeforeEnded();
+			long afterStarted = SplitFlowRecorder.getAfterStarted();
+			makespans.record(afterStarted - beforeEnded);
+			fanOuts.record(SplitFlowRecorder.getLastFlowStarted() - beforeEnded);
+			joins.record(afterStarted - SplitFlowRecorder.getLastFlowEnded());
+
+			threads = Math.max(threads, SplitFlowRecorder.getFlowThreadCount());
+			int virtual = 0;
+			for (String flowThread : SplitFlowRecorder.getFlowThreads()) {
+				if (flowThread.contains(ThreadDescriptor.pair(ThreadDescriptor.VIRTUAL, "true"))) {
+					virtual++;
+				}
+				if (joinThread != null && flowThread.startsWith(ThreadDescriptor.pair(ThreadDescriptor.THREAD, joinThread) + ",")) {
+					joinOnFlowThread = true;
+				}
+			}
+			virtualThreads = Math.max(virtualThreads, virtual);
+			peakRunning = Math.max(peakRunning, SplitFlowRecorder.getPeakRunning());
+		}
+
+		long idealNanos = 1000000L * workMillis;
+		if (SplitFlowBatchlet.CPU.equals(work)) {
+			idealNanos = Math.max(idealNanos, idealNanos * flows / processors);
+		}
+		long makespan = makespans.getPercentile(50);
+
+		String result = String.format("%s x%d: makespan p50=%.1fms max=%.1fms, ideal %.1fms (%.0f%% efficient, %.1fms over); "
+				+ "fanOut p50=%.2fms max=%.2fms; join p50=%.2fms max=%.2fms; "
+				+ "%d flow threads (%d virtual), peak %d running, step after the split %s a flow thread",
+				work, flows, millis(makespan), millis(makespans.getMax()), millis(idealNanos), 100.0 * idealNanos / makespan,
+				millis(makespan - idealNanos), millis(fanOuts.getPercentile(50)), millis(fanOuts.getMax()),
+				millis(joins.getPercentile(50)), millis(joins.getMax()), threads, virtualThreads, peakRunning,
+				joinOnFlowThread ? "reused" : "didn't reuse");
+		addResult(result);
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void deleteGenerated() {
+		if (generated != null) {
+			generated.delete();
+		}
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Split scaling results (" + processors + " processors)";
+	}
+
+	/*
+	 * Runs one split job, checks that it completed with every flow step, and returns the name of the thread
+	 * the step after the split ran on, as reported by ThreadRecordingStepListener (null if it wasn't reported).
+	 */
+	private String runSplit(int flows, String work, int millis) throws Exception {
+		String jobXMLName = JOB_PREFIX + flows;
+		generated.write(jobXMLName, splitJobXML(jobXMLName, flows));
+
+		Properties jobParams = new Properties();
+		jobParams.setProperty("work", work);
+		jobParams.setProperty("work.millis", String.valueOf(millis));
+
+		ClassLoader previous = generated.setContextClassLoader();
+		JobExecution execution;
+		try {
+			SplitFlowRecorder.arm();
+			execution = jobOp.startJobAndWaitForResult(jobXMLName, jobParams);
+		} finally {
+			SplitFlowRecorder.disarm();
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+
+		assertWithMessage(jobXMLName + " completed", BatchStatus.COMPLETED, execution.getBatchStatus());
+		assertWithMessage("Step after the split ran on the job's thread", ThreadTrackingJobListener.GOOD_EXIT, execution.getExitStatus());
+		assertWithMessage("Step before the split ended", true, SplitFlowRecorder.isBeforeEnded());
+		assertWithMessage("Flow steps run", flows, SplitFlowRecorder.getFlowCount());
+		assertWithMessage("Flow steps ended", flows, SplitFlowRecorder.getEndedFlowCount());
+		assertWithMessage("Step after the split started", true, SplitFlowRecorder.isAfterStarted());
+
+		for (StepExecution stepExecution : jobOp.getStepExecutions(execution.getExecutionId())) {
+			if (SplitFlowBatchlet.AFTER.equals(stepExecution.getStepName())) {
+				for (Properties record : ThreadDescriptor.parseRecords(stepExecution.getExitStatus())) {
+					if (record.containsKey(ThreadRecordingStepListener.LISTENER)) {
+						return record.getProperty(ThreadDescriptor.THREAD);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * before, then a split of flow1 ... flowN with one step each, then after, which has the thread tracking step listener.
+	 */
+	private static String splitJobXML(String jobId, int flows) {
+		StringBuilder buf = new StringBuilder(1024 + 320 * flows);
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buf.append("<job id=\"").append(jobId).append("\" xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"1.0\">\n");
+		buf.append("    <listeners>\n        <listener ref=\"threadTrackingJobListener\"/>\n    </listeners>\n");
+		buf.append("    <step id=\"before\" next=\"split\">\n");
+		appendBatchlet(buf, "        ", SplitFlowBatchlet.BEFORE);
+		buf.append("    </step>\n");
+		buf.append("    <split id=\"split\" next=\"after\">\n");
+		for (int f = 1; f <= flows; f++) {
+			buf.append("        <flow id=\"flow").append(f).append("\">\n");
+			buf.append("            <step id=\"flow").append(f).append(".step\">\n");
+			appendBatchlet(buf, "                ", SplitFlowBatchlet.FLOW);
+			buf.append("            </step>\n");
+			buf.append("        </flow>\n");
+		}
+		buf.append("    </split>\n");
+		buf.append("    <step id=\"after\">\n");
+		buf.append("        <listeners>\n            <listener ref=\"threadTrackingStepListener\"/>\n            <listener ref=\"threadRecordingStepListener\"/>\n        </listeners>\n");
+		appendBatchlet(buf, "        ", SplitFlowBatchlet.AFTER);
+		buf.append("    </step>\n");
+		buf.append("</job>\n");
+		return buf.toString();
+	}
+
+	private static void appendBatchlet(StringBuilder buf, String indent, String role) {
+		buf.append(indent).append("<batchlet ref=\"splitFlowBatchlet\">\n");
+		buf.append(indent).append("    <properties>\n");
+		buf.append(indent).append("        <property name=\"role\" value=\"").append(role).append("\"/>\n");
+		if (SplitFlowBatchlet.FLOW.equals(role)) {
+			buf.append(indent).append("        <property name=\"work\" value=\"#{jobParameters['work']}\"/>\n");
+			buf.append(indent).append("        <property name=\"work.millis\" value=\"#{jobParameters['work.millis']}\"/>\n");
+		}
+		buf.append(indent).append("    </properties>\n");
+		buf.append(indent).append("</batchlet>\n");
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.LatencySamples;
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
+
+/**
+ * Measures how long a job takes to reach STOPPED once JobOperator.stop() is called on it, for:
+ * <ul>
+ * <li>batchlet - a single step running MyLongRunningBatchletImpl with run.indefinitely (job_batchlet_longrunning.xml)</li>
+ * <li>partitionedBatchlet - the same batchlet in 4 partitions (job_batchlet_longrunning_partitioned.xml)</li>
+ * <li>splitBatchlet - the same batchlet in each of the 4 flows of a split (bench_stop_split.xml)</li>
+ * <li>chunk - a chunk step whose pacedItemReader never runs out of items (bench_stop_chunk.xml)</li>
+ * </ul>
+ * Each job is stopped at a random point: once every batchlet (or chunk step) has signaled through
+ * {@link JobExecutionRunningSignals} that it's running, the test waits up to bench.stop.max.delay.millis
+ * more before stopping it.  The execution is then polled every bench.stop.poll.micros until it's STOPPED,
+ * and the percentiles of the time stop() took to return and of the time to STOPPED are reported.
+ *
+ * Configured through system properties:
+ * <ul>
+ * <li>bench.stop.iterations - stops measured per scenario, default 20, after bench.stop.warmup (default 2) unmeasured ones</li>
+ * <li>bench.stop.max.delay.millis - longest random delay before each stop, default 100</li>
+ * <li>bench.stop.poll.micros - how often the batch status is polled after each stop, default 500</li>
+ * <li>bench.stop.timeout.millis - longest wait for each job to be running, and then to be STOPPED, default 60000</li>
+ * <li>bench.stop.seed - seed of the random delays, default 352</li>
+ * <li>bench.stop.item.count and bench.stop.item.delay.micros - item-count of the chunk step, default 100,
+ * and the delay between its reads, default 100</li>
+ * </ul>
+ * The jobs must run in the same JVM as the test, since the running signals are only raised in the JVM
+ * running the artifacts: otherwise no signal arrives, and each scenario fails once bench.stop.timeout.millis
+ * has passed, rather than measuring stops at an unknown point in the job.
+ */
+public class StopLatencyBenchmark extends BenchmarkBase {
+
+	private int iterations;
+	private int warmup;
+	private long maxDelayMillis;
+	private long pollNanos;
+	private long timeoutMillis;
+	private Random random;
+	private String itemCount;
+	private String itemDelayMicros;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		iterations = Integer.parseInt(System.getProperty("bench.stop.iterations", "20"));
+		warmup = Integer.parseInt(System.getProperty("bench.stop.warmup", "2"));
+		maxDelayMillis = Long.parseLong(System.getProperty("bench.stop.max.delay.millis", "100"));
+		pollNanos = 1000L * Long.parseLong(System.getProperty("bench.stop.poll.micros", "500"));
+		timeoutMillis = Long.parseLong(System.getProperty("bench.stop.timeout.millis", "60000"));
+		random = new Random(Long.parseLong(System.getProperty("bench.stop.seed", "352")));
+		itemCount = System.getProperty("bench.stop.item.count", "100");
+		itemDelayMicros = System.getProperty("bench.stop.item.delay.micros", "100");
+	}
+
+	@DataProvider(name = "scenarios")
+	public Object[][] scenarios() {
+		return new Object[][] {
+				{ "batchlet", "job_batchlet_longrunning", 1 },
+				{ "partitionedBatchlet", "job_batchlet_longrunning_partitioned", 4 },
+				{ "splitBatchlet", "bench_stop_split", 4 },
+				{ "chunk", "bench_stop_chunk", 1 } };
+	}
+
+	@Test(dataProvider = "scenarios")
+	public void testStopLatency(String scenario, String jobName, int runningSignals) throws Exception {
+		Reporter.log("Stop " + jobName + " " + iterations + " times, after " + runningSignals + " running signals and a random delay of up to "
+				+ maxDelayMillis + " ms<p>");
+
+		LatencySamples stopCalls = new LatencySamples(iterations);
+		LatencySamples stopLatencies = new LatencySamples(iterations);
+		for (int i = -warmup; i < iterations; i++) {
+			JobExecution execution = jobOp.startJobWithoutWaitingForResult(jobName, jobParameters());
+			long executionId = execution.getExecutionId();
+
+			boolean running = JobExecutionRunningSignals.await(executionId, runningSignals, timeoutMillis);
+			assertWithMessage("Execution " + executionId + " signaled running within " + timeoutMillis
+					+ " ms (the job must run in the test's JVM)", true, running);
+			if (maxDelayMillis > 0) {
+				Thread.sleep(random.nextInt((int) maxDelayMillis + 1));
+			}
+
+			long stopCalled = System.nanoTime();
+			jobOp.stopJobWithoutWaitingForResult(executionId);
+			long stopReturned = System.nanoTime();
+			BatchStatus status = pollUntilTerminated(executionId, stopCalled);
+			long stopped = System.nanoTime();
+
+			assertWithMessage("Execution " + executionId + " batch status", BatchStatus.STOPPED, status);
+			if (i >= 0) {
+				stopCalls.record(stopReturned - stopCalled);
+				stopLatencies.record(stopped - stopCalled);
+			}
+		}
+
+		String result = String.format("%s: stop() p50=%.2fms max=%.2fms, stop to STOPPED p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+				scenario, millis(stopCalls.getPercentile(50)), millis(stopCalls.getMax()),
+				millis(stopLatencies.getPercentile(50)), millis(stopLatencies.getPercentile(90)),
+				millis(stopLatencies.getPercentile(99)), millis(stopLatencies.getMax()));
+		addResult(result);
+	}
+
+	@Override
+	protected String resultsHeading() {
+		return "Stop latency results";
+	}
+
+	private Properties jobParameters() {
+		Properties jobParams = new Properties();
+		jobParams.setProperty("run.indefinitely", "true");
+		jobParams.setProperty("item.count", itemCount);
+		jobParams.setProperty("item.delay.micros", itemDelayMicros);
+		return jobParams;
+	}
+
+	/*
+	 * Polls rather than using the JobExecutionWaiter, whose poll interval could well be longer than the
+	 * latency being measured.
+	 */
+	private BatchStatus pollUntilTerminated(long executionId, long stopCalled) throws Exception {
+		long deadline = stopCalled + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (true) {
+			BatchStatus status = jobOp.getJobExecution(executionId).getBatchStatus();
+			if (status != BatchStatus.STARTING && status != BatchStatus.STARTED && status != BatchStatus.STOPPING) {
+				return status;
+			}
+			if (System.nanoTime() - deadline > 0) {
+				return status;
+			}
+			LockSupport.parkNanos(pollNanos);
+		}
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.bench;
+
+import static com.ibm.jbatch.tck.utils.AssertionUtils.assertWithMessage;
+
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+import javax.batch.runtime.StepExecution;
+
+import org.testng.Reporter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.jbatch.tck.artifacts.perf.CheckpointIntervalListener;
+import com.ibm.jbatch.tck.artifacts.perf.ThroughputRecorder;
+import com.ibm.jbatch.tck.utils.JobOperatorBridge;
+
+/**
+ * Measures how precisely time-based checkpoints are taken, with checkpointIntervalListener timing each
+ * chunk of a step whose items arrive from pacedItemReader at a steady rate:
+ * <ul>
+ * <li>with the time-limit attribute, bench.checkpoint.time.limit seconds (default 1) per chunk for
+ * about bench.checkpoint.count chunks (default 5)</li>
+ * <li>in accelerated mode, with timeLimitCheckpointAlgorithm, bench.checkpoint.accelerated.millis
+ * milliseconds (default 20) per chunk for about bench.checkpoint.accelerated.count chunks (default 100)</li>
+ * </ul>
+ * A checkpoint may not be taken before the limit, and is expected within bench.checkpoint.tolerance.millis
+ * (default 100) after it.  The jitter and drift of the intervals are reported.
+ */
+public class TimeCheckpointPrecisionTests {
+
+	private static final String JOB_NAME = "bench_time_checkpoint";
+	private static final String ACCELERATED_JOB_NAME = "bench_time_checkpoint_accelerated";
+
+	private static final long ITEM_DELAY_MICROS = 1000;
+	private static final long ACCELERATED_ITEM_DELAY_MICROS = 200;
+
+	private static volatile JobOperatorBridge jobOp = null;
+
+	private long toleranceNanos;
+
+	@BeforeClass
+	public void setup() throws Exception {
+		jobOp = new JobOperatorBridge();
+		toleranceNanos = 1000000L * Long.parseLong(System.getProperty("bench.checkpoint.tolerance.millis", "100"));
+	}
+
+	@Test
+	public void testTimeLimitCheckpointIntervals() throws Exception {
+		int timeLimit = Integer.parseInt(System.getProperty("bench.checkpoint.time.limit", "1"));
+		int checkpoints = Integer.parseInt(System.getProperty("bench.checkpoint.count", "5"));
+
+		Properties jobParams = new Properties();
+		jobParams.setProperty("time.limit", String.valueOf(timeLimit));
+		jobParams.setProperty("target.millis", String.valueOf(timeLimit * 1000L));
+		Properties summary = runJob(JOB_NAME, jobParams, timeLimit * 1000L, checkpoints, ITEM_DELAY_MICROS);
+		checkIntervals(summary, timeLimit * 1000L, checkpoints, ITEM_DELAY_MICROS);
+	}
+
+	@Test
+	public void testAcceleratedCheckpointIntervals() throws Exception {
+		long timeLimitMillis = Long.parseLong(System.getProperty("bench.checkpoint.accelerated.millis", "20"));
+		int checkpoints = Integer.parseInt(System.getProperty("bench.checkpoint.accelerated.count", "100"));
+
+		Properties jobParams = new Properties();
+		jobParams.setProperty("time.limit.millis", String.valueOf(timeLimitMillis));
+		Properties summary = runJob(ACCELERATED_JOB_NAME, jobParams, timeLimitMillis, checkpoints, ACCELERATED_ITEM_DELAY_MICROS);
+		checkIntervals(summary, timeLimitMillis, checkpoints, ACCELERATED_ITEM_DELAY_MICROS);
+	}
+
+	/*
+	 * Reads enough items for the given number of full chunks, and then half a chunk more for the
+	 * last one, which ends with the input rather than the time limit.
+	 */
+	private static Properties runJob(String jobName, Properties jobParams, long timeLimitMillis, int checkpoints, long itemDelayMicros)
+			throws Exception {
+		long itemsPerChunk = timeLimitMillis * 1000 / itemDelayMicros;
+		long items = checkpoints * itemsPerChunk + itemsPerChunk / 2;
+		jobParams.setProperty("items", String.valueOf(items));
+		jobParams.setProperty("item.delay.micros", String.valueOf(itemDelayMicros));
+		Reporter.log("Run " + jobName + " with " + items + " items, one every " + itemDelayMicros + " us, checkpoint every "
+				+ timeLimitMillis + " ms<p>");
+
+		JobExecution execution = jobOp.startJobAndWaitForResult(jobName, jobParams);
+		assertWithMessage("Testing execution", BatchStatus.COMPLETED, execution.getBatchStatus());
+
+		List<StepExecution> steps = jobOp.getStepExecutions(execution.getExecutionId());
+		assertWithMessage("Number of StepExecutions", 1, steps.size());
+		String exitStatus = steps.get(0).getExitStatus();
+		Reporter.log("Checkpoint intervals = " + exitStatus + "<p>");
+		return ThroughputRecorder.parseSummary(exitStatus);
+	}
+
+	/*
+	 * The number of checkpoints is only roughly the one asked for, since each read takes a little longer
+	 * than the item delay, and more so for shorter delays.
+	 */
+	private void checkIntervals(Properties summary, long timeLimitMillis, int checkpoints, long itemDelayMicros) {
+		long target = 1000000L * timeLimitMillis;
+		long overshootMin = get(summary, CheckpointIntervalListener.OVERSHOOT_MIN);
+		long overshootMax = get(summary, CheckpointIntervalListener.OVERSHOOT_MAX);
+		long checkpointsTaken = get(summary, CheckpointIntervalListener.CHECKPOINTS);
+
+		Reporter.log("Target " + timeLimitMillis + " ms: mean interval " + micros(get(summary, CheckpointIntervalListener.INTERVAL_MEAN))
+				+ ", jitter " + micros(get(summary, CheckpointIntervalListener.JITTER)) + ", drift " + micros(get(summary, CheckpointIntervalListener.DRIFT))
+				+ ", overshoot " + micros(overshootMin) + " to " + micros(overshootMax) + "<p>");
+
+		assertWithMessage("Target", target, get(summary, CheckpointIntervalListener.TARGET));
+		assertWithMessage(checkpointsTaken + " checkpoints taken, enough to measure intervals", true, checkpointsTaken >= Math.min(checkpoints, 2));
+		// Allow for the limit being checked only as each item is read
+		assertWithMessage("No checkpoint before the time limit, overshootMin=" + overshootMin, true, overshootMin >= -1000L * itemDelayMicros);
+		assertWithMessage("Every checkpoint within the tolerance after the time limit, overshootMax=" + overshootMax, true,
+				overshootMax <= toleranceNanos + 1000L * itemDelayMicros);
+	}
+
+	private static long get(Properties summary, String key) {
+		return Long.parseLong(summary.getProperty(key));
+	}
+
+	private static String micros(long nanos) {
+		return (nanos / 1000) + " us";
+	}
+}
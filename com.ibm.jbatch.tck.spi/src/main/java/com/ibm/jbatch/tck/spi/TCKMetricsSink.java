@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.tck.spi;
+
+/**
+ * Receives timing events from the TCK test driver and from the TCK artifacts, so that
+ * a TCK run can also serve as a performance profile of the implementation under test.
+ *
+ * <p>
+ * The test driver reports job start latency and job completion. Artifacts such as the
+ * TCK's metrics listener report the step-level timings. In an EE environment those come
+ * from a separate instance of the sink loaded in the server.
+ *
+ * <p>
+ * Methods may be called concurrently from the test threads and from the threads the
+ * implementation runs jobs on, so implementations must be thread-safe.  They should
+ * also be cheap, since the step-level events are reported from the chunk processing loop.
+ *
+ * <p>
+ * All durations are in nanoseconds, as measured with System.nanoTime().
+ */
+public interface TCKMetricsSink {
+
+	/**
+	 * @param jobName The job XML name passed to JobOperator.start() (or of the job being restarted).
+	 * @param executionId JobExecution id returned by JobOperator.start() or restart().
+	 * @param startLatency Time JobOperator.start() or restart() took to return.
+	 */
+	public void jobStarted(String jobName, long executionId, long startLatency);
+
+	/**
+	 * Called by the test driver once the execution has reached a "final" state.  After this
+	 * no more events are expected for the execution.
+	 *
+	 * @param executionId JobExecution id
+	 * @param batchStatus Final batch status of the execution.
+	 * @see JobExecutionWaiter#awaitTermination
+	 */
+	public void jobEnded(long executionId, String batchStatus);
+
+	/**
+	 * @param executionId JobExecution id
+	 * @param stepName Step name
+	 * @param timeToFirstRead Time from the start of the step to the return of the first readItem().
+	 */
+	public void firstRead(long executionId, String stepName, long timeToFirstRead);
+
+	/**
+	 * @param executionId JobExecution id
+	 * @param stepName Step name
+	 * @param chunk Number of the chunk within this step execution (or partition), starting at 1.
+	 * @param readTime Total time spent in readItem() during the chunk.
+	 * @param processTime Total time spent in processItem() during the chunk.
+	 * @param writeTime Time spent in writeItems() for the chunk.
+	 */
+	public void chunkCompleted(long executionId, String stepName, int chunk, long readTime, long processTime, long writeTime);
+
+	/**
+	 * @param executionId JobExecution id
+	 * @param stepName Step name
+	 * @param chunk Number of the chunk whose checkpoint was taken, starting at 1.
+	 * @param checkpointTime Time from the end of writeItems() to the start of the next chunk (or the end of the step).
+	 * This covers everything the implementation does at the chunk boundary, including
+	 * collecting and persisting the checkpoint and committing the transaction.
+	 */
+	public void checkpointCompleted(long executionId, String stepName, int chunk, long checkpointTime);
+}
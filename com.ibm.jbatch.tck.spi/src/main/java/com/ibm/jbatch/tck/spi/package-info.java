@@ -26,6 +26,13 @@
  * The TCK itself ships with a default implementation of this SPI (using polling).
  * The expectation therefore is that the typical JSR 352 implementation will not need
  * to implement this SPI, but will use the default implementation.
+ * Tests that start several jobs before waiting for any of them get one waiter per job, each
+ * blocking a thread of its own until its job ends; only with the default implementation are these waits
+ * replaced by a single shared polling thread.
+ * 
+ * <p>
+ * The optional TCKMetricsSink receives timing events from the TCK, for an implementation
+ * wanting to profile itself while running the TCK.  The default implementation writes them to files.
  * 
  * <p>
  * For more details, see the documentation in the TCK Reference Guide.
@@ -54,13 +54,13 @@ public class ConnectionHelper {
 	 */
 	public static Connection getConnection(DataSource dataSource) throws SQLException {
 
-		Connection conn = dataSource.getConnection();
+		Connection conn = PooledConnectionCache.getConnection(dataSource);
 		return conn;
 	}
 	
 	
 	public static Connection getConnection(DataSource dataSource, boolean autoCommit) throws SQLException {
-		Connection conn = dataSource.getConnection();
+		Connection conn = PooledConnectionCache.getConnection(dataSource);
 		conn.setAutoCommit(autoCommit);
 		
 		return conn;
@@ -96,12 +96,6 @@ public class ConnectionHelper {
 				conn.close();
 			} catch (SQLException e) {
 				throw new RuntimeException(e);
-			} finally {
-				try {
-					conn.close();
-				} catch (SQLException e) {
-					throw new RuntimeException(e);
-				}
 			}
 		}
 		logger.exiting(CLASSNAME, "cleanupConnection");
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2013 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.chunkartifacts;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import javax.batch.api.chunk.AbstractItemReader;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.InventoryCheckpointData;
+import com.ibm.jbatch.tck.artifacts.chunktypes.InventoryRecord;
+
+/**
+ * Alternative to InventoryReader that produces the same orders (one per unit of item 1) with one
+ * SELECT and one UPDATE per chunk rather than per item.
+ * 
+ * The first readItem() of each chunk reads the quantity, later reads of the chunk take units off it
+ * in memory, and checkpointInfo(), which runs in the chunk's transaction before the commit, writes the
+ * new quantity back.  So the inventory and the orders written in the same chunk still commit or roll
+ * back together.  A connection is only checked out for each of those two statements, so none is held
+ * across transactions, and the quantity is read again after open(), e.g. when a chunk is retried.
+ */
+@javax.inject.Named("inventoryChunkReader")
+public class InventoryChunkReader extends AbstractItemReader {
+
+	private static final String CLASSNAME = InventoryChunkReader.class.getName();
+	private final static Logger logger = Logger.getLogger(CLASSNAME);
+
+	private static final int UNKNOWN = -1;
+
+	protected DataSource dataSource = null;
+
+	@Inject
+	StepContext stepCtx;
+
+	int readerIndex = 0; //the number of items that have already been read
+	InventoryCheckpointData inventoryCheckpoint = new InventoryCheckpointData();
+
+	private int quantity = UNKNOWN; // item 1's quantity, as of the last item read in this chunk
+	private boolean updatePending = false;
+
+	@Override
+	public void open(Serializable cpd) throws NamingException {
+
+		InventoryCheckpointData checkpointData = (InventoryCheckpointData)cpd;
+
+		InitialContext ctx = new InitialContext();
+		dataSource = (DataSource) ctx.lookup(ConnectionHelper.jndiName);
+
+		if (cpd != null) {
+			this.readerIndex = checkpointData.getInventoryCount();
+			// As in InventoryReader, see Bug 5490
+			stepCtx.setTransientUserData(this.readerIndex);
+		}
+		this.inventoryCheckpoint.setInventoryCount(readerIndex);
+		quantity = UNKNOWN;
+		updatePending = false;
+	}
+
+	@Override
+	public InventoryRecord readItem() throws Exception {
+
+		if (quantity == UNKNOWN) {
+			quantity = selectQuantity();
+		}
+
+		//If we run out of items we are done so stop processing orders
+		if (quantity < 1) {
+			return null;
+		}
+
+		quantity--;
+		updatePending = true;
+
+		readerIndex++;
+		this.inventoryCheckpoint.setInventoryCount(readerIndex);
+
+		return new InventoryRecord(1, 1); //Every order only orders 1 item
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		if (updatePending) {
+			updateQuantity(quantity);
+			updatePending = false;
+		}
+		quantity = UNKNOWN;
+
+		logger.finer("InventoryChunkReader.checkpointInfo() index = " + this.inventoryCheckpoint.getInventoryCount());
+		return this.inventoryCheckpoint;
+	}
+
+	private int selectQuantity() throws SQLException {
+		Connection connection = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+
+		try {
+			connection = ConnectionHelper.getConnection(dataSource);
+			statement = connection.prepareStatement(ConnectionHelper.SELECT_INVENTORY);
+			statement.setInt(1, 1);
+			rs = statement.executeQuery();
+
+			int selected = 0;
+			while (rs.next()) {
+				selected = rs.getInt("quantity");
+			}
+			return selected;
+		} finally {
+			ConnectionHelper.cleanupConnection(connection, rs, statement);
+		}
+	}
+
+	private void updateQuantity(int newQuantity) throws SQLException {
+		Connection connection = null;
+		PreparedStatement statement = null;
+
+		try {
+			connection = ConnectionHelper.getConnection(dataSource);
+			statement = connection.prepareStatement(ConnectionHelper.UPDATE_INVENTORY);
+			statement.setInt(1, newQuantity);
+			statement.setInt(2, 1);
+			statement.executeUpdate();
+		} finally {
+			ConnectionHelper.cleanupConnection(connection, null, statement);
+		}
+	}
+}
@@ -66,6 +66,9 @@ public class InventoryStepListener extends AbstractStepListener implements Statu
 
         String exitStatus = "Inventory=" + finalInventoryCount + " InitialCheckpoint=" + initCheckpoint + " OrderCount="+orderCount;
         jobCtx.setExitStatus(exitStatus);
+
+        // Don't keep connections open between steps, if the (SE only) connection cache is enabled
+        PooledConnectionCache.closeAll();
     }
 
     
@@ -44,8 +44,18 @@ public class InventoryWriter extends AbstractItemWriter {
     @BatchProperty(name = "dummy.delay.seconds")
     String dummyDelayProp;
 
+    /*
+     * When true, the chunk's inserts are sent as one JDBC batch (addBatch/executeBatch)
+     * rather than one executeUpdate per record.
+     */
+    @Inject
+    @BatchProperty(name = "batch.updates")
+    String batchUpdatesProp;
+
     int forcedFailCount, dummyDelay = -1;
 
+    boolean batchUpdates = false;
+
     int writerIndex = 0; // the number of items that have already been written
 
     @Override
@@ -56,6 +66,7 @@ public class InventoryWriter extends AbstractItemWriter {
 
         forcedFailCount = Integer.parseInt(forcedFailCountProp);
         dummyDelay = Integer.parseInt(dummyDelayProp);
+        batchUpdates = Boolean.parseBoolean(batchUpdatesProp);
 
     }
 
@@ -71,15 +82,19 @@ public class InventoryWriter extends AbstractItemWriter {
 
         try {
             connection = ConnectionHelper.getConnection(dataSource);
+            statement = connection.prepareStatement(ConnectionHelper.INSERT_ORDER);
 
             for (Object record : records) {
                 itemID = ((InventoryRecord)record).getItemID();
                 quantity = ((InventoryRecord)record).getQuantity();
 
-                statement = connection.prepareStatement(ConnectionHelper.INSERT_ORDER);
                 statement.setInt(1, itemID);
                 statement.setInt(2, quantity);
-                int rs = statement.executeUpdate();
+                if (batchUpdates) {
+                    statement.addBatch();
+                } else {
+                    statement.executeUpdate();
+                }
 
                 writerIndex++;
                 
@@ -95,6 +110,10 @@ public class InventoryWriter extends AbstractItemWriter {
                     }
                 }
             }
+
+            if (batchUpdates) {
+                statement.executeBatch();
+            }
         } catch (SQLException e) {
             throw e;
         } finally {
@@ -0,0 +1,398 @@
+/**
+ * Copyright 2013 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.chunkartifacts;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps the connections handed out by ConnectionHelper and RetryConnectionHelper open
+ * after the artifacts close them, along with an LRU cache of each connection's prepared statements
+ * keyed by SQL string, so that the JDBC-backed tests don't measure connection establishment
+ * and statement preparation on every read and write.
+ *
+ * The artifacts don't change: they get a Connection proxy whose close() returns the physical connection
+ * to an idle pool for its DataSource, and whose prepareStatement(String) returns a PreparedStatement proxy
+ * whose close() only clears the parameters and returns it to the statement cache.
+ *
+ * For SE runs only, where chunk transactions don't involve JDBC and the DataSource is often an unpooled
+ * driver DataSource.  Don't enable it in EE: a connection kept here is outside the container's control, so it
+ * wouldn't be enlisted in the global transaction of a later chunk, and its work wouldn't commit or roll back
+ * with the chunk.  As a safeguard, a connection that is returned with autoCommit off (e.g. enlisted in a global
+ * transaction) is really closed rather than pooled.
+ *
+ * The idle connections are really closed by {@link #closeAll()}, which InventoryStepListener calls after each
+ * step.  The retry jobs have no such listener, so up to tck.jdbc.cache.connections of theirs stay open.
+ *
+ * Disabled by default.  System properties:
+ * <ul>
+ * <li>tck.jdbc.cache - "true" to enable</li>
+ * <li>tck.jdbc.cache.connections - idle connections kept per DataSource, default 4</li>
+ * <li>tck.jdbc.cache.statements - statements cached per connection, default 16</li>
+ * </ul>
+ */
+public class PooledConnectionCache {
+
+	private static final String CLASSNAME = PooledConnectionCache.class.getName();
+	private final static Logger logger = Logger.getLogger(CLASSNAME);
+
+	public static final String ENABLED_PROP = "tck.jdbc.cache";
+	public static final String MAX_IDLE_CONNECTIONS_PROP = "tck.jdbc.cache.connections";
+	public static final String MAX_STATEMENTS_PROP = "tck.jdbc.cache.statements";
+
+	// The cache used by the artifacts, if it's enabled
+	private static final PooledConnectionCache shared = Boolean.getBoolean(ENABLED_PROP)
+			? new PooledConnectionCache(Integer.getInteger(MAX_IDLE_CONNECTIONS_PROP, 4), Integer.getInteger(MAX_STATEMENTS_PROP, 16))
+			: null;
+
+	private final int maxIdleConnections;
+	private final int maxStatements;
+	private final ConcurrentMap<DataSource, Pool> pools = new ConcurrentHashMap<DataSource, Pool>();
+
+	public PooledConnectionCache(int maxIdleConnections, int maxStatements) {
+		this.maxIdleConnections = maxIdleConnections;
+		this.maxStatements = maxStatements;
+	}
+
+	public static boolean isEnabled() {
+		return shared != null;
+	}
+
+	/**
+	 * @return a pooled connection if the cache is enabled, or else a connection straight from the DataSource
+	 */
+	public static Connection getConnection(DataSource dataSource) throws SQLException {
+		if (shared == null) {
+			return dataSource.getConnection();
+		}
+		return shared.borrow(dataSource);
+	}
+
+	/**
+	 * Really closes all the idle connections (and their statements) of the cache used by the artifacts, if it's enabled.
+	 */
+	public static void closeAll() {
+		if (shared != null) {
+			shared.closeIdle();
+		}
+	}
+
+	/**
+	 * @return a connection whose close() returns it to this cache's idle connections for the DataSource
+	 */
+	public Connection borrow(DataSource dataSource) throws SQLException {
+		Pool pool = pools.get(dataSource);
+		if (pool == null) {
+			Pool newPool = new Pool(dataSource);
+			pool = pools.putIfAbsent(dataSource, newPool);
+			if (pool == null) {
+				pool = newPool;
+			}
+		}
+		return pool.borrow();
+	}
+
+	/**
+	 * Really closes all the idle connections (and their statements).
+	 */
+	public void closeIdle() {
+		for (Pool pool : pools.values()) {
+			pool.closeIdle();
+		}
+	}
+
+	private class Pool {
+
+		private final DataSource dataSource;
+		private final ArrayDeque<PhysicalConnection> idle = new ArrayDeque<PhysicalConnection>();
+
+		Pool(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		Connection borrow() throws SQLException {
+			PhysicalConnection physical;
+			synchronized (this) {
+				physical = idle.pollFirst();
+			}
+			while (physical != null && physical.connection.isClosed()) {
+				synchronized (this) {
+					physical = idle.pollFirst();
+				}
+			}
+			if (physical == null) {
+				physical = new PhysicalConnection(this, dataSource.getConnection());
+			}
+			return physical.newHandle();
+		}
+
+		void release(PhysicalConnection physical) {
+			try {
+				if (physical.connection.isClosed() || !physical.connection.getAutoCommit()) {
+					physical.close();
+					return;
+				}
+				physical.resetStatements();
+			} catch (SQLException e) {
+				logger.log(Level.FINE, "Discarding connection that couldn't be reset", e);
+				physical.close();
+				return;
+			}
+			synchronized (this) {
+				if (idle.size() < maxIdleConnections) {
+					idle.addFirst(physical);
+					return;
+				}
+			}
+			physical.close();
+		}
+
+		void closeIdle() {
+			List<PhysicalConnection> toClose;
+			synchronized (this) {
+				toClose = new ArrayList<PhysicalConnection>(idle);
+				idle.clear();
+			}
+			for (PhysicalConnection physical : toClose) {
+				physical.close();
+			}
+		}
+	}
+
+	/**
+	 * A connection from the DataSource, used by one borrower at a time.
+	 *
+	 * Each borrow gets a new handle (proxy), stamped with the borrow's generation, so
+	 * handles kept by earlier borrowers are seen as closed.
+	 */
+	private class PhysicalConnection {
+
+		final Pool pool;
+		final Connection connection;
+		volatile int generation = 0;
+
+		private final LinkedHashMap<String, CachedStatement> statements =
+				new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+						if (size() > maxStatements) {
+							eldest.getValue().evict();
+							return true;
+						}
+						return false;
+					}
+				};
+
+		PhysicalConnection(Pool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+		}
+
+		Connection newHandle() {
+			generation++;
+			return (Connection) Proxy.newProxyInstance(PooledConnectionCache.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new ConnectionHandle(this, generation));
+		}
+
+		/*
+		 * Returns the cached statement for this SQL, unless it's still in use by the borrower,
+		 * in which case it gets a new uncached one.
+		 */
+		PreparedStatement prepare(String sql, Connection handle, int handleGeneration) throws SQLException {
+			CachedStatement cached = statements.get(sql);
+			if (cached == null) {
+				cached = new CachedStatement(connection.prepareStatement(sql));
+				statements.put(sql, cached);
+			} else if (cached.inUse) {
+				return connection.prepareStatement(sql);
+			}
+			cached.inUse = true;
+			return (PreparedStatement) Proxy.newProxyInstance(PooledConnectionCache.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new StatementHandle(this, cached, handle, handleGeneration));
+		}
+
+		void resetStatements() throws SQLException {
+			for (CachedStatement cached : statements.values()) {
+				if (cached.inUse) {
+					cached.release();
+				}
+			}
+		}
+
+		void close() {
+			for (CachedStatement cached : statements.values()) {
+				cached.evict();
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				logger.log(Level.FINE, "Ignoring failure to close pooled connection", e);
+			}
+		}
+	}
+
+	private static class CachedStatement {
+
+		final PreparedStatement statement;
+		boolean inUse = false;
+		boolean evicted = false;
+
+		CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+		}
+
+		void release() throws SQLException {
+			inUse = false;
+			if (evicted) {
+				statement.close();
+			} else {
+				statement.clearParameters();
+				statement.clearBatch();
+			}
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					logger.log(Level.FINE, "Ignoring failure to close cached statement", e);
+				}
+			}
+		}
+	}
+
+	private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static class ConnectionHandle implements InvocationHandler {
+
+		private final PhysicalConnection physical;
+		private final int generation;
+		private boolean closed = false;
+
+		ConnectionHandle(PhysicalConnection physical, int generation) {
+			this.physical = physical;
+			this.generation = generation;
+		}
+
+		boolean isClosed() {
+			return closed || generation != physical.generation;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!isClosed()) {
+					closed = true;
+					physical.pool.release(physical);
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return isClosed() || physical.connection.isClosed();
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "PooledConnectionCache handle for " + physical.connection;
+			}
+
+			if (isClosed()) {
+				throw new SQLException("Connection handle is closed");
+			}
+			if (name.equals("prepareStatement") && args.length == 1) {
+				return physical.prepare((String) args[0], (Connection) proxy, generation);
+			}
+			return delegate(physical.connection, method, args);
+		}
+	}
+
+	private static class StatementHandle implements InvocationHandler {
+
+		private final PhysicalConnection physical;
+		private final CachedStatement cached;
+		private final Connection connectionHandle;
+		private final int generation;
+		private boolean closed = false;
+
+		StatementHandle(PhysicalConnection physical, CachedStatement cached, Connection connectionHandle, int generation) {
+			this.physical = physical;
+			this.cached = cached;
+			this.connectionHandle = connectionHandle;
+			this.generation = generation;
+		}
+
+		boolean isClosed() {
+			return closed || generation != physical.generation;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!isClosed()) {
+					closed = true;
+					cached.release();
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return isClosed();
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "PooledConnectionCache handle for " + cached.statement;
+			}
+
+			if (isClosed()) {
+				throw new SQLException("Statement handle is closed");
+			}
+			if (name.equals("getConnection")) {
+				return connectionHandle;
+			}
+			return delegate(cached.statement, method, args);
+		}
+	}
+}
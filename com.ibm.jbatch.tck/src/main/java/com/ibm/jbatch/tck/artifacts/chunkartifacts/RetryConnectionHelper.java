@@ -47,13 +47,13 @@ public class RetryConnectionHelper {
 	 */
 	public static Connection getConnection(DataSource dataSource) throws SQLException {
 		
-		Connection conn = dataSource.getConnection();
+		Connection conn = PooledConnectionCache.getConnection(dataSource);
 		return conn;
 	}
 	
 	
 	public static Connection getConnection(DataSource dataSource, boolean autoCommit) throws SQLException {
-		Connection conn = dataSource.getConnection();
+		Connection conn = PooledConnectionCache.getConnection(dataSource);
 		conn.setAutoCommit(autoCommit);
 		
 		return conn;
@@ -89,12 +89,6 @@ public class RetryConnectionHelper {
 				conn.close();
 			} catch (SQLException e) {
 				throw new RuntimeException(e);
-			} finally {
-				try {
-					conn.close();
-				} catch (SQLException e) {
-					throw new RuntimeException(e);
-				}
 			}
 		}
 		logger.exiting(CLASSNAME, "cleanupConnection");
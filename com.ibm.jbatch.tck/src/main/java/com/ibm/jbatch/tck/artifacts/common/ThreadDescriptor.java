@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.common;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Describes the thread an artifact runs on, including whether it's a virtual thread and, if so,
+ * the carrier thread it's currently mounted on, in a form that can be passed back through exit statuses.
+ *
+ * Virtual threads are detected reflectively (Thread.isVirtual() only exists from Java 21), so on older
+ * JVMs every thread is reported as a platform thread.  There's no API for the carrier thread, so its name is
+ * taken from the virtual thread's toString(), e.g. "VirtualThread[#22]/runnable@ForkJoinPool-1-worker-1".
+ *
+ * A description is a record of comma-separated key=value pairs; records are separated by ';'.
+ */
+public class ThreadDescriptor {
+
+	public static final String THREAD = "thread";
+	public static final String VIRTUAL = "virtual";
+	public static final String CARRIER = "carrier";
+
+	public static final String RECORD_SEPARATOR = ";";
+	public static final String NONE = "-";
+
+	private static final Method IS_VIRTUAL = findIsVirtual();
+
+	private static Method findIsVirtual() {
+		try {
+			return Thread.class.getMethod("isVirtual");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	public static boolean isVirtual(Thread thread) {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (Boolean) IS_VIRTUAL.invoke(thread);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the name of the carrier thread the virtual thread is mounted on, or null if the thread
+	 * isn't virtual or isn't mounted
+	 */
+	public static String carrierName(Thread thread) {
+		if (!isVirtual(thread)) {
+			return null;
+		}
+		String description = thread.toString();
+		int at = description.lastIndexOf('@');
+		return at < 0 ? null : description.substring(at + 1);
+	}
+
+	/**
+	 * @return "thread=&lt;name&gt;,virtual=&lt;true|false&gt;,carrier=&lt;name or -&gt;"
+	 */
+	public static String describe(Thread thread) {
+		String carrier = carrierName(thread);
+		return pair(THREAD, thread.getName() + "#" + thread.getId())
+				+ "," + pair(VIRTUAL, String.valueOf(isVirtual(thread)))
+				+ "," + pair(CARRIER, carrier == null ? NONE : carrier);
+	}
+
+	/**
+	 * @return key=value, with any separator characters in the value replaced by '_'
+	 */
+	public static String pair(String key, Object value) {
+		return key + "=" + String.valueOf(value).replaceAll("[,;=:]", "_");
+	}
+
+	/**
+	 * @return the records in order, skipping any text (such as a null exit status) that isn't key=value pairs
+	 */
+	public static List<Properties> parseRecords(String records) {
+		List<Properties> parsed = new ArrayList<Properties>();
+		if (records == null) {
+			return parsed;
+		}
+		for (String record : records.split(RECORD_SEPARATOR)) {
+			Properties props = new Properties();
+			for (String pair : record.split(",")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					props.setProperty(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+				}
+			}
+			if (!props.isEmpty()) {
+				parsed.add(props);
+			}
+		}
+		return parsed;
+	}
+}
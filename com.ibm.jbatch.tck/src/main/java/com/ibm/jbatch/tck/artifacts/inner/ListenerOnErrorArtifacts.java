@@ -33,8 +33,8 @@ import javax.inject.Named;
 
 public class ListenerOnErrorArtifacts {
 
-	private static int failOn = 8;
-	private static int max = 10;
+	private static final int failOn = 8;
+	private static final int max = 10;
 
 	@Named("ListenerOnErrorArtifacts.R")
 	public static class R extends AbstractItemReader  {
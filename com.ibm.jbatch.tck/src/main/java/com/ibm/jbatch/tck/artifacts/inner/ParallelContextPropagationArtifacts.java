@@ -27,6 +27,8 @@ import javax.inject.Inject;
 
 import static org.junit.Assert.assertEquals;
 
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+
 public class ParallelContextPropagationArtifacts {
 
 public static String GOOD_EXIT_STATUS = "VERY GOOD INVOCATION";
@@ -129,4 +131,97 @@ public static String GOOD_EXIT_STATUS = "VERY GOOD INVOCATION";
 			jobCtx.setExitStatus(jobCtx.getExitStatus() + data);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Reads the context ids, sets a ThreadLocal to this instance, blocks briefly (which lets a virtual thread
+	 * unmount and resume on another carrier), and checks that the context still gives the same ids.  It then
+	 * describes the ids, the thread, and what happened to the ThreadLocal in a {@link ThreadDescriptor} record.
+	 * The record is returned as the exit status, and left in the step's transient user data for
+	 * PCPThreadTrackingCollector.
+	 *
+	 * The ThreadLocal is removed before returning, so it is "kept" unless the value of another step or partition
+	 * was visible when this one started ("inherited"), or this one's value was gone after blocking ("lost").
+	 */
+	@javax.inject.Named("PCPThreadTrackingBatchlet")
+	public static class PCPThreadTrackingBatchlet extends AbstractBatchlet {
+
+		public static final String THREAD_LOCAL = "threadLocal";
+		public static final String KEPT = "kept";
+		public static final String INHERITED = "inherited";
+		public static final String LOST = "lost";
+
+		private static final long BLOCK_MILLIS = 10;
+
+		private static final ThreadLocal<Object> OWNER = new ThreadLocal<Object>();
+
+		@Inject JobContext jobCtx; @Inject StepContext stepCtx;
+
+		@Override
+		public String process() throws Exception {
+
+			Thread thread = Thread.currentThread();
+			String idsBefore = ids();
+			Object previousOwner = OWNER.get();
+			OWNER.set(this);
+
+			String threadLocalState;
+			try {
+				Thread.sleep(BLOCK_MILLIS);
+
+				String idsAfter = ids();
+				if (!idsAfter.equals(idsBefore)) {
+					throw new Exception("Context ids changed from " + idsBefore + " to " + idsAfter + " after blocking on thread "
+							+ ThreadDescriptor.describe(thread));
+				}
+
+				if (previousOwner != null) {
+					threadLocalState = INHERITED;
+				} else if (OWNER.get() != this) {
+					threadLocalState = LOST;
+				} else {
+					threadLocalState = KEPT;
+				}
+			} finally {
+				OWNER.remove();
+			}
+
+			String record = idsBefore + "," + ThreadDescriptor.describe(thread) + "," + ThreadDescriptor.pair(THREAD_LOCAL, threadLocalState);
+			stepCtx.setTransientUserData(record);
+			return record;
+		}
+
+		private String ids() {
+			return ThreadDescriptor.pair("J", jobCtx.getExecutionId()) + "," + ThreadDescriptor.pair("I", jobCtx.getInstanceId())
+					+ "," + ThreadDescriptor.pair("S", stepCtx.getStepExecutionId());
+		}
+
+		@Override
+		public void stop() throws Exception {}
+	}
+
+	@javax.inject.Named("PCPThreadTrackingCollector")
+	public static class PCPThreadTrackingCollector implements PartitionCollector {
+
+		@Inject StepContext stepCtx;
+
+		@Override
+		public String collectPartitionData() throws Exception {
+			return (String) stepCtx.getTransientUserData();
+		}
+	}
+
+	/**
+	 * Appends each partition's record to the step exit status.
+	 */
+	@javax.inject.Named("PCPThreadTrackingAnalyzer")
+	public static class PCPThreadTrackingAnalyzer extends AbstractPartitionAnalyzer {
+
+		@Inject StepContext stepCtx;
+
+		@Override
+		public void analyzeCollectorData(Serializable data) throws Exception {
+			String exitStatus = stepCtx.getExitStatus();
+			stepCtx.setExitStatus(exitStatus == null ? (String) data : exitStatus + ThreadDescriptor.RECORD_SEPARATOR + data);
+		}
+	}
+}
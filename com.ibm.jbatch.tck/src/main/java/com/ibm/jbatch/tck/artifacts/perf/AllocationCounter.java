@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the number of bytes allocated by the current thread, where the JVM exposes it
+ * (com.sun.management.ThreadMXBean, i.e. HotSpot and derivatives).
+ *
+ * The extension interface is looked up reflectively so the TCK doesn't take a compile-time dependency on it.
+ */
+public class AllocationCounter {
+
+	private final static Logger logger = Logger.getLogger(AllocationCounter.class.getName());
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private static final Method getThreadAllocatedBytes = lookupMethod();
+
+	private static Method lookupMethod() {
+		try {
+			Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+			if (extension.isInstance(threadBean)) {
+				Method m = extension.getMethod("getThreadAllocatedBytes", long.class);
+				// Make sure it's enabled and really works before we rely on it.
+				if (((Long) m.invoke(threadBean, Thread.currentThread().getId())) >= 0) {
+					return m;
+				}
+			}
+		} catch (Exception e) {
+			logger.log(Level.FINE, "Per-thread allocation counting is not available", e);
+		}
+		return null;
+	}
+
+	public static boolean isSupported() {
+		return getThreadAllocatedBytes != null;
+	}
+
+	/**
+	 * @return bytes allocated so far by the current thread, or -1 if not supported by this JVM
+	 */
+	public static long currentThreadAllocatedBytes() {
+		if (getThreadAllocatedBytes == null) {
+			return -1;
+		}
+		try {
+			return (Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+}
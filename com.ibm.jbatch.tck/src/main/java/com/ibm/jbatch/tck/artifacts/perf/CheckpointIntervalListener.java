@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Step and chunk listener which records, with System.nanoTime(), when each chunk of a step with a
+ * time-based checkpoint policy starts and ends, and measures the actual checkpoint intervals against
+ * the expected one (target.millis).  MyTimeCheckpointListener only checks one interval to the nearest second.
+ *
+ * The last chunk of the step ends with the input, not with the time limit, so it's left out.  Of the others:
+ * <ul>
+ * <li>interval - time from the end of one chunk to the end of the next, i.e. between checkpoints</li>
+ * <li>overshoot - how far past the target each chunk ran, from beforeChunk() to afterChunk()</li>
+ * <li>jitter - standard deviation of the intervals</li>
+ * <li>drift - mean interval minus the target, i.e. how much later each checkpoint is than the schedule
+ * of one every target.millis would have it</li>
+ * </ul>
+ * At the end of the step these are published to the step exit status as comma-separated key=value pairs
+ * of nanoseconds, parseable with {@link ThroughputRecorder#parseSummary(String)}.
+ */
+@javax.inject.Named("checkpointIntervalListener")
+public class CheckpointIntervalListener extends AbstractChunkListener implements StepListener {
+
+	public static final String TARGET = "target";
+	public static final String CHECKPOINTS = "checkpoints";
+	public static final String INTERVAL_MEAN = "intervalMean";
+	public static final String INTERVAL_MIN = "intervalMin";
+	public static final String INTERVAL_MAX = "intervalMax";
+	public static final String JITTER = "jitter";
+	public static final String DRIFT = "drift";
+	public static final String OVERSHOOT_MIN = "overshootMin";
+	public static final String OVERSHOOT_MEAN = "overshootMean";
+	public static final String OVERSHOOT_MAX = "overshootMax";
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "target.millis")
+	String targetProp;
+
+	private long target;
+
+	private final LatencySamples intervals = new LatencySamples();
+	private final LatencySamples durations = new LatencySamples();
+	private double intervalSquares = 0;
+
+	private long chunkStart;
+	// Flagged rather than -1 when unset, since System.nanoTime() can be negative
+	private boolean chunkEnded = false;
+	private long lastChunkEnd;
+
+	// The interval and duration of the latest chunk (-1 if there's none), recorded once another chunk has followed it
+	private long pendingInterval = -1;
+	private long pendingDuration = -1;
+
+	@Override
+	public void beforeStep() throws Exception {
+		target = 1000000L * Long.parseLong(targetProp);
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		chunkStart = System.nanoTime();
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		long now = System.nanoTime();
+		if (pendingDuration >= 0) {
+			durations.record(pendingDuration);
+			if (pendingInterval >= 0) {
+				intervals.record(pendingInterval);
+				intervalSquares += (double) pendingInterval * pendingInterval;
+			}
+		}
+		pendingDuration = now - chunkStart;
+		pendingInterval = chunkEnded ? now - lastChunkEnd : -1;
+		lastChunkEnd = now;
+		chunkEnded = true;
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		stepCtx.setExitStatus(summarize());
+	}
+
+	public String summarize() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, TARGET, target);
+		ThroughputRecorder.append(buf, CHECKPOINTS, durations.getCount());
+		ThroughputRecorder.append(buf, INTERVAL_MEAN, intervals.getMean());
+		ThroughputRecorder.append(buf, INTERVAL_MIN, intervals.getPercentile(0));
+		ThroughputRecorder.append(buf, INTERVAL_MAX, intervals.getMax());
+		ThroughputRecorder.append(buf, JITTER, jitter());
+		ThroughputRecorder.append(buf, DRIFT, intervals.getCount() == 0 ? 0 : intervals.getMean() - target);
+		ThroughputRecorder.append(buf, OVERSHOOT_MIN, durations.getPercentile(0) - target);
+		ThroughputRecorder.append(buf, OVERSHOOT_MEAN, durations.getMean() - target);
+		ThroughputRecorder.append(buf, OVERSHOOT_MAX, durations.getMax() - target);
+		return buf.toString();
+	}
+
+	private long jitter() {
+		int count = intervals.getCount();
+		if (count < 2) {
+			return 0;
+		}
+		double mean = (double) intervals.getTotal() / count;
+		double variance = (intervalSquares - count * mean * mean) / (count - 1);
+		return Math.round(Math.sqrt(Math.max(variance, 0)));
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.List;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.chunk.listener.ItemProcessListener;
+import javax.batch.api.chunk.listener.ItemReadListener;
+import javax.batch.api.chunk.listener.ItemWriteListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Step, chunk, and item read/process/write listener which times each phase of a chunk step:
+ * <ul>
+ * <li>read - each readItem(), from beforeRead() to afterRead() (or onReadError())</li>
+ * <li>process - each processItem(), from beforeProcess() to afterProcess() (or onProcessError())</li>
+ * <li>write - each writeItems(), from beforeWrite() to afterWrite() (or onWriteError())</li>
+ * <li>commit - from afterWrite() to the start of the next chunk (or the end of the step), as in {@link ThroughputRecorder}</li>
+ * <li>chunk - from beforeChunk() to afterChunk()</li>
+ * </ul>
+ *
+ * Unlike MyItemReadListenerImpl and the other listeners of the TCK tests, which check when they're called,
+ * this only takes a timestamp in each callback, into a preallocated ring buffer.  The buffer is drained into a
+ * {@link LatencyHistogram} per phase when it fills up and at the end of the step, so the cost per item stays
+ * small and constant, and it can be added to the listeners of any chunk step.
+ *
+ * At the end of the step the count, 50th and 99th percentiles and maximum of each phase are published as
+ * comma-separated key=value pairs (e.g. readCount=31,readP50=1404,...), parseable with
+ * {@link ThroughputRecorder#parseSummary(String)}, to the step exit status (the default) or persistent user data.
+ * Since step listeners aren't called on the partitions of a partitioned step, nothing is published for those.
+ *
+ * Properties:
+ * <ul>
+ * <li>ring.size - number of timestamps buffered between drains, default 4096</li>
+ * <li>publish.to - "exitStatus" or "persistentUserData"</li>
+ * </ul>
+ */
+@javax.inject.Named("chunkPhaseTimingListener")
+public class ChunkPhaseTimingListener extends AbstractChunkListener
+		implements StepListener, ItemReadListener, ItemProcessListener, ItemWriteListener {
+
+	public static final String READ = "read";
+	public static final String PROCESS = "process";
+	public static final String WRITE = "write";
+	public static final String COMMIT = "commit";
+	public static final String CHUNK = "chunk";
+
+	public static final String COUNT = "Count";
+	public static final String P50 = "P50";
+	public static final String P99 = "P99";
+	public static final String MAX = "Max";
+
+	public static final String PUBLISH_TO_EXIT_STATUS = "exitStatus";
+	public static final String PUBLISH_TO_PERSISTENT_USER_DATA = "persistentUserData";
+
+	private static final byte BEFORE_CHUNK = 0;
+	private static final byte AFTER_CHUNK = 1;
+	private static final byte BEFORE_READ = 2;
+	private static final byte AFTER_READ = 3;
+	private static final byte BEFORE_PROCESS = 4;
+	private static final byte AFTER_PROCESS = 5;
+	private static final byte BEFORE_WRITE = 6;
+	private static final byte AFTER_WRITE = 7;
+	private static final byte STEP_END = 8;
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "ring.size")
+	String ringSizeString;
+
+	@Inject
+	@BatchProperty(name = "publish.to")
+	String publishTo;
+
+	private long[] timestamps;
+	private byte[] events;
+	private int next = 0;
+
+	private final LatencyHistogram read = new LatencyHistogram();
+	private final LatencyHistogram process = new LatencyHistogram();
+	private final LatencyHistogram write = new LatencyHistogram();
+	private final LatencyHistogram commit = new LatencyHistogram();
+	private final LatencyHistogram chunk = new LatencyHistogram();
+
+	// Each phase in progress as of the last drain
+	private final Phase chunkPhase = new Phase(chunk);
+	private final Phase readPhase = new Phase(read);
+	private final Phase processPhase = new Phase(process);
+	private final Phase writePhase = new Phase(write);
+	private final CommitLatencyTimer commitTimer = new CommitLatencyTimer();
+
+	@Override
+	public void beforeStep() throws Exception {
+		allocate();
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		mark(STEP_END);
+		drain();
+
+		String summary = summarize();
+		if (PUBLISH_TO_PERSISTENT_USER_DATA.equals(publishTo)) {
+			stepCtx.setPersistentUserData(summary);
+		} else {
+			stepCtx.setExitStatus(summary);
+		}
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		mark(BEFORE_CHUNK);
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		mark(AFTER_CHUNK);
+	}
+
+	@Override
+	public void beforeRead() throws Exception {
+		mark(BEFORE_READ);
+	}
+
+	@Override
+	public void afterRead(Object item) throws Exception {
+		mark(AFTER_READ);
+	}
+
+	@Override
+	public void onReadError(Exception ex) throws Exception {
+		mark(AFTER_READ);
+	}
+
+	@Override
+	public void beforeProcess(Object item) throws Exception {
+		mark(BEFORE_PROCESS);
+	}
+
+	@Override
+	public void afterProcess(Object item, Object result) throws Exception {
+		mark(AFTER_PROCESS);
+	}
+
+	@Override
+	public void onProcessError(Object item, Exception ex) throws Exception {
+		mark(AFTER_PROCESS);
+	}
+
+	@Override
+	public void beforeWrite(List<Object> items) throws Exception {
+		mark(BEFORE_WRITE);
+	}
+
+	@Override
+	public void afterWrite(List<Object> items) throws Exception {
+		mark(AFTER_WRITE);
+	}
+
+	@Override
+	public void onWriteError(List<Object> items, Exception ex) throws Exception {
+		mark(AFTER_WRITE);
+	}
+
+	/**
+	 * @return the summary of the timestamps drained so far
+	 */
+	public String summarize() {
+		StringBuilder buf = new StringBuilder();
+		appendPhase(buf, READ, read);
+		appendPhase(buf, PROCESS, process);
+		appendPhase(buf, WRITE, write);
+		appendPhase(buf, COMMIT, commit);
+		appendPhase(buf, CHUNK, chunk);
+		return buf.toString();
+	}
+
+	private static void appendPhase(StringBuilder buf, String phase, LatencyHistogram histogram) {
+		ThroughputRecorder.append(buf, phase + COUNT, histogram.getCount());
+		ThroughputRecorder.append(buf, phase + P50, histogram.getPercentile(50));
+		ThroughputRecorder.append(buf, phase + P99, histogram.getPercentile(99));
+		ThroughputRecorder.append(buf, phase + MAX, histogram.getMax());
+	}
+
+	private void allocate() {
+		int size = (ringSizeString == null || ringSizeString.trim().isEmpty()) ? 4096 : Math.max(Integer.parseInt(ringSizeString.trim()), 16);
+		timestamps = new long[size];
+		events = new byte[size];
+	}
+
+	private void mark(byte event) {
+		long now = System.nanoTime();
+		if (timestamps == null) {
+			allocate();
+		}
+		timestamps[next] = now;
+		events[next] = event;
+		if (++next == timestamps.length) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		for (int i = 0; i < next; i++) {
+			long t = timestamps[i];
+			switch (events[i]) {
+			case BEFORE_CHUNK:
+				commitEnded(t);
+				chunkPhase.start(t);
+				break;
+			case AFTER_CHUNK:
+				chunkPhase.end(t);
+				break;
+			case BEFORE_READ:
+				readPhase.start(t);
+				break;
+			case AFTER_READ:
+				readPhase.end(t);
+				break;
+			case BEFORE_PROCESS:
+				processPhase.start(t);
+				break;
+			case AFTER_PROCESS:
+				processPhase.end(t);
+				break;
+			case BEFORE_WRITE:
+				writePhase.start(t);
+				break;
+			case AFTER_WRITE:
+				writePhase.end(t);
+				commitTimer.writeEnded(t);
+				break;
+			case STEP_END:
+				commitEnded(t);
+				break;
+			}
+		}
+		next = 0;
+	}
+
+	private void commitEnded(long t) {
+		long latency = commitTimer.boundaryReached(t);
+		if (latency >= 0) {
+			commit.record(latency);
+		}
+	}
+
+	/*
+	 * The start of a phase, kept with a flag rather than a sentinel value, since System.nanoTime() can be negative.
+	 */
+	private static class Phase {
+
+		private final LatencyHistogram histogram;
+		private boolean started = false;
+		private long start;
+
+		Phase(LatencyHistogram histogram) {
+			this.histogram = histogram;
+		}
+
+		void start(long t) {
+			start = t;
+			started = true;
+		}
+
+		/*
+		 * Records the phase if it was started, e.g. not for an afterChunk() whose beforeChunk() wasn't seen.
+		 */
+		void end(long t) {
+			if (started) {
+				histogram.record(t - start);
+				started = false;
+			}
+		}
+	}
+}
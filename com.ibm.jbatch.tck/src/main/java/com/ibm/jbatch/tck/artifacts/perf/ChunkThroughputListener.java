@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Both a StepListener and ChunkListener (like MyChunkListener), timing the step and each chunk
+ * into a {@link ThroughputRecorder} and leaving the summary in the step exit status.
+ *
+ * Must be used together with {@link ThroughputBenchmarkWriter}, which marks the end of each write.
+ */
+@javax.inject.Named("chunkThroughputListener")
+public class ChunkThroughputListener extends AbstractChunkListener implements StepListener {
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "app.arraysize")
+	String arraySizeString;
+
+	@Inject
+	@BatchProperty(name = "item.count")
+	String itemCountString;
+
+	private ThroughputRecorder recorder;
+
+	@Override
+	public void beforeStep() throws Exception {
+		int expectedChunks = 1024;
+		if (arraySizeString != null && itemCountString != null) {
+			expectedChunks = Integer.parseInt(arraySizeString) / Integer.parseInt(itemCountString) + 1;
+		}
+		recorder = new ThroughputRecorder(expectedChunks);
+		stepCtx.setTransientUserData(recorder);
+		recorder.stepStarted();
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		recorder.chunkStarted();
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		recorder.stepEnded();
+		stepCtx.setExitStatus(recorder.summarize());
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+/**
+ * Times the "commit latency" of each chunk: from the end of writeItems() to the next chunk boundary
+ * (the start of the next chunk, or the end of the step).  See {@link ThroughputRecorder} for why it's
+ * measured this way.
+ *
+ * The final chunk may not have written anything (e.g. when the reader runs out of items at the start
+ * of a chunk), so a boundary only yields a latency if a write ended since the previous one.
+ *
+ * Not thread-safe, like {@link LatencySamples}.
+ */
+public class CommitLatencyTimer {
+
+	// Kept with a flag rather than a sentinel value, since System.nanoTime() can be negative
+	private boolean written = false;
+	private long writeEnd;
+
+	/**
+	 * @param nanos System.nanoTime() at the end of writeItems()
+	 */
+	public void writeEnded(long nanos) {
+		writeEnd = nanos;
+		written = true;
+	}
+
+	/**
+	 * @param nanos System.nanoTime() at the chunk boundary
+	 * @return the commit latency of the chunk that just ended, or -1 if nothing was written since the last boundary
+	 */
+	public long boundaryReached(long nanos) {
+		if (!written) {
+			return -1;
+		}
+		written = false;
+		return nanos - writeEnd;
+	}
+}
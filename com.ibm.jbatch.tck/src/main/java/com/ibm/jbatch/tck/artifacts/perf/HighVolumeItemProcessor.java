@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.ItemProcessor;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+import com.ibm.jbatch.tck.artifacts.reusable.MyParentException;
+
+/**
+ * Processor for {@link HighVolumeItemReader}, deciding by the record number: it throws a MyParentException for every
+ * record numbered a multiple of process.skip.interval, filters out (returns null for) every other one numbered a
+ * multiple of filter.interval, and passes on the rest.  Both intervals default to 0, meaning never.
+ */
+@javax.inject.Named("highVolumeItemProcessor")
+public class HighVolumeItemProcessor implements ItemProcessor {
+
+	@Inject
+	@BatchProperty(name = "process.skip.interval")
+	String skipIntervalProp;
+
+	@Inject
+	@BatchProperty(name = "filter.interval")
+	String filterIntervalProp;
+
+	private int skipInterval = -1;
+	private int filterInterval;
+
+	@Override
+	public Object processItem(Object item) throws Exception {
+		if (skipInterval < 0) {
+			skipInterval = (skipIntervalProp == null || skipIntervalProp.isEmpty()) ? 0 : Integer.parseInt(skipIntervalProp);
+			filterInterval = (filterIntervalProp == null || filterIntervalProp.isEmpty()) ? 0 : Integer.parseInt(filterIntervalProp);
+		}
+
+		int record = ((ReadRecord) item).getCount();
+		if (skipInterval > 0 && record % skipInterval == 0) {
+			throw new MyParentException("Skip processing record " + record + " on purpose");
+		}
+		if (filterInterval > 0 && record % filterInterval == 0) {
+			return null;
+		}
+		return item;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.AbstractItemReader;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+import com.ibm.jbatch.tck.artifacts.reusable.MyParentException;
+
+/**
+ * Reads the records numbered 1 to items (without holding them in an array, unlike DoSomethingArrayItemReaderImpl),
+ * throwing a MyParentException instead of every read.skip.interval-th record (default 0, meaning never).
+ *
+ * The record number is passed along in {@link ReadRecord#getCount()}, so that {@link HighVolumeItemProcessor}
+ * can decide what to do with each record independently of how the reads were skipped, and so that the expected
+ * metrics can be computed from the properties alone.
+ */
+@javax.inject.Named("highVolumeItemReader")
+public class HighVolumeItemReader extends AbstractItemReader {
+
+	@Inject
+	@BatchProperty(name = "items")
+	String itemsProp;
+
+	@Inject
+	@BatchProperty(name = "read.skip.interval")
+	String skipIntervalProp;
+
+	private int items;
+	private int skipInterval;
+	private int next;
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		items = Integer.parseInt(itemsProp);
+		skipInterval = (skipIntervalProp == null || skipIntervalProp.isEmpty()) ? 0 : Integer.parseInt(skipIntervalProp);
+		next = checkpoint == null ? 1 : (Integer) checkpoint;
+	}
+
+	@Override
+	public ReadRecord readItem() throws Exception {
+		if (next > items) {
+			return null;
+		}
+		int record = next++;
+		if (skipInterval > 0 && record % skipInterval == 0) {
+			throw new MyParentException("Skip reading record " + record + " on purpose");
+		}
+		// Not new ReadRecord(record), which builds a log message for every record
+		ReadRecord readRecord = new ReadRecord();
+		readRecord.setRecord(record);
+		return readRecord;
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return next;
+	}
+}
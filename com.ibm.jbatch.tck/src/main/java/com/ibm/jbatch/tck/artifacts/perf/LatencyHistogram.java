@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size latency histogram (in nanoseconds) with log-linear buckets, in the style of HdrHistogram:
+ * values below 128 are counted exactly, and above that each power of two is split into 64 buckets,
+ * so a percentile is reported within 1/64 (about 1.6%) of the recorded value.
+ *
+ * Unlike {@link LatencySamples}, recording never allocates and the memory used doesn't depend on the
+ * number of samples.  Values of 2^44 ns (about 5 hours) or more are counted in the last bucket,
+ * though the maximum is kept exactly.
+ *
+ * Not thread-safe: samples are expected to be recorded from the single thread running a step
+ * (or partition), and summarized once recording is done.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	private static final int MAX_MAGNITUDE = 44;
+	private static final int BUCKETS = LINEAR_LIMIT + (MAX_MAGNITUDE - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts[indexOf(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public long getMean() {
+		return count == 0 ? 0 : total / count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @param percentile in the range [0, 100]
+	 * @return the highest value counted in the bucket holding the nearest-rank percentile (but no more than
+	 * the maximum), or 0 if no samples were recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.min(Math.max((long) Math.ceil(percentile / 100.0 * count), 1), count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestValueAt(i), max);
+			}
+		}
+		return max;
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	static int indexOf(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if (magnitude >= MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+		// Keep the top SUB_BUCKET_BITS + 1 bits, the first of which is always 1
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueAt(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
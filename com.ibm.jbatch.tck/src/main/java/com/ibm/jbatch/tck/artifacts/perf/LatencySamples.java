@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of latency samples (in nanoseconds) with exact percentiles.
+ *
+ * Not thread-safe: samples are expected to be recorded from the single thread running a step
+ * (or partition), and summarized once recording is done.
+ */
+public class LatencySamples {
+
+	private long[] samples;
+	private int count = 0;
+	private long total = 0;
+
+	private long[] sorted = null;
+
+	public LatencySamples() {
+		this(1024);
+	}
+
+	public LatencySamples(int initialCapacity) {
+		samples = new long[Math.max(initialCapacity, 16)];
+	}
+
+	public void record(long nanos) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = nanos;
+		total += nanos;
+		sorted = null;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public long getMean() {
+		return count == 0 ? 0 : total / count;
+	}
+
+	public long getMax() {
+		return count == 0 ? 0 : sorted()[count - 1];
+	}
+
+	/**
+	 * @param percentile in the range [0, 100]
+	 * @return the nearest-rank percentile, or 0 if no samples were recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100.0 * count);
+		return sorted()[Math.min(Math.max(rank, 1), count) - 1];
+	}
+
+	private long[] sorted() {
+		if (sorted == null) {
+			sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+		}
+		return sorted;
+	}
+}
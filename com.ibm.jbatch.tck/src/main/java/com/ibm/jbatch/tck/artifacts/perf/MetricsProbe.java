@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.context.StepContext;
+
+/**
+ * Times calls to StepContext.getMetrics() and checks that the metrics returned are consistent,
+ * for {@link MetricsProbeListener}, {@link MetricsProbeCollector} and {@link MetricsProbeAnalyzer}.
+ *
+ * A snapshot is inconsistent if any metric has decreased since the previous one from the same StepContext, or if, at a chunk
+ * boundary, the items read don't add up to the items written, filtered and skipped in processing.
+ * Since the specification doesn't say whether READ_COUNT includes the reads skipped, or whether FILTER_COUNT
+ * includes the items skipped (as in the reference implementation, where both do), any of these is accepted.
+ *
+ * Not thread-safe, like {@link LatencyHistogram}.
+ */
+public class MetricsProbe {
+
+	public static final String PROBES = "probes";
+	public static final String PROBE_TOTAL = "probeTotal";
+	public static final String PROBE_MEAN = "probeMean";
+	public static final String PROBE_P50 = "probeP50";
+	public static final String PROBE_P99 = "probeP99";
+	public static final String PROBE_MAX = "probeMax";
+	public static final String INCONSISTENT = "inconsistent";
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final Map<StepContext, Map<Metric.MetricType, Long>> last = new IdentityHashMap<StepContext, Map<Metric.MetricType, Long>>();
+
+	// Since the last delta was taken
+	private long deltaProbes = 0;
+	private long deltaTotal = 0;
+	private long deltaMax = 0;
+	private long deltaInconsistent = 0;
+
+	// Merged from deltas
+	private long mergedProbes = 0;
+	private long mergedTotal = 0;
+	private long mergedMax = 0;
+	private long mergedP50 = 0;
+	private long inconsistent = 0;
+
+	/**
+	 * Calls getMetrics() and checks that no metric has decreased.
+	 */
+	public Metric[] probe(StepContext stepCtx) {
+		long start = System.nanoTime();
+		Metric[] metrics = stepCtx.getMetrics();
+		long elapsed = System.nanoTime() - start;
+
+		latencies.record(elapsed);
+		deltaProbes++;
+		deltaTotal += elapsed;
+		deltaMax = Math.max(deltaMax, elapsed);
+
+		Map<Metric.MetricType, Long> lastOfContext = last.get(stepCtx);
+		if (lastOfContext == null) {
+			lastOfContext = new EnumMap<Metric.MetricType, Long>(Metric.MetricType.class);
+			last.put(stepCtx, lastOfContext);
+		}
+		for (Metric metric : metrics) {
+			Long previous = lastOfContext.put(metric.getType(), metric.getValue());
+			if (previous != null && metric.getValue() < previous) {
+				inconsistent();
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Also checks that every item read has been written, filtered or skipped in processing.
+	 */
+	public Metric[] probeAtChunkBoundary(StepContext stepCtx) {
+		Metric[] metrics = probe(stepCtx);
+		Map<Metric.MetricType, Long> values = toMap(metrics);
+		long read = value(values, Metric.MetricType.READ_COUNT);
+		long readSkip = value(values, Metric.MetricType.READ_SKIP_COUNT);
+		long processSkip = value(values, Metric.MetricType.PROCESS_SKIP_COUNT);
+		long filter = value(values, Metric.MetricType.FILTER_COUNT);
+		long write = value(values, Metric.MetricType.WRITE_COUNT);
+		if (write + filter + processSkip != read && write + filter + processSkip != read - readSkip && write + filter != read) {
+			inconsistent();
+		}
+		return metrics;
+	}
+
+	private void inconsistent() {
+		deltaInconsistent++;
+		inconsistent++;
+	}
+
+	public long getInconsistent() {
+		return inconsistent;
+	}
+
+	/**
+	 * @return the number of calls and the total and maximum time taken since the last delta (or the start),
+	 * and the median of all the calls probed here so far
+	 */
+	public Serializable takeDelta() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, PROBES, deltaProbes);
+		ThroughputRecorder.append(buf, PROBE_TOTAL, deltaTotal);
+		ThroughputRecorder.append(buf, PROBE_MAX, deltaMax);
+		ThroughputRecorder.append(buf, PROBE_P50, latencies.getPercentile(50));
+		ThroughputRecorder.append(buf, INCONSISTENT, deltaInconsistent);
+		deltaProbes = 0;
+		deltaTotal = 0;
+		deltaMax = 0;
+		deltaInconsistent = 0;
+		return buf.toString();
+	}
+
+	/**
+	 * Adds a delta taken by another probe (e.g. one of a partition).  Medians can't be merged, so the
+	 * highest median reported by any probe is kept: that of the slowest partition.
+	 */
+	public void mergeDelta(Serializable delta) {
+		Properties props = ThroughputRecorder.parseSummary((String) delta);
+		mergedProbes += Long.parseLong(props.getProperty(PROBES));
+		mergedTotal += Long.parseLong(props.getProperty(PROBE_TOTAL));
+		mergedMax = Math.max(mergedMax, Long.parseLong(props.getProperty(PROBE_MAX)));
+		mergedP50 = Math.max(mergedP50, Long.parseLong(props.getProperty(PROBE_P50)));
+		inconsistent += Long.parseLong(props.getProperty(INCONSISTENT));
+	}
+
+	/**
+	 * @return the calls probed here, including their 99th percentile
+	 */
+	public String summarize() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, PROBES, latencies.getCount());
+		ThroughputRecorder.append(buf, PROBE_MEAN, latencies.getMean());
+		ThroughputRecorder.append(buf, PROBE_P50, latencies.getPercentile(50));
+		ThroughputRecorder.append(buf, PROBE_P99, latencies.getPercentile(99));
+		ThroughputRecorder.append(buf, PROBE_MAX, latencies.getMax());
+		ThroughputRecorder.append(buf, INCONSISTENT, inconsistent);
+		return buf.toString();
+	}
+
+	/**
+	 * @return the calls merged from deltas, with the highest median of any of the probes merged
+	 */
+	public String summarizeMerged() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, PROBES, mergedProbes);
+		ThroughputRecorder.append(buf, PROBE_MEAN, mergedProbes == 0 ? 0 : mergedTotal / mergedProbes);
+		ThroughputRecorder.append(buf, PROBE_P50, mergedP50);
+		ThroughputRecorder.append(buf, PROBE_MAX, mergedMax);
+		ThroughputRecorder.append(buf, INCONSISTENT, inconsistent);
+		return buf.toString();
+	}
+
+	/**
+	 * Appends each metric as MetricType=value, e.g. READ_COUNT=1000
+	 */
+	public static void appendMetrics(StringBuilder buf, Metric[] metrics) {
+		for (Metric metric : metrics) {
+			ThroughputRecorder.append(buf, metric.getType().name(), metric.getValue());
+		}
+	}
+
+	private static Map<Metric.MetricType, Long> toMap(Metric[] metrics) {
+		Map<Metric.MetricType, Long> values = new EnumMap<Metric.MetricType, Long>(Metric.MetricType.class);
+		for (Metric metric : metrics) {
+			values.put(metric.getType(), metric.getValue());
+		}
+		return values;
+	}
+
+	private static long value(Map<Metric.MetricType, Long> values, Metric.MetricType type) {
+		Long value = values.get(type);
+		return value == null ? 0 : value;
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.partition.AbstractPartitionAnalyzer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Analyzer for {@link MetricsProbeCollector}, merging the probes of all the partitions.
+ *
+ * Once the status of the last of the step's partitions has been analyzed, the merged summary (without percentiles)
+ * is set as the step exit status, so the partitions property must be set to the number of partitions.
+ */
+@javax.inject.Named("metricsProbeAnalyzer")
+public class MetricsProbeAnalyzer extends AbstractPartitionAnalyzer {
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "partitions")
+	String partitionsProp;
+
+	private final MetricsProbe merged = new MetricsProbe();
+	private int statuses = 0;
+
+	@Override
+	public void analyzeCollectorData(Serializable data) throws Exception {
+		if (data != null) {
+			merged.mergeDelta(data);
+		}
+	}
+
+	@Override
+	public void analyzeStatus(BatchStatus batchStatus, String exitStatus) throws Exception {
+		statuses++;
+		if (statuses == Integer.parseInt(partitionsProp)) {
+			stepCtx.setExitStatus(merged.summarizeMerged());
+		}
+	}
+}
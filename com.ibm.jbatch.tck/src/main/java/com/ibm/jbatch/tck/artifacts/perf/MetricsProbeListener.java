@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.chunk.listener.ItemReadListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Step, chunk and item read listener calling StepContext.getMetrics() after every probe.interval-th
+ * read (default 1) and after every chunk, through a {@link MetricsProbe}.
+ *
+ * At the end of the step the metrics and the probe summary are set as the step exit status
+ * (e.g. READ_COUNT=900,...,probes=1001,probeMean=220,...).  On the partitions of a partitioned step,
+ * where step listeners aren't called, the probe is left in the step's transient user data for
+ * {@link MetricsProbeCollector}.
+ *
+ * With probe.shared=true, the reads of every partition are probed on the StepContext of the top-level step
+ * (the one beforeStep() was called with), so that all the partitions call getMetrics() on the same metrics
+ * at once.  The check at each chunk boundary still uses the partition's own metrics, since the top-level ones
+ * also count the chunks of the other partitions.
+ */
+@javax.inject.Named("metricsProbeListener")
+public class MetricsProbeListener extends AbstractChunkListener implements StepListener, ItemReadListener {
+
+	// Top-level StepContext of each job execution with probe.shared=true, while its step runs
+	private static final ConcurrentMap<Long, StepContext> sharedStepContexts = new ConcurrentHashMap<Long, StepContext>();
+
+	@Inject
+	JobContext jobCtx;
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "probe.interval")
+	String probeIntervalProp;
+
+	@Inject
+	@BatchProperty(name = "probe.shared")
+	String probeSharedProp;
+
+	private MetricsProbe probe;
+	private StepContext probedStepCtx;
+	private int probeInterval;
+	private int reads = 0;
+
+	@Override
+	public void beforeStep() throws Exception {
+		if (Boolean.parseBoolean(probeSharedProp)) {
+			sharedStepContexts.put(jobCtx.getExecutionId(), stepCtx);
+		}
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		sharedStepContexts.remove(jobCtx.getExecutionId());
+
+		// Only the top-level thread of a partitioned step gets here without having run a chunk
+		if (probe != null) {
+			Metric[] metrics = probe.probe(stepCtx);
+			StringBuilder buf = new StringBuilder();
+			MetricsProbe.appendMetrics(buf, metrics);
+			stepCtx.setExitStatus(buf.append(',').append(probe.summarize()).toString());
+		}
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		if (probe == null) {
+			probe = new MetricsProbe();
+			probeInterval = (probeIntervalProp == null || probeIntervalProp.isEmpty()) ? 1 : Integer.parseInt(probeIntervalProp);
+			stepCtx.setTransientUserData(probe);
+
+			StepContext shared = Boolean.parseBoolean(probeSharedProp) ? sharedStepContexts.get(jobCtx.getExecutionId()) : null;
+			probedStepCtx = shared != null ? shared : stepCtx;
+		}
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		probe.probeAtChunkBoundary(stepCtx);
+	}
+
+	@Override
+	public void beforeRead() throws Exception {
+	}
+
+	@Override
+	public void afterRead(Object item) throws Exception {
+		if (probeInterval > 0 && ++reads % probeInterval == 0) {
+			probe.probe(probedStepCtx);
+		}
+	}
+
+	@Override
+	public void onReadError(Exception ex) throws Exception {
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.List;
+
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.chunk.listener.ItemProcessListener;
+import javax.batch.api.chunk.listener.ItemReadListener;
+import javax.batch.api.chunk.listener.ItemWriteListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.metrics.TCKMetrics;
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
+
+/**
+ * Step, chunk, and item read/process/write listener reporting the timings of a chunk step
+ * to the TCKMetricsSink: the time to the first read, the time spent reading, processing and writing
+ * in each chunk, and the time taken at each chunk boundary (see
+ * {@link TCKMetricsSink#checkpointCompleted}).
+ *
+ * Can be added to the listeners of any chunk step.  Since step listeners aren't called on the partitions
+ * of a partitioned step, each partition times its first read from the start of its first chunk instead.
+ */
+@javax.inject.Named("metricsSinkListener")
+public class MetricsSinkListener extends AbstractChunkListener
+		implements StepListener, ItemReadListener, ItemProcessListener, ItemWriteListener {
+
+	@Inject
+	JobContext jobCtx;
+
+	@Inject
+	StepContext stepCtx;
+
+	private final TCKMetricsSink sink = TCKMetrics.getSink();
+
+	private long executionId;
+	private String stepName;
+
+	// Flagged rather than -1 when unset, since System.nanoTime() can be negative
+	private boolean stepStarted = false;
+	private long stepStart;
+	private boolean firstReadDone = false;
+
+	private int chunk = 0;
+	private long readTime;
+	private long processTime;
+	private long writeTime;
+	private long phaseStart;
+	private final CommitLatencyTimer commitTimer = new CommitLatencyTimer();
+
+	@Override
+	public void beforeStep() throws Exception {
+		stepStart = System.nanoTime();
+		stepStarted = true;
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		checkpointEnded(System.nanoTime());
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		long now = System.nanoTime();
+		if (chunk == 0) {
+			executionId = jobCtx.getExecutionId();
+			stepName = stepCtx.getStepName();
+			if (!stepStarted) {
+				stepStart = now;
+				stepStarted = true;
+			}
+		}
+		checkpointEnded(now);
+		chunk++;
+		readTime = 0;
+		processTime = 0;
+		writeTime = 0;
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		sink.chunkCompleted(executionId, stepName, chunk, readTime, processTime, writeTime);
+	}
+
+	@Override
+	public void beforeRead() throws Exception {
+		phaseStart = System.nanoTime();
+	}
+
+	@Override
+	public void afterRead(Object item) throws Exception {
+		long now = System.nanoTime();
+		readTime += now - phaseStart;
+		if (!firstReadDone) {
+			firstReadDone = true;
+			sink.firstRead(executionId, stepName, now - stepStart);
+		}
+	}
+
+	@Override
+	public void onReadError(Exception ex) throws Exception {
+		readTime += System.nanoTime() - phaseStart;
+	}
+
+	@Override
+	public void beforeProcess(Object item) throws Exception {
+		phaseStart = System.nanoTime();
+	}
+
+	@Override
+	public void afterProcess(Object item, Object result) throws Exception {
+		processTime += System.nanoTime() - phaseStart;
+	}
+
+	@Override
+	public void onProcessError(Object item, Exception ex) throws Exception {
+		processTime += System.nanoTime() - phaseStart;
+	}
+
+	@Override
+	public void beforeWrite(List<Object> items) throws Exception {
+		phaseStart = System.nanoTime();
+	}
+
+	@Override
+	public void afterWrite(List<Object> items) throws Exception {
+		long now = System.nanoTime();
+		writeTime += now - phaseStart;
+		commitTimer.writeEnded(now);
+	}
+
+	@Override
+	public void onWriteError(List<Object> items, Exception ex) throws Exception {
+		writeTime += System.nanoTime() - phaseStart;
+	}
+
+	private void checkpointEnded(long now) {
+		long checkpointTime = commitTimer.boundaryReached(now);
+		if (checkpointTime >= 0) {
+			sink.checkpointCompleted(executionId, stepName, chunk, checkpointTime);
+		}
+	}
+}
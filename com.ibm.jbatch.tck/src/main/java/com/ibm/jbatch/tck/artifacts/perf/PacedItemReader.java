@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.AbstractItemReader;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+
+/**
+ * Reads the records numbered 1 to items, one every item.delay.micros microseconds (default 1000).
+ *
+ * Unlike the app.sleeptime of DoSomethingSimpleTimeArrayReader, which sleeps for a whole interval before
+ * each read, each read waits, timed with System.nanoTime(), only until the delay since the previous read
+ * has passed.  The input therefore arrives at a steady rate while a chunk is being read, and any lateness
+ * of a time-based checkpoint is down to the runtime rather than to the reader, while the time spent
+ * committing between chunks doesn't leave a backlog of items for the next chunk to catch up on.
+ */
+@javax.inject.Named("pacedItemReader")
+public class PacedItemReader extends AbstractItemReader {
+
+	@Inject
+	@BatchProperty(name = "items")
+	String itemsProp;
+
+	@Inject
+	@BatchProperty(name = "item.delay.micros")
+	String delayProp;
+
+	private int items;
+	private long delayNanos;
+	private boolean firstRead;
+	private long lastRead;
+	private int next;
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		items = Integer.parseInt(itemsProp);
+		delayNanos = 1000L * ((delayProp == null || delayProp.isEmpty()) ? 1000 : Long.parseLong(delayProp));
+		next = checkpoint == null ? 1 : (Integer) checkpoint;
+		firstRead = true;
+	}
+
+	@Override
+	public ReadRecord readItem() throws Exception {
+		if (next > items) {
+			return null;
+		}
+		int record = next++;
+		long now = System.nanoTime();
+		if (!firstRead) {
+			long due = lastRead + delayNanos;
+			for (long wait = due - now; wait > 0; wait = due - now) {
+				LockSupport.parkNanos(wait);
+				now = System.nanoTime();
+			}
+		}
+		firstRead = false;
+		lastRead = now;
+		ReadRecord readRecord = new ReadRecord();
+		readRecord.setRecord(record);
+		return readRecord;
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return next;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Both a StepListener and ChunkListener for a partitioned chunk step, timing it into a {@link PartitionStressRecorder}.
+ *
+ * The step listener methods run for the top-level step, where they start and end the recording and
+ * leave the summary in the step exit status (replacing whatever the analyzer set).  The chunk listener
+ * methods run on the partition threads, where the first chunk marks the start of the partition.
+ */
+@javax.inject.Named("partitionStressListener")
+public class PartitionStressListener extends AbstractChunkListener implements StepListener {
+
+	@Inject
+	JobContext jobCtx;
+
+	@Inject
+	StepContext stepCtx;
+
+	private boolean topLevel = false;
+
+	private PartitionStressRecorder recorder;
+
+	@Override
+	public void beforeStep() throws Exception {
+		// In case the runtime also calls step listeners on the partition threads
+		if (PartitionStressRecorder.get(jobCtx.getExecutionId()) == null) {
+			topLevel = true;
+			PartitionStressRecorder.stepStarted(jobCtx.getExecutionId());
+		}
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		if (recorder == null) {
+			recorder = PartitionStressRecorder.get(jobCtx.getExecutionId());
+			if (recorder == null) {
+				return;
+			}
+			recorder.partitionStarted();
+		}
+		recorder.chunkStarted();
+	}
+
+	@Override
+	public void onError(Exception ex) throws Exception {
+		afterChunk();
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		if (recorder != null) {
+			recorder.chunkEnded();
+		}
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		if (topLevel) {
+			PartitionStressRecorder recorder = PartitionStressRecorder.stepEnded(jobCtx.getExecutionId());
+			stepCtx.setExitStatus(recorder.summarize());
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings for one partitioned step, shared by the top-level step thread, the partition threads and the analyzer.
+ *
+ * The partitions don't share the top-level step's user data, so recorders are registered
+ * by job execution id (the JobContext is the same on every partition thread).  A partition starts with its
+ * first chunk, since step listeners are only called for the top-level step.
+ *
+ * Measured:
+ * <ul>
+ * <li>dispatch latency - from the start of the top-level step (before mapping) to the start of each partition</li>
+ * <li>collector to analyzer queue - every payload's send time (end of collectPartitionData()) and arrival time
+ * (start of analyzeCollectorData()), from which the mean queue delay is exact even though individual payloads
+ * aren't matched up</li>
+ * <li>analyzer latency - time spent in each analyzeCollectorData() call</li>
+ * <li>thread-pool saturation - the peak number of partitions inside a chunk at once, and the number of distinct
+ * threads the partitions ran on</li>
+ * </ul>
+ */
+public class PartitionStressRecorder {
+
+	public static final String PARTITIONS = "partitions";
+	public static final String THREADS = "threads";
+	public static final String PEAK_RUNNING = "peakRunning";
+	public static final String ELAPSED_NANOS = "elapsedNanos";
+	public static final String DISPATCH_P50 = "dispatchP50";
+	public static final String DISPATCH_P99 = "dispatchP99";
+	public static final String DISPATCH_MAX = "dispatchMax";
+	public static final String PAYLOADS_SENT = "payloadsSent";
+	public static final String PAYLOADS_ANALYZED = "payloadsAnalyzed";
+	public static final String STATUSES_ANALYZED = "statusesAnalyzed";
+	public static final String QUEUE_MEAN = "queueMean";
+	public static final String QUEUE_SPAN_NANOS = "queueSpanNanos";
+	public static final String ANALYZE_P50 = "analyzeP50";
+	public static final String ANALYZE_P99 = "analyzeP99";
+	public static final String ANALYZE_MAX = "analyzeMax";
+	public static final String ANALYZE_TOTAL_NANOS = "analyzeTotalNanos";
+
+	private static final ConcurrentMap<Long, PartitionStressRecorder> recorders = new ConcurrentHashMap<Long, PartitionStressRecorder>();
+
+	private final long stepStart = System.nanoTime();
+	private volatile long stepEnd;
+
+	// Partition threads
+	private final LatencySamples dispatchLatencies = new LatencySamples();
+	private final ConcurrentMap<Long, Boolean> threads = new ConcurrentHashMap<Long, Boolean>();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger peakRunning = new AtomicInteger();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong sentOffsetTotal = new AtomicLong();
+	private final AtomicLong firstSendOffset = new AtomicLong(Long.MAX_VALUE);
+
+	// Analyzer thread
+	private final LatencySamples analyzeLatencies = new LatencySamples();
+	private long arrived = 0;
+	private long arrivedOffsetTotal = 0;
+	private long lastArrivalOffset = 0;
+	private int statuses = 0;
+
+	/**
+	 * Registers a new recorder for the execution, starting the step timer.
+	 */
+	public static PartitionStressRecorder stepStarted(long executionId) {
+		PartitionStressRecorder recorder = new PartitionStressRecorder();
+		recorders.put(executionId, recorder);
+		return recorder;
+	}
+
+	/**
+	 * @return the execution's recorder, or null if the step isn't being recorded
+	 */
+	public static PartitionStressRecorder get(long executionId) {
+		return recorders.get(executionId);
+	}
+
+	/**
+	 * Stops the step timer and unregisters the recorder.
+	 */
+	public static PartitionStressRecorder stepEnded(long executionId) {
+		PartitionStressRecorder recorder = recorders.remove(executionId);
+		if (recorder != null) {
+			recorder.stepEnd = System.nanoTime();
+		}
+		return recorder;
+	}
+
+	public void partitionStarted() {
+		long dispatch = System.nanoTime() - stepStart;
+		synchronized (dispatchLatencies) {
+			dispatchLatencies.record(dispatch);
+		}
+		threads.put(Thread.currentThread().getId(), Boolean.TRUE);
+	}
+
+	public void chunkStarted() {
+		int now = running.incrementAndGet();
+		int peak = peakRunning.get();
+		while (now > peak && !peakRunning.compareAndSet(peak, now)) {
+			peak = peakRunning.get();
+		}
+	}
+
+	public void chunkEnded() {
+		running.decrementAndGet();
+	}
+
+	public void payloadSent() {
+		long offset = System.nanoTime() - stepStart;
+		sent.incrementAndGet();
+		sentOffsetTotal.addAndGet(offset);
+		long first = firstSendOffset.get();
+		while (offset < first && !firstSendOffset.compareAndSet(first, offset)) {
+			first = firstSendOffset.get();
+		}
+	}
+
+	/**
+	 * @return the arrival time, to be passed to {@link #payloadAnalyzed(long)}
+	 */
+	public long payloadArrived() {
+		long now = System.nanoTime();
+		lastArrivalOffset = now - stepStart;
+		arrivedOffsetTotal += lastArrivalOffset;
+		arrived++;
+		return now;
+	}
+
+	public void payloadAnalyzed(long arrivalTime) {
+		analyzeLatencies.record(System.nanoTime() - arrivalTime);
+	}
+
+	public void statusAnalyzed() {
+		statuses++;
+	}
+
+	/**
+	 * @return the summary as comma-separated key=value pairs, times in nanoseconds, to be read with
+	 * {@link ThroughputRecorder#parseSummary(String)}
+	 */
+	public String summarize() {
+		long queueMean = 0;
+		long queueSpan = 0;
+		if (arrived > 0 && arrived == sent.get()) {
+			queueMean = (arrivedOffsetTotal - sentOffsetTotal.get()) / arrived;
+			queueSpan = lastArrivalOffset - firstSendOffset.get();
+		}
+
+		StringBuilder buf = new StringBuilder();
+		synchronized (dispatchLatencies) {
+			ThroughputRecorder.append(buf, PARTITIONS, dispatchLatencies.getCount());
+			ThroughputRecorder.append(buf, DISPATCH_P50, dispatchLatencies.getPercentile(50));
+			ThroughputRecorder.append(buf, DISPATCH_P99, dispatchLatencies.getPercentile(99));
+			ThroughputRecorder.append(buf, DISPATCH_MAX, dispatchLatencies.getMax());
+		}
+		ThroughputRecorder.append(buf, THREADS, threads.size());
+		ThroughputRecorder.append(buf, PEAK_RUNNING, peakRunning.get());
+		ThroughputRecorder.append(buf, ELAPSED_NANOS, stepEnd - stepStart);
+		ThroughputRecorder.append(buf, PAYLOADS_SENT, sent.get());
+		ThroughputRecorder.append(buf, PAYLOADS_ANALYZED, arrived);
+		ThroughputRecorder.append(buf, STATUSES_ANALYZED, statuses);
+		ThroughputRecorder.append(buf, QUEUE_MEAN, queueMean);
+		ThroughputRecorder.append(buf, QUEUE_SPAN_NANOS, queueSpan);
+		ThroughputRecorder.append(buf, ANALYZE_P50, analyzeLatencies.getPercentile(50));
+		ThroughputRecorder.append(buf, ANALYZE_P99, analyzeLatencies.getPercentile(99));
+		ThroughputRecorder.append(buf, ANALYZE_MAX, analyzeLatencies.getMax());
+		ThroughputRecorder.append(buf, ANALYZE_TOTAL_NANOS, analyzeLatencies.getTotal());
+		return buf.toString();
+	}
+}
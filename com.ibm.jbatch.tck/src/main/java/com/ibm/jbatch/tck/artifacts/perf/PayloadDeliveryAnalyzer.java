@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+
+import javax.batch.api.partition.AbstractPartitionAnalyzer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Analyzer for {@link SizedPayloadCollector}, measuring the delivery latency of each payload (from collection
+ * to the start of analyzeCollectorData()) and the bytes delivered.
+ *
+ * The summary, including the number of partition statuses analyzed so far, is set as the step exit status after
+ * every status, so it is there however many partitions report back.  It has a fixed number of fields, so this
+ * costs the same for every partition.
+ */
+@javax.inject.Named("payloadDeliveryAnalyzer")
+public class PayloadDeliveryAnalyzer extends AbstractPartitionAnalyzer {
+
+	public static final String STATUSES = "statuses";
+	public static final String PAYLOADS = "payloads";
+	public static final String BYTES = "bytes";
+	public static final String SPAN_NANOS = "spanNanos";
+	public static final String LATENCY_P50 = "latencyP50";
+	public static final String LATENCY_P90 = "latencyP90";
+	public static final String LATENCY_P99 = "latencyP99";
+	public static final String LATENCY_MAX = "latencyMax";
+	public static final String LATENCY_MEAN = "latencyMean";
+
+	@Inject
+	StepContext stepCtx;
+
+	private final LatencySamples latencies = new LatencySamples();
+	private long bytes = 0;
+	private boolean received = false;
+	private long firstSent;
+	private long lastArrived;
+	private int statuses = 0;
+
+	@Override
+	public void analyzeCollectorData(Serializable data) throws Exception {
+		long now = System.nanoTime();
+		if (!(data instanceof SizedPayload)) {
+			return;
+		}
+		SizedPayload payload = (SizedPayload) data;
+
+		latencies.record(now - payload.getSentNanos());
+		bytes += payload.getSize();
+		if (!received || payload.getSentNanos() - firstSent < 0) {
+			firstSent = payload.getSentNanos();
+		}
+		received = true;
+		lastArrived = now;
+	}
+
+	@Override
+	public void analyzeStatus(BatchStatus batchStatus, String exitStatus) throws Exception {
+		statuses++;
+		stepCtx.setExitStatus(summarize());
+	}
+
+	private String summarize() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, STATUSES, statuses);
+		ThroughputRecorder.append(buf, PAYLOADS, latencies.getCount());
+		ThroughputRecorder.append(buf, BYTES, bytes);
+		ThroughputRecorder.append(buf, SPAN_NANOS, received ? lastArrived - firstSent : 0);
+		ThroughputRecorder.append(buf, LATENCY_MEAN, latencies.getMean());
+		ThroughputRecorder.append(buf, LATENCY_P50, latencies.getPercentile(50));
+		ThroughputRecorder.append(buf, LATENCY_P90, latencies.getPercentile(90));
+		ThroughputRecorder.append(buf, LATENCY_P99, latencies.getPercentile(99));
+		ThroughputRecorder.append(buf, LATENCY_MAX, latencies.getMax());
+		return buf.toString();
+	}
+}
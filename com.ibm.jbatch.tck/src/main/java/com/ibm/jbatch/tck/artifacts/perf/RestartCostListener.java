@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.chunk.listener.AbstractItemReadListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
+
+/**
+ * Step and item read listener which times how a chunk step resumes, with a {@link RestartCostRecorder}
+ * in the step's transient user data, and publishes the timings to the step exit status.
+ *
+ * On the first read after the reader was opened with a checkpoint it raises a {@link JobExecutionRunningSignals}
+ * signal, so the test driver can stop the job once it has resumed rather than wait for it to read the rest of its items.
+ */
+@javax.inject.Named("restartCostListener")
+public class RestartCostListener extends AbstractItemReadListener implements StepListener {
+
+	@Inject
+	JobContext jobCtx;
+
+	@Inject
+	StepContext stepCtx;
+
+	private final RestartCostRecorder recorder = new RestartCostRecorder();
+
+	@Override
+	public void beforeStep() throws Exception {
+		stepCtx.setTransientUserData(recorder);
+		recorder.stepStarted();
+	}
+
+	@Override
+	public void afterRead(Object item) throws Exception {
+		if (item != null && recorder.itemRead(((ReadRecord) item).getCount()) && recorder.isResumed()) {
+			JobExecutionRunningSignals.signal(jobCtx.getExecutionId());
+		}
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		stepCtx.setExitStatus(recorder.summarize());
+	}
+}
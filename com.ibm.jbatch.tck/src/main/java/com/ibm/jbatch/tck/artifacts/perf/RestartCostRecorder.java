@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+/**
+ * Timings of the resumption of one chunk step, shared between {@link RestartCostListener} and
+ * {@link RestartTimingArrayItemReader} through the step's transient user data:
+ * <ul>
+ * <li>load - from beforeStep() to the start of the reader's open(), in which the runtime creates the reader
+ * and loads its checkpoint</li>
+ * <li>open - the reader's open(checkpoint), i.e. how long the reader takes to position itself</li>
+ * <li>firstRead - from the end of the reader's open() to the end of the first readItem(), which covers the writer's open()</li>
+ * </ul>
+ * The wall-clock time of beforeStep() and of the first read are published as well, so the test driver can
+ * work out the time from its restart() call, in another JVM if need be.
+ */
+public class RestartCostRecorder {
+
+	public static final String LOAD_NANOS = "loadNanos";
+	public static final String OPEN_NANOS = "openNanos";
+	public static final String FIRST_READ_NANOS = "firstReadNanos";
+	public static final String STEP_START_MILLIS = "stepStartMillis";
+	public static final String FIRST_READ_MILLIS = "firstReadMillis";
+	public static final String FIRST_RECORD = "firstRecord";
+
+	private long stepStart;
+	private long stepStartMillis;
+	// The nanoTime stamps are flagged rather than -1 when unset, since System.nanoTime() can be negative
+	private boolean opened = false;
+	private long openStart;
+	private long openEnd;
+	private boolean resumed = false;
+	private boolean read = false;
+	private long firstRead;
+	private long firstReadMillis;
+	private long firstRecord = -1;
+
+	public void stepStarted() {
+		stepStartMillis = System.currentTimeMillis();
+		stepStart = System.nanoTime();
+	}
+
+	/**
+	 * @param resumed whether the reader was opened with a checkpoint
+	 */
+	public void readerOpened(long openStart, long openEnd, boolean resumed) {
+		this.openStart = openStart;
+		this.openEnd = openEnd;
+		this.resumed = resumed;
+		opened = true;
+	}
+
+	public boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return true for the first read of the step
+	 */
+	public boolean itemRead(long record) {
+		if (read) {
+			return false;
+		}
+		read = true;
+		firstRead = System.nanoTime();
+		firstReadMillis = System.currentTimeMillis();
+		firstRecord = record;
+		return true;
+	}
+
+	public String summarize() {
+		StringBuilder buf = new StringBuilder();
+		ThroughputRecorder.append(buf, LOAD_NANOS, opened ? openStart - stepStart : -1);
+		ThroughputRecorder.append(buf, OPEN_NANOS, opened ? openEnd - openStart : -1);
+		ThroughputRecorder.append(buf, FIRST_READ_NANOS, opened && read ? firstRead - openEnd : -1);
+		ThroughputRecorder.append(buf, STEP_START_MILLIS, stepStartMillis);
+		ThroughputRecorder.append(buf, FIRST_READ_MILLIS, read ? firstReadMillis : -1);
+		ThroughputRecorder.append(buf, FIRST_RECORD, firstRecord);
+		return buf.toString();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.AbstractItemReader;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ArrayIndexCheckpointData;
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+import com.ibm.jbatch.tck.artifacts.reusable.MyPersistentRestartUserData;
+
+/**
+ * Reads, fails and checkpoints the way DoSomethingArrayItemReaderImpl does, including filling an array of
+ * app.arraysize in open() and positioning at the index in its ArrayIndexCheckpointData, and times its open()
+ * for the {@link RestartCostRecorder}, if any.
+ *
+ * It can't simply extend DoSomethingArrayItemReaderImpl, since batch properties aren't necessarily
+ * injected into the fields of a superclass.
+ */
+@javax.inject.Named("restartTimingArrayItemReader")
+public class RestartTimingArrayItemReader extends AbstractItemReader {
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	@BatchProperty(name = "readrecord.fail")
+	String failNumberString;
+
+	@Inject
+	@BatchProperty(name = "app.arraysize")
+	String arraySizeString;
+
+	private int[] readerDataArray;
+	private int failNumber;
+	private int idx;
+	private final ArrayIndexCheckpointData checkpointData = new ArrayIndexCheckpointData();
+
+	@Override
+	public void open(Serializable cpd) throws Exception {
+		long openStart = System.nanoTime();
+
+		failNumber = Integer.parseInt(failNumberString);
+		int arraySize = Integer.parseInt(arraySizeString);
+		readerDataArray = new int[arraySize];
+		for (int i = 0; i < arraySize; i++) {
+			readerDataArray[i] = i;
+		}
+		idx = cpd == null ? 0 : ((ArrayIndexCheckpointData) cpd).getCurrentIndex() + 1;
+
+		long openEnd = System.nanoTime();
+		Object recorder = stepCtx.getTransientUserData();
+		if (recorder instanceof RestartCostRecorder) {
+			((RestartCostRecorder) recorder).readerOpened(openStart, openEnd, cpd != null);
+		}
+	}
+
+	@Override
+	public ReadRecord readItem() throws Exception {
+		if (idx == readerDataArray.length) {
+			return null;
+		}
+		// Fail only on the first execution, numbered by the writer
+		if (((MyPersistentRestartUserData) stepCtx.getPersistentUserData()).getExecutionNumber() == 1 && idx == failNumber - 1) {
+			throw new Exception("fail on purpose on idx = " + failNumber);
+		}
+		int i = idx++;
+		checkpointData.setCurrentIndex(i);
+		// Not new ReadRecord(int), which builds a log message for every record
+		ReadRecord readRecord = new ReadRecord();
+		readRecord.setRecord(readerDataArray[i]);
+		return readRecord;
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return checkpointData;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.chunk.listener.AbstractChunkListener;
+import javax.batch.runtime.context.JobContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
+
+/**
+ * Chunk listener which raises a {@link JobExecutionRunningSignals} signal when the first chunk of its step
+ * (or of each partition of a partitioned step) starts, i.e. what MyLongRunningBatchletImpl does for a
+ * batchlet, so a test can stop a chunk step once it's running.
+ */
+@javax.inject.Named("runningSignalListener")
+public class RunningSignalListener extends AbstractChunkListener {
+
+	@Inject
+	JobContext jobCtx;
+
+	private boolean signaled = false;
+
+	@Override
+	public void beforeChunk() throws Exception {
+		if (!signaled) {
+			signaled = true;
+			JobExecutionRunningSignals.signal(jobCtx.getExecutionId());
+		}
+	}
+}
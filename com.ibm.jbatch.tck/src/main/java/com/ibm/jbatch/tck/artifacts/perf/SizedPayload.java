@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Collector payload of a given size, stamped with the System.nanoTime() at which it was collected.
+ *
+ * The send time is only comparable with nanoTime() in the same JVM, so delivery latencies are
+ * meaningless for partitions run remotely (the byte counts still hold).
+ */
+public class SizedPayload implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long sentNanos;
+	private byte[] body;
+
+	public SizedPayload() {
+	}
+
+	public SizedPayload(int size) {
+		body = new byte[size];
+		sentNanos = System.nanoTime();
+	}
+
+	public long getSentNanos() {
+		return sentNanos;
+	}
+
+	public int getSize() {
+		return body.length;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeLong(sentNanos);
+		out.writeInt(body.length);
+		out.write(body);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		sentNanos = in.readLong();
+		body = new byte[in.readInt()];
+		in.readFully(body);
+	}
+}
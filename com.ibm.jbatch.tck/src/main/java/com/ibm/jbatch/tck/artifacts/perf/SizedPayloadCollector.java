@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.partition.PartitionCollector;
+import javax.inject.Inject;
+
+/**
+ * Collector sending a {@link SizedPayload} of payload.bytes bytes (default 1024).
+ *
+ * collect.interval.ms (default 0) is the minimum gap between two payloads from one partition, not a rate:
+ * the collector only runs after each chunk, so a payload goes on the first call at least that long after the
+ * previous one.  Calls in between return null, which the runtime still delivers and {@link PayloadDeliveryAnalyzer}
+ * skips.  With the default of 0 every call sends a payload, and how often that is depends on the step's item-count.
+ */
+@javax.inject.Named("sizedPayloadCollector")
+public class SizedPayloadCollector implements PartitionCollector {
+
+	@Inject
+	@BatchProperty(name = "payload.bytes")
+	String payloadBytesProp;
+
+	@Inject
+	@BatchProperty(name = "collect.interval.ms")
+	String collectIntervalProp;
+
+	private int payloadBytes = -1;
+	private long minGapNanos;
+	private boolean collected = false;
+	private long lastCollected;
+
+	@Override
+	public Serializable collectPartitionData() throws Exception {
+		if (payloadBytes < 0) {
+			payloadBytes = (payloadBytesProp == null || payloadBytesProp.isEmpty()) ? 1024 : Integer.parseInt(payloadBytesProp);
+			minGapNanos = (collectIntervalProp == null || collectIntervalProp.isEmpty()) ? 0
+					: Long.parseLong(collectIntervalProp) * 1000000L;
+		}
+
+		long now = System.nanoTime();
+		if (collected && now - lastCollected < minGapNanos) {
+			return null;
+		}
+		collected = true;
+		lastCollected = now;
+		return new SizedPayload(payloadBytes);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.batch.api.AbstractBatchlet;
+import javax.batch.api.BatchProperty;
+import javax.inject.Inject;
+
+/**
+ * The batchlet of every step in the split scaling jobs, reporting to {@link SplitFlowRecorder}.
+ *
+ * Properties:
+ * <ul>
+ * <li>role - "before" for the step before the split, "flow" for a step in one of its flows, "after" for
+ * the step after it</li>
+ * <li>work - for a flow step, "sleep" to sleep for work.millis, or "cpu" to keep the CPU busy until the
+ * thread has used work.millis of CPU time (or, if the JVM can't measure that, until work.millis have passed)</li>
+ * <li>work.millis - default 100</li>
+ * </ul>
+ */
+@javax.inject.Named("splitFlowBatchlet")
+public class SplitFlowBatchlet extends AbstractBatchlet {
+
+	public static final String BEFORE = "before";
+	public static final String FLOW = "flow";
+	public static final String AFTER = "after";
+
+	public static final String SLEEP = "sleep";
+	public static final String CPU = "cpu";
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/*
+	 * Keeps the busy loop from being optimized away.
+	 */
+	private static volatile long sink;
+
+	@Inject
+	@BatchProperty(name = "role")
+	String role;
+
+	@Inject
+	@BatchProperty(name = "work")
+	String work;
+
+	@Inject
+	@BatchProperty(name = "work.millis")
+	String workMillisProp;
+
+	@Override
+	public String process() throws Exception {
+		if (BEFORE.equals(role)) {
+			SplitFlowRecorder.beforeEnded();
+		} else if (AFTER.equals(role)) {
+			SplitFlowRecorder.afterStarted();
+		} else {
+			long started = SplitFlowRecorder.flowStarted();
+			long workNanos = 1000000L * ((workMillisProp == null || workMillisProp.isEmpty()) ? 100 : Long.parseLong(workMillisProp));
+			if (CPU.equals(work)) {
+				busy(started, workNanos);
+			} else {
+				Thread.sleep(workNanos / 1000000L);
+			}
+			SplitFlowRecorder.flowEnded();
+		}
+		return role;
+	}
+
+	private static void busy(long started, long workNanos) {
+		boolean cpuTime = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+		long start = cpuTime ? threadBean.getCurrentThreadCpuTime() : started;
+		long x = started;
+		while (true) {
+			for (int i = 0; i < 10000; i++) {
+				x = x * 6364136223846793005L + 1442695040888963407L;
+			}
+			long now = cpuTime ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+			if (now - start >= workNanos) {
+				break;
+			}
+		}
+		sink = x;
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+
+/**
+ * Timings for one run of a split whose steps all use {@link SplitFlowBatchlet}: the end of the step before
+ * the split, the start and end of the step in each flow, and the start of the step after the split, all
+ * from System.nanoTime(), along with the threads the flows ran on (told apart by thread id, and described by
+ * {@link ThreadDescriptor} when each first runs a flow) and the peak number of flows running at once.
+ *
+ * Only one job at a time can be timed, and only when it runs in the JVM of the test driver.
+ * Until it's armed, nothing is recorded.  Since a System.nanoTime() value can be negative, whether each
+ * time was recorded is told by a flag or count of its own, rather than by a sentinel value.
+ */
+public class SplitFlowRecorder {
+
+	private static volatile boolean armed = false;
+	private static volatile boolean beforeEndedSeen = false;
+	private static volatile long beforeEnded;
+	private static volatile boolean afterStartedSeen = false;
+	private static volatile long afterStarted;
+	private static final AtomicInteger flows = new AtomicInteger();
+	private static final AtomicInteger endedFlows = new AtomicInteger();
+	private static final AtomicLong firstFlowStarted = new AtomicLong(Long.MAX_VALUE);
+	private static final AtomicLong lastFlowStarted = new AtomicLong(Long.MIN_VALUE);
+	private static final AtomicLong lastFlowEnded = new AtomicLong(Long.MIN_VALUE);
+	private static final AtomicInteger running = new AtomicInteger();
+	private static final AtomicLong peakRunning = new AtomicLong();
+	private static final ConcurrentMap<Long, String> flowThreads = new ConcurrentHashMap<Long, String>();
+
+	/**
+	 * Resets the recorder and starts recording.
+	 */
+	public static void arm() {
+		armed = false;
+		beforeEndedSeen = false;
+		afterStartedSeen = false;
+		flows.set(0);
+		endedFlows.set(0);
+		firstFlowStarted.set(Long.MAX_VALUE);
+		lastFlowStarted.set(Long.MIN_VALUE);
+		lastFlowEnded.set(Long.MIN_VALUE);
+		running.set(0);
+		peakRunning.set(0);
+		flowThreads.clear();
+		armed = true;
+	}
+
+	public static void disarm() {
+		armed = false;
+	}
+
+	static void beforeEnded() {
+		if (armed) {
+			beforeEnded = System.nanoTime();
+			beforeEndedSeen = true;
+		}
+	}
+
+	static long flowStarted() {
+		long now = System.nanoTime();
+		if (armed) {
+			flows.incrementAndGet();
+			Thread thread = Thread.currentThread();
+			if (!flowThreads.containsKey(thread.getId())) {
+				flowThreads.putIfAbsent(thread.getId(), ThreadDescriptor.describe(thread));
+			}
+			raiseTo(peakRunning, running.incrementAndGet());
+			lowerTo(firstFlowStarted, now);
+			raiseTo(lastFlowStarted, now);
+		}
+		return now;
+	}
+
+	static void flowEnded() {
+		long now = System.nanoTime();
+		if (armed) {
+			running.decrementAndGet();
+			raiseTo(lastFlowEnded, now);
+			endedFlows.incrementAndGet();
+		}
+	}
+
+	static void afterStarted() {
+		if (armed) {
+			afterStarted = System.nanoTime();
+			afterStartedSeen = true;
+		}
+	}
+
+	/**
+	 * @return whether the step before the split has ended since arm()
+	 */
+	public static boolean isBeforeEnded() {
+		return beforeEndedSeen;
+	}
+
+	/**
+	 * @return the end of the step before the split, if {@link #isBeforeEnded()}
+	 */
+	public static long getBeforeEnded() {
+		return beforeEnded;
+	}
+
+	/**
+	 * @return whether the step after the split has started since arm()
+	 */
+	public static boolean isAfterStarted() {
+		return afterStartedSeen;
+	}
+
+	/**
+	 * @return the start of the step after the split, if {@link #isAfterStarted()}
+	 */
+	public static long getAfterStarted() {
+		return afterStarted;
+	}
+
+	/**
+	 * @return the number of flow steps started since arm()
+	 */
+	public static int getFlowCount() {
+		return flows.get();
+	}
+
+	/**
+	 * @return the number of flow steps ended since arm()
+	 */
+	public static int getEndedFlowCount() {
+		return endedFlows.get();
+	}
+
+	/**
+	 * @return the start of the first flow step, if {@link #getFlowCount()} isn't 0
+	 */
+	public static long getFirstFlowStarted() {
+		return firstFlowStarted.get();
+	}
+
+	/**
+	 * @return the start of the last flow step to start, if {@link #getFlowCount()} isn't 0
+	 */
+	public static long getLastFlowStarted() {
+		return lastFlowStarted.get();
+	}
+
+	/**
+	 * @return the end of the last flow step to end, if {@link #getEndedFlowCount()} isn't 0
+	 */
+	public static long getLastFlowEnded() {
+		return lastFlowEnded.get();
+	}
+
+	/**
+	 * @return the most flow steps that were running at once
+	 */
+	public static int getPeakRunning() {
+		return (int) peakRunning.get();
+	}
+
+	/**
+	 * @return the number of distinct threads, by id, the flow steps ran on
+	 */
+	public static int getFlowThreadCount() {
+		return flowThreads.size();
+	}
+
+	/**
+	 * @return a description of each distinct thread the flow steps ran on, taken when it started its first flow step
+	 */
+	public static Collection<String> getFlowThreads() {
+		return Collections.unmodifiableCollection(flowThreads.values());
+	}
+
+	/*
+	 * Sets value to candidate if candidate is greater, retrying if another thread changes value in between.
+	 */
+	private static void raiseTo(AtomicLong value, long candidate) {
+		long current = value.get();
+		while (candidate > current) {
+			if (value.compareAndSet(current, candidate)) {
+				return;
+			}
+			current = value.get();
+		}
+	}
+
+	/*
+	 * Sets value to candidate if candidate is less, retrying if another thread changes value in between.
+	 */
+	private static void lowerTo(AtomicLong value, long candidate) {
+		long current = value.get();
+		while (candidate < current) {
+			if (value.compareAndSet(current, candidate)) {
+				return;
+			}
+			current = value.get();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records when the first {@link TrivialArtifact} of a job is created and first invoked, relative to
+ * the time the test driver armed it just before calling JobOperator.start().
+ *
+ * Only one job at a time can be timed, and only when it runs in the JVM of the test driver.
+ * Until it's armed, nothing is recorded.  Whether each time was recorded is kept in a flag of its
+ * own, since a System.nanoTime() value can be negative.  The times are read once the job has ended.
+ */
+public class StartLatencyRecorder {
+
+	private static volatile boolean armed = false;
+	private static final AtomicBoolean instantiatedSeen = new AtomicBoolean();
+	private static final AtomicBoolean invokedSeen = new AtomicBoolean();
+	private static volatile long firstInstantiated;
+	private static volatile long firstInvoked;
+	private static volatile String invokingThread = null;
+
+	/**
+	 * Resets the recorder, and returns the time (from System.nanoTime()) it was armed at.
+	 */
+	public static long arm() {
+		armed = false;
+		instantiatedSeen.set(false);
+		invokedSeen.set(false);
+		invokingThread = null;
+		long now = System.nanoTime();
+		armed = true;
+		return now;
+	}
+
+	public static void disarm() {
+		armed = false;
+	}
+
+	static void instantiated() {
+		if (armed && !instantiatedSeen.get()) {
+			long now = System.nanoTime();
+			if (instantiatedSeen.compareAndSet(false, true)) {
+				firstInstantiated = now;
+			}
+		}
+	}
+
+	static void invoked() {
+		if (armed && !invokedSeen.get()) {
+			long now = System.nanoTime();
+			if (invokedSeen.compareAndSet(false, true)) {
+				firstInvoked = now;
+				invokingThread = Thread.currentThread().getName();
+			}
+		}
+	}
+
+	/**
+	 * @return whether an artifact was instantiated since arm()
+	 */
+	public static boolean isInstantiated() {
+		return instantiatedSeen.get();
+	}
+
+	/**
+	 * @return the System.nanoTime() of the first artifact instantiation since arm(), if {@link #isInstantiated()}
+	 */
+	public static long getFirstInstantiated() {
+		return firstInstantiated;
+	}
+
+	/**
+	 * @return whether an artifact was invoked since arm()
+	 */
+	public static boolean isInvoked() {
+		return invokedSeen.get();
+	}
+
+	/**
+	 * @return the System.nanoTime() of the first artifact invocation since arm(), if {@link #isInvoked()}
+	 */
+	public static long getFirstInvoked() {
+		return firstInvoked;
+	}
+
+	/**
+	 * @return the name of the thread the first artifact invocation since arm() was made on, or null if none
+	 */
+	public static String getInvokingThread() {
+		return invokingThread;
+	}
+}
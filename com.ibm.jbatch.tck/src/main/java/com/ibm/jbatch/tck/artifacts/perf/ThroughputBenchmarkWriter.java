@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.batch.api.chunk.AbstractItemWriter;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.chunktypes.ReadRecord;
+import com.ibm.jbatch.tck.artifacts.reusable.MyPersistentRestartUserData;
+
+/**
+ * Stands in for DoSomethingSimpleArrayWriter when running the DoSomething reader and processor
+ * over millions of items: it keeps no per-item state and doesn't validate the chunk boundaries,
+ * it only sums the records (so the work can't be optimized away) and tells the
+ * {@link ThroughputRecorder} when each write has finished.
+ */
+@javax.inject.Named("throughputBenchmarkWriter")
+public class ThroughputBenchmarkWriter extends AbstractItemWriter {
+
+	@Inject
+	StepContext stepCtx;
+
+	private long checksum = 0;
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		// DoSomethingArrayItemReaderImpl reads the execution number from the persistent user data,
+		// which DoSomethingSimpleArrayWriter would otherwise have set, and counted up on restart.
+		Serializable userData = stepCtx.getPersistentUserData();
+		if (userData instanceof MyPersistentRestartUserData) {
+			stepCtx.setPersistentUserData(new MyPersistentRestartUserData(((MyPersistentRestartUserData) userData).getExecutionNumber() + 1, null));
+		} else if (userData == null) {
+			stepCtx.setPersistentUserData(new MyPersistentRestartUserData(1, null));
+		}
+		if (checkpoint != null) {
+			checksum = (Long) checkpoint;
+		}
+	}
+
+	@Override
+	public void writeItems(List<Object> items) throws Exception {
+		for (Object item : items) {
+			checksum += ((ReadRecord) item).getCount();
+		}
+
+		Object recorder = stepCtx.getTransientUserData();
+		if (recorder instanceof ThroughputRecorder) {
+			((ThroughputRecorder) recorder).itemsWritten(items.size());
+		}
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return checksum;
+	}
+}
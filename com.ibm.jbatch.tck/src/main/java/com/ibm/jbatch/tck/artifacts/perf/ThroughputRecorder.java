@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.util.Properties;
+
+/**
+ * Timings for one chunk step, shared between {@link ChunkThroughputListener} and
+ * {@link ThroughputBenchmarkWriter} through the step's transient user data.
+ *
+ * The "commit latency" of a chunk is the time from the end of writeItems() to the start of the next
+ * chunk (or the end of the step), so it covers everything the runtime does at the chunk boundary:
+ * collecting and persisting the checkpoint, committing, and beginning the next transaction.
+ * Measuring up to afterChunk() instead would depend on where the runtime calls it relative to the checkpoint.
+ *
+ * At the end of the step the recorder is summarized into the step exit status, so that the test
+ * driver can read the results back through the JobOperator, the same way in SE and EE.
+ */
+public class ThroughputRecorder {
+
+	public static final String ITEMS = "items";
+	public static final String CHUNKS = "chunks";
+	public static final String ELAPSED_NANOS = "elapsedNanos";
+	public static final String ALLOCATED_BYTES = "allocatedBytes";
+	public static final String COMMIT_P50 = "commitP50";
+	public static final String COMMIT_P90 = "commitP90";
+	public static final String COMMIT_P99 = "commitP99";
+	public static final String COMMIT_MAX = "commitMax";
+	public static final String CHUNK_P50 = "chunkP50";
+	public static final String CHUNK_P99 = "chunkP99";
+
+	private final LatencySamples commitLatencies;
+	private final LatencySamples chunkLatencies;
+
+	private long items = 0;
+	private long stepStart;
+	private long stepEnd;
+	private long allocatedAtStart;
+	private long allocatedAtEnd;
+	private boolean inChunk = false;
+	private long chunkStart;
+	private final CommitLatencyTimer commitTimer = new CommitLatencyTimer();
+
+	public ThroughputRecorder(int expectedChunks) {
+		commitLatencies = new LatencySamples(expectedChunks);
+		chunkLatencies = new LatencySamples(expectedChunks);
+	}
+
+	public void stepStarted() {
+		allocatedAtStart = AllocationCounter.currentThreadAllocatedBytes();
+		stepStart = System.nanoTime();
+	}
+
+	public void chunkStarted() {
+		long now = System.nanoTime();
+		chunkEnded(now);
+		inChunk = true;
+		chunkStart = now;
+	}
+
+	public void itemsWritten(int count) {
+		items += count;
+		commitTimer.writeEnded(System.nanoTime());
+	}
+
+	public void stepEnded() {
+		stepEnd = System.nanoTime();
+		chunkEnded(stepEnd);
+		allocatedAtEnd = AllocationCounter.currentThreadAllocatedBytes();
+	}
+
+	private void chunkEnded(long now) {
+		if (!inChunk) {
+			return;
+		}
+		chunkLatencies.record(now - chunkStart);
+		long commitLatency = commitTimer.boundaryReached(now);
+		if (commitLatency >= 0) {
+			commitLatencies.record(commitLatency);
+		}
+		inChunk = false;
+	}
+
+	/**
+	 * @return the summary as comma-separated key=value pairs, times in nanoseconds.
+	 * allocatedBytes is -1 if the JVM can't count allocations.
+	 */
+	public String summarize() {
+		long allocated = (allocatedAtStart < 0 || allocatedAtEnd < 0) ? -1 : allocatedAtEnd - allocatedAtStart;
+
+		StringBuilder buf = new StringBuilder();
+		append(buf, ITEMS, items);
+		append(buf, CHUNKS, chunkLatencies.getCount());
+		append(buf, ELAPSED_NANOS, stepEnd - stepStart);
+		append(buf, ALLOCATED_BYTES, allocated);
+		append(buf, COMMIT_P50, commitLatencies.getPercentile(50));
+		append(buf, COMMIT_P90, commitLatencies.getPercentile(90));
+		append(buf, COMMIT_P99, commitLatencies.getPercentile(99));
+		append(buf, COMMIT_MAX, commitLatencies.getMax());
+		append(buf, CHUNK_P50, chunkLatencies.getPercentile(50));
+		append(buf, CHUNK_P99, chunkLatencies.getPercentile(99));
+		return buf.toString();
+	}
+
+	static void append(StringBuilder buf, String key, long value) {
+		if (buf.length() > 0) {
+			buf.append(',');
+		}
+		buf.append(key).append('=').append(value);
+	}
+
+	/**
+	 * Inverse of {@link #summarize()}
+	 */
+	public static Properties parseSummary(String summary) {
+		Properties props = new Properties();
+		if (summary != null) {
+			for (String pair : summary.split(",")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					props.setProperty(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+				}
+			}
+		}
+		return props;
+	}
+}
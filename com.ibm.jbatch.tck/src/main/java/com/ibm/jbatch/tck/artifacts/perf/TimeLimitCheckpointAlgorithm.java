@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.AbstractCheckpointAlgorithm;
+import javax.inject.Inject;
+
+/**
+ * Custom checkpoint algorithm with the semantics of the time-limit attribute of a chunk, but with its limit
+ * given in milliseconds (time.limit.millis) and timed with System.nanoTime(), so time-based checkpointing
+ * can be exercised with many short chunks rather than a few of at least a second each.
+ */
+@javax.inject.Named("timeLimitCheckpointAlgorithm")
+public class TimeLimitCheckpointAlgorithm extends AbstractCheckpointAlgorithm {
+
+	@Inject
+	@BatchProperty(name = "time.limit.millis")
+	String timeLimitProp;
+
+	private long deadline;
+
+	@Override
+	public void beginCheckpoint() throws Exception {
+		deadline = System.nanoTime() + 1000000L * Long.parseLong(timeLimitProp);
+	}
+
+	@Override
+	public boolean isReadyToCheckpoint() throws Exception {
+		return System.nanoTime() - deadline >= 0;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.perf;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.api.Batchlet;
+import javax.batch.api.Decider;
+import javax.batch.api.chunk.CheckpointAlgorithm;
+import javax.batch.api.chunk.ItemProcessor;
+import javax.batch.api.chunk.ItemReader;
+import javax.batch.api.chunk.ItemWriter;
+import javax.batch.api.chunk.listener.ChunkListener;
+import javax.batch.api.listener.JobListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.api.partition.PartitionAnalyzer;
+import javax.batch.api.partition.PartitionCollector;
+import javax.batch.api.partition.PartitionMapper;
+import javax.batch.api.partition.PartitionPlan;
+import javax.batch.api.partition.PartitionPlanImpl;
+import javax.batch.api.partition.PartitionReducer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.StepExecution;
+import javax.inject.Named;
+
+/**
+ * An artifact that can stand in for any ref of a job: batchlet, reader, processor, writer, decider,
+ * checkpoint algorithm, job, step or chunk listener, or partition mapper, collector, analyzer or reducer.
+ * It does no work (the reader has no items, and the mapper plans 2 partitions), so that the time a job
+ * takes to start can be measured with the job's own JSL.  It reports to {@link StartLatencyRecorder}
+ * when it's created and when any of its methods is first called.
+ */
+@Named("trivialArtifact")
+public class TrivialArtifact implements Batchlet, ItemReader, ItemProcessor, ItemWriter, Decider, CheckpointAlgorithm,
+		JobListener, StepListener, ChunkListener, PartitionMapper, PartitionCollector, PartitionAnalyzer, PartitionReducer {
+
+	public static final String DECISION = "trivial";
+
+	private static final int PARTITIONS = 2;
+
+	public TrivialArtifact() {
+		StartLatencyRecorder.instantiated();
+	}
+
+	@Override
+	public String process() throws Exception {
+		StartLatencyRecorder.invoked();
+		return null;
+	}
+
+	@Override
+	public void stop() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void close() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public Object readItem() throws Exception {
+		StartLatencyRecorder.invoked();
+		return null;
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		StartLatencyRecorder.invoked();
+		return null;
+	}
+
+	@Override
+	public Object processItem(Object item) throws Exception {
+		StartLatencyRecorder.invoked();
+		return item;
+	}
+
+	@Override
+	public void writeItems(List<Object> items) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public String decide(StepExecution[] executions) throws Exception {
+		StartLatencyRecorder.invoked();
+		return DECISION;
+	}
+
+	@Override
+	public int checkpointTimeout() throws Exception {
+		StartLatencyRecorder.invoked();
+		return 0;
+	}
+
+	@Override
+	public void beginCheckpoint() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public boolean isReadyToCheckpoint() throws Exception {
+		StartLatencyRecorder.invoked();
+		return true;
+	}
+
+	@Override
+	public void endCheckpoint() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void beforeJob() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void afterJob() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void beforeStep() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void afterStep() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void beforeChunk() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void onError(Exception ex) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void afterChunk() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public PartitionPlan mapPartitions() throws Exception {
+		StartLatencyRecorder.invoked();
+		PartitionPlanImpl plan = new PartitionPlanImpl();
+		plan.setPartitions(PARTITIONS);
+		Properties[] partitionProperties = new Properties[PARTITIONS];
+		for (int i = 0; i < PARTITIONS; i++) {
+			partitionProperties[i] = new Properties();
+		}
+		plan.setPartitionProperties(partitionProperties);
+		return plan;
+	}
+
+	@Override
+	public Serializable collectPartitionData() throws Exception {
+		StartLatencyRecorder.invoked();
+		return null;
+	}
+
+	@Override
+	public void analyzeCollectorData(Serializable data) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void analyzeStatus(BatchStatus batchStatus, String exitStatus) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void beginPartitionedStep() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void beforePartitionedStepCompletion() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void rollbackPartitionedStep() throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+
+	@Override
+	public void afterPartitionedStepCompletion(PartitionStatus status) throws Exception {
+		StartLatencyRecorder.invoked();
+	}
+}
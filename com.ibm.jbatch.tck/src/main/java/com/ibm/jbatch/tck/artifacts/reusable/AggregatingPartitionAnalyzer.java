@@ -0,0 +1,54 @@
+/**
+ * Copyright 2012 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.reusable;
+
+import java.io.Serializable;
+
+import javax.batch.api.partition.AbstractPartitionAnalyzer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Analyzer that counts the collector payloads and partition statuses into a {@link PartitionDataAggregate},
+ * in constant time per call. It doesn't touch the exit status; {@link AggregatingPartitionReducer} sets it
+ * to the aggregate's summary once, at the end of the step.
+ *
+ * Like MyPartitionAnalyzer, it checks that each partition's collector data arrived before its status.
+ */
+@javax.inject.Named("aggregatingPartitionAnalyzer")
+public class AggregatingPartitionAnalyzer extends AbstractPartitionAnalyzer {
+
+	@Inject
+	StepContext stepCtx;
+
+	@Override
+	public void analyzeCollectorData(Serializable data) throws Exception {
+		PartitionDataAggregate.forStep(stepCtx).addPayload(data);
+	}
+
+	@Override
+	public void analyzeStatus(BatchStatus batchStatus, String exitStatus) throws Exception {
+		PartitionDataAggregate aggregate = PartitionDataAggregate.forStep(stepCtx);
+		aggregate.addStatus(batchStatus);
+
+		if (aggregate.getPayloadCount() < aggregate.getStatusCount()) {
+			throw new Exception("analyzeStatus was called at an unexpected time. Expected at least "
+					+ aggregate.getStatusCount() + " payloads, but analyzed " + aggregate.getPayloadCount());
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.reusable;
+
+import javax.batch.api.partition.AbstractPartitionReducer;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Reducer for use with {@link AggregatingPartitionAnalyzer}: starts each execution of the step with
+ * an empty {@link PartitionDataAggregate}, and at the end sets both the step and job exit status to
+ * its summary followed by ",partitionStatus=" and the PartitionStatus.
+ */
+@javax.inject.Named("aggregatingPartitionReducer")
+public class AggregatingPartitionReducer extends AbstractPartitionReducer {
+
+	public static final String PARTITION_STATUS = "partitionStatus";
+
+	@Inject
+	StepContext stepCtx;
+
+	@Inject
+	JobContext jobCtx;
+
+	@Override
+	public void beginPartitionedStep() throws Exception {
+		stepCtx.setTransientUserData(new PartitionDataAggregate());
+	}
+
+	@Override
+	public void afterPartitionedStepCompletion(PartitionStatus status) throws Exception {
+		String summary = PartitionDataAggregate.forStep(stepCtx).summarize() + "," + PARTITION_STATUS + "=" + status;
+		stepCtx.setExitStatus(summary);
+		jobCtx.setExitStatus(summary);
+	}
+}
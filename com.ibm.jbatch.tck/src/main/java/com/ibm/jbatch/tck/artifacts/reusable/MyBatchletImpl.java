@@ -27,8 +27,6 @@ import javax.inject.Inject;
 public class MyBatchletImpl extends AbstractBatchlet {
 	private final static Logger logger = Logger.getLogger(MyBatchletImpl.class.getName());
 	
-    private volatile static int count = 1;
-    
     public static String GOOD_EXIT_STATUS = "VERY GOOD INVOCATION";       
     
     @Inject
@@ -41,9 +39,7 @@ public class MyBatchletImpl extends AbstractBatchlet {
 	    
 	    jobCtx.setExitStatus(curStatus + "UnusedExitStatusForPartitions");
 	    
-		logger.fine("Running batchlet process(): " + count);
-		
-		count++;
+		logger.fine("Running batchlet process(), job execution: " + jobCtx.getExecutionId());
 
 		return GOOD_EXIT_STATUS;
 				
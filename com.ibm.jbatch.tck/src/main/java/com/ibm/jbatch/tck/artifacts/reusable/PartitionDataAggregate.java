@@ -0,0 +1,128 @@
+/**
+ * Copyright 2012 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.reusable;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.StepContext;
+
+/**
+ * Counts the collector payloads (by value) and partition statuses of a partitioned step.
+ *
+ * Each update is a constant-time, lock-free increment, so the cost of analyzing a payload doesn't
+ * grow with the number of partitions, and the aggregate can be fed from any thread (the partition
+ * threads as well as the analyzer).
+ *
+ * Shared by {@link AggregatingPartitionAnalyzer} and {@link AggregatingPartitionReducer} through
+ * the transient user data of the top-level step.
+ */
+public class PartitionDataAggregate {
+
+	public static final String PAYLOADS = "payloads";
+	public static final String STATUSES = "statuses";
+	public static final String PAYLOAD_PREFIX = "payload.";
+	public static final String STATUS_PREFIX = "status.";
+
+	private final AtomicLong payloads = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> payloadCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final AtomicLong statuses = new AtomicLong();
+	private final AtomicLongArray statusCounts = new AtomicLongArray(BatchStatus.values().length);
+
+	/**
+	 * @return the step's aggregate, set as its transient user data if it doesn't have one yet
+	 */
+	public static PartitionDataAggregate forStep(StepContext stepCtx) {
+		Object data = stepCtx.getTransientUserData();
+		if (data instanceof PartitionDataAggregate) {
+			return (PartitionDataAggregate) data;
+		}
+		PartitionDataAggregate aggregate = new PartitionDataAggregate();
+		stepCtx.setTransientUserData(aggregate);
+		return aggregate;
+	}
+
+	public void addPayload(Serializable data) {
+		String key;
+		if (data instanceof ExternalizableString) {
+			key = ((ExternalizableString) data).getString();
+		} else {
+			key = String.valueOf(data);
+		}
+
+		AtomicLong count = payloadCounts.get(key);
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+			count = payloadCounts.putIfAbsent(key, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+		payloads.incrementAndGet();
+	}
+
+	public void addStatus(BatchStatus batchStatus) {
+		statusCounts.incrementAndGet(batchStatus.ordinal());
+		statuses.incrementAndGet();
+	}
+
+	public long getPayloadCount() {
+		return payloads.get();
+	}
+
+	public long getPayloadCount(String value) {
+		AtomicLong count = payloadCounts.get(value);
+		return count == null ? 0 : count.get();
+	}
+
+	public long getStatusCount() {
+		return statuses.get();
+	}
+
+	public long getStatusCount(BatchStatus batchStatus) {
+		return statusCounts.get(batchStatus.ordinal());
+	}
+
+	/**
+	 * @return the counts as comma-separated key=value pairs: the totals, then payload.&lt;value&gt;
+	 * and status.&lt;BatchStatus&gt; for each one seen
+	 */
+	public String summarize() {
+		StringBuilder buf = new StringBuilder();
+		buf.append(PAYLOADS).append('=').append(payloads.get());
+		buf.append(',').append(STATUSES).append('=').append(statuses.get());
+
+		for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(payloadCounts).entrySet()) {
+			buf.append(',').append(PAYLOAD_PREFIX).append(entry.getKey()).append('=').append(entry.getValue().get());
+		}
+		for (BatchStatus batchStatus : BatchStatus.values()) {
+			long count = statusCounts.get(batchStatus.ordinal());
+			if (count > 0) {
+				buf.append(',').append(STATUS_PREFIX).append(batchStatus).append('=').append(count);
+			}
+		}
+		return buf.toString();
+	}
+}
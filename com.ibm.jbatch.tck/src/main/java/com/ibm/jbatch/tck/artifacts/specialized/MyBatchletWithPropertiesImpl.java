@@ -28,8 +28,6 @@ public class MyBatchletWithPropertiesImpl extends AbstractBatchlet {
 
 	private final static Logger logger = Logger.getLogger(MyBatchletWithPropertiesImpl.class.getName());
 	
-    private static int count = 1;
-
     public static String GOOD_EXIT_CODE = "VERY GOOD INVOCATION";
 
     @Inject    
@@ -101,7 +99,7 @@ public class MyBatchletWithPropertiesImpl extends AbstractBatchlet {
     
     @Override
     public void stop() throws Exception {
-        logger.fine("MyBatchletWithProperties.cancel() - @Cancel #" + count);
+        logger.fine("MyBatchletWithProperties.cancel() - @Cancel");
     }
 
 
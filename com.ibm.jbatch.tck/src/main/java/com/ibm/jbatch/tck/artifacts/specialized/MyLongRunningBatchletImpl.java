@@ -26,6 +26,7 @@ import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.jbatch.tck.artifacts.reusable.StopOnBulletinBoardTestData;
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
 
 // NOTE:  We do NOT use the default @Named value in this special case, like we usually do.
 // Be careful generating the batch.xml !!  
@@ -96,6 +97,11 @@ public class MyLongRunningBatchletImpl extends AbstractBatchlet {
 		int numTimesToRun = 500;
 		boolean maxTimesReached = false;
 
+		// Only a test that's going to stop this waits for the signal
+		if (runIndefinitely) {
+			JobExecutionRunningSignals.signal(jobCtx.getExecutionId());
+		}
+
 		while (!stopped) {
 			if (i % 100000 == 0) {
 				logger.fine("i=" + i++);
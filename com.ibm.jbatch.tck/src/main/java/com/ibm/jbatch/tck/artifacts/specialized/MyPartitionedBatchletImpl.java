@@ -29,8 +29,6 @@ public class MyPartitionedBatchletImpl extends AbstractBatchlet {
 
 	private final static Logger logger = Logger.getLogger(MyPartitionedBatchletImpl.class.getName());
 	
-    private static int count = 1;
-
     @Inject    
     @BatchProperty(name="good.partition.status")
     private String good_partition_status;
@@ -70,7 +68,7 @@ public class MyPartitionedBatchletImpl extends AbstractBatchlet {
 
     @Override
     public void stop() throws Exception {
-        logger.fine("MyPartitionedBatchletImpl() - @Cancel #" + count);
+        logger.fine("MyPartitionedBatchletImpl() - @Cancel");
     }
 
 
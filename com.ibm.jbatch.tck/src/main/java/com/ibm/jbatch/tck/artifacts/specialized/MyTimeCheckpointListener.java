@@ -16,6 +16,7 @@
  */
 package com.ibm.jbatch.tck.artifacts.specialized;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.batch.api.BatchProperty;
@@ -65,6 +66,7 @@ public class MyTimeCheckpointListener extends AbstractChunkListener {
     		
 
         
+        // Timed with System.nanoTime() rather than the wall clock, so a clock adjustment can't move a checkpoint in or out of the window
         long curdiff = endTime - startTime;
         logger.fine("CHUNKLISTENER: curdiff: " + curdiff);
         int diff = 0;
@@ -72,7 +74,7 @@ public class MyTimeCheckpointListener extends AbstractChunkListener {
         	diff = 0;
         }
         else {
-        	diff = (int)((int)endTime - startTime)/1000;
+        	diff = (int) TimeUnit.NANOSECONDS.toSeconds(curdiff);
         }
         
         logger.fine("AJM: time diff =" + diff);
@@ -87,7 +89,7 @@ public class MyTimeCheckpointListener extends AbstractChunkListener {
 			//throw new Exception("WRITE: the chunk write did not occur at the correct time boundry -> "+ diff + " which is: " + timeinterval + "+/- 1 second");
 		}
 		        
-        startTime = System.currentTimeMillis();    	
+        startTime = System.nanoTime();    	
     }
     
    
@@ -98,7 +100,7 @@ public class MyTimeCheckpointListener extends AbstractChunkListener {
     	date = new java.util.Date();
         ts = date.getTime();
         
-        endTime = System.currentTimeMillis();
+        endTime = System.nanoTime();
     }
     
     @Override
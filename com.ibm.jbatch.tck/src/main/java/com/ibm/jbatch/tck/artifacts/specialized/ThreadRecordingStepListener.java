@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.specialized;
+
+import javax.batch.api.listener.AbstractStepListener;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+
+/**
+ * In afterStep() a record describing the thread (see {@link ThreadDescriptor}) is appended to the step exit status.
+ * It's used alongside {@link ThreadTrackingStepListener}, which checks that this is the job listener's thread.
+ */
+@Named
+public class ThreadRecordingStepListener extends AbstractStepListener {
+	
+	public final static String LISTENER = "listener";
+	
+	@Inject 
+	private StepContext stepCtx = null; 
+
+	@Override
+	public void afterStep() throws Exception {
+		String exitStatus = stepCtx.getExitStatus();
+		String record = ThreadDescriptor.pair(LISTENER, "afterStep") + "," + ThreadDescriptor.describe(Thread.currentThread());
+		stepCtx.setExitStatus(exitStatus == null ? record : exitStatus + ThreadDescriptor.RECORD_SEPARATOR + record);
+	}
+}
@@ -23,6 +23,8 @@ import javax.batch.runtime.context.JobContext;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+
 @Named
 public class ThreadTrackingJobListener extends AbstractJobListener {
 	
@@ -44,8 +46,8 @@ public class ThreadTrackingJobListener extends AbstractJobListener {
 		if (t == null) {
 			jobCtx.setExitStatus(GOOD_EXIT);
 		} else {
-			logger.warning("Failing test in current thread:" + Thread.currentThread());
-			throw new IllegalStateException("Failing test in current thread:" + Thread.currentThread());
+			logger.warning("Failing test in current thread:" + ThreadDescriptor.describe(Thread.currentThread()));
+			throw new IllegalStateException("Failing test in current thread:" + ThreadDescriptor.describe(Thread.currentThread()));
 		}
 	}
 }
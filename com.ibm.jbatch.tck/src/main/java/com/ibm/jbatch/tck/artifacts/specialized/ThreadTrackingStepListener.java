@@ -21,6 +21,12 @@ import javax.batch.runtime.context.JobContext;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+
+/**
+ * Checks that the step listener runs on the same thread as the job listener, which for a virtual
+ * thread means the same Thread object, whatever carrier it's mounted on.
+ */
 @Named
 public class ThreadTrackingStepListener extends AbstractStepListener {
 	
@@ -33,7 +39,7 @@ public class ThreadTrackingStepListener extends AbstractStepListener {
 		if (t == null) {
 			throw new IllegalStateException("In beforeStep() expected job listener to have already set this.  Are we not on the same thread?");
 		} else if (!t.equals(Thread.currentThread())) {
-			throw new IllegalStateException("Current thread = " + Thread.currentThread().toString() + ", but in transient data found " + t);
+			throw new IllegalStateException("Current thread = " + ThreadDescriptor.describe(Thread.currentThread()) + ", but in transient data found " + ThreadDescriptor.describe(t));
 		}
 	}
 
@@ -43,7 +49,7 @@ public class ThreadTrackingStepListener extends AbstractStepListener {
 		if (t == null) {
 			throw new IllegalStateException("In afterStep() expected job listener to have already set this.  Are we not on the same thread?");
 		} else if (!t.equals(Thread.currentThread())) {
-			throw new IllegalStateException("Current thread = " + Thread.currentThread().toString() + ", but in transient data found " + t);
+			throw new IllegalStateException("Current thread = " + ThreadDescriptor.describe(Thread.currentThread()) + ", but in transient data found " + ThreadDescriptor.describe(t));
 		}
 		jobCtx.setTransientUserData(null);
 	}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2012 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.specialized;
+
+import java.io.Serializable;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.perf.PartitionStressRecorder;
+
+/**
+ * MyPartitionAnalyzer, timing each payload into the {@link PartitionStressRecorder}.
+ *
+ * Declares its own context fields since a runtime isn't required to inject the superclass's,
+ * and hands them to MyPartitionAnalyzer before delegating.
+ */
+@javax.inject.Named("timedPartitionAnalyzer")
+public class TimedPartitionAnalyzer extends MyPartitionAnalyzer {
+
+	@Inject
+	JobContext jobContext;
+
+	@Inject
+	StepContext stepContext;
+
+	private PartitionStressRecorder recorder() {
+		jobCtx = jobContext;
+		stepCtx = stepContext;
+		return PartitionStressRecorder.get(jobContext.getExecutionId());
+	}
+
+	@Override
+	public void analyzeCollectorData(Serializable data) throws Exception {
+		PartitionStressRecorder recorder = recorder();
+		if (recorder == null) {
+			super.analyzeCollectorData(data);
+			return;
+		}
+
+		long arrivalTime = recorder.payloadArrived();
+		super.analyzeCollectorData(data);
+		recorder.payloadAnalyzed(arrivalTime);
+	}
+
+	@Override
+	public void analyzeStatus(BatchStatus batchStatus, String exitStatus) throws Exception {
+		PartitionStressRecorder recorder = recorder();
+		super.analyzeStatus(batchStatus, exitStatus);
+		if (recorder != null) {
+			recorder.statusAnalyzed();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2012 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.artifacts.specialized;
+
+import java.io.Externalizable;
+
+import javax.batch.runtime.context.JobContext;
+import javax.inject.Inject;
+
+import com.ibm.jbatch.tck.artifacts.perf.PartitionStressRecorder;
+
+/**
+ * MyPartitionCollector, telling the {@link PartitionStressRecorder} when each payload is sent.
+ */
+@javax.inject.Named("timedPartitionCollector")
+public class TimedPartitionCollector extends MyPartitionCollector {
+
+	@Inject
+	JobContext jobCtx;
+
+	@Override
+	public Externalizable collectPartitionData() throws Exception {
+		Externalizable data = super.collectPartitionData();
+
+		PartitionStressRecorder recorder = PartitionStressRecorder.get(jobCtx.getExecutionId());
+		if (recorder != null) {
+			recorder.payloadSent();
+		}
+		return data;
+	}
+}
@@ -51,10 +51,11 @@ public class VerifySkipWriteListener implements SkipWriteListener {
     
     //These values are hardcoded based on when the writer fails. A change to the job or writer will result in a change of these values.
     //these values can be easily retreived by running the test without the check, and viewing the reporter output from line 75
-    private static int[] expectedValues={ 16, 17, 18, 25, 26, 27, 34, 35, 36};
+    private static final int[] expectedValues={ 16, 17, 18, 25, 26, 27, 34, 35, 36};
     
-    //to keep track of which item is expected next
-    private static int indexOfExpectedValue = 0;
+    //to keep track of which item is expected next. An instance is created for each step execution, so this
+    //starts over for every job execution, including ones running concurrently.
+    private int indexOfExpectedValue = 0;
 
     @Override
     public void onSkipWriteItem(List items, Exception e) throws Exception {
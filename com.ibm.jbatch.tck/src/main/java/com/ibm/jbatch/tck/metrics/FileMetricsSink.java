@@ -0,0 +1,298 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.tck.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
+
+/**
+ * Implementation of the TCK TCKMetricsSink SPI which writes the events of each test to a file
+ * named after the test method (e.g. com.ibm.jbatch.tck.tests.jslxml.ChunkTests.testChunkDefaultItemCount.csv)
+ * in the directory given by the tck.metrics.dir system property.  Without that property it does nothing.
+ *
+ * <p>
+ * The events are kept in memory per JobExecution and appended to the file when the test driver sees
+ * the execution end, so that no I/O is done from the chunk loop.  Executions whose end isn't seen
+ * (e.g. when the artifacts run in another JVM, as in EE) are written at JVM shutdown,
+ * to files named after the execution id.
+ *
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>tck.metrics.dir - directory to write to, created if necessary</li>
+ * <li>tck.metrics.format - "csv" (the default) for one row per measurement, or "json" for one JSON object
+ * per line (in a .jsonl file), with the same fields</li>
+ * </ul>
+ * Fields: test, job, executionId, step, metric (jobStart, firstRead, read, process, write or checkpoint),
+ * chunk and nanos.  The job name is empty for a restart.
+ */
+public class FileMetricsSink implements TCKMetricsSink {
+
+	private final static String sourceClass = FileMetricsSink.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public static final String DIR_PROP = "tck.metrics.dir";
+	public static final String FORMAT_PROP = "tck.metrics.format";
+
+	private static final String CSV_HEADER = "test,job,executionId,step,metric,chunk,nanos";
+
+	private final File dir;
+	private final boolean json;
+
+	private final ConcurrentMap<Long, ExecutionEvents> executions = new ConcurrentHashMap<Long, ExecutionEvents>();
+
+	public FileMetricsSink() {
+		String dirName = System.getProperty(DIR_PROP);
+		dir = (dirName == null || dirName.trim().isEmpty()) ? null : new File(dirName.trim());
+		json = "json".equalsIgnoreCase(System.getProperty(FORMAT_PROP));
+
+		if (dir != null) {
+			logger.fine("Writing TCK metrics to " + dir.getAbsolutePath());
+			Runtime.getRuntime().addShutdownHook(new Thread("TCK metrics shutdown writer") {
+				@Override
+				public void run() {
+					writeAll();
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return whether tck.metrics.dir was set, so that events are written
+	 */
+	public boolean isEnabled() {
+		return dir != null;
+	}
+
+	@Override
+	public void jobStarted(String jobName, long executionId, long startLatency) {
+		if (dir == null) {
+			return;
+		}
+		ExecutionEvents events = eventsFor(executionId);
+		events.jobName = jobName;
+		events.testName = currentTestName();
+		events.add(null, "jobStart", 0, startLatency);
+	}
+
+	@Override
+	public void jobEnded(long executionId, String batchStatus) {
+		if (dir == null) {
+			return;
+		}
+		ExecutionEvents events = executions.remove(executionId);
+		if (events != null) {
+			write(events);
+		}
+	}
+
+	@Override
+	public void firstRead(long executionId, String stepName, long timeToFirstRead) {
+		if (dir == null) {
+			return;
+		}
+		eventsFor(executionId).add(stepName, "firstRead", 0, timeToFirstRead);
+	}
+
+	@Override
+	public void chunkCompleted(long executionId, String stepName, int chunk, long readTime, long processTime, long writeTime) {
+		if (dir == null) {
+			return;
+		}
+		ExecutionEvents events = eventsFor(executionId);
+		events.add(stepName, "read", chunk, readTime);
+		events.add(stepName, "process", chunk, processTime);
+		events.add(stepName, "write", chunk, writeTime);
+	}
+
+	@Override
+	public void checkpointCompleted(long executionId, String stepName, int chunk, long checkpointTime) {
+		if (dir == null) {
+			return;
+		}
+		eventsFor(executionId).add(stepName, "checkpoint", chunk, checkpointTime);
+	}
+
+	private ExecutionEvents eventsFor(long executionId) {
+		ExecutionEvents events = executions.get(executionId);
+		if (events == null) {
+			ExecutionEvents newEvents = new ExecutionEvents(executionId);
+			events = executions.putIfAbsent(executionId, newEvents);
+			if (events == null) {
+				events = newEvents;
+			}
+		}
+		return events;
+	}
+
+	/*
+	 * Only the test driver thread has a current test result.  TestNG isn't necessarily
+	 * available at all where the artifacts run.
+	 */
+	private static String currentTestName() {
+		try {
+			ITestResult result = Reporter.getCurrentTestResult();
+			if (result != null && result.getMethod() != null) {
+				return result.getTestClass().getName() + "." + result.getMethod().getMethodName();
+			}
+		} catch (LinkageError e) {
+			logger.log(Level.FINEST, "TestNG not available", e);
+		}
+		return null;
+	}
+
+	private void writeAll() {
+		for (Long executionId : new ArrayList<Long>(executions.keySet())) {
+			ExecutionEvents events = executions.remove(executionId);
+			if (events != null) {
+				write(events);
+			}
+		}
+	}
+
+	private synchronized void write(ExecutionEvents events) {
+		String baseName = events.testName != null ? events.testName : "execution-" + events.executionId;
+		File file = new File(dir, baseName.replaceAll("[^A-Za-z0-9._-]", "_") + (json ? ".jsonl" : ".csv"));
+
+		Writer out = null;
+		try {
+			dir.mkdirs();
+			boolean newFile = !file.exists() || file.length() == 0;
+			out = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+			if (newFile && !json) {
+				out.write(CSV_HEADER);
+				out.write('\n');
+			}
+			for (Event event : events.snapshot()) {
+				out.write(json ? toJson(events, event) : toCsv(events, event));
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Couldn't write TCK metrics to " + file.getAbsolutePath(), e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					logger.log(Level.FINE, "Ignoring failure to close " + file.getAbsolutePath(), e);
+				}
+			}
+		}
+	}
+
+	private static String toCsv(ExecutionEvents events, Event event) {
+		StringBuilder buf = new StringBuilder();
+		buf.append(csvField(events.testName)).append(',');
+		buf.append(csvField(events.jobName)).append(',');
+		buf.append(events.executionId).append(',');
+		buf.append(csvField(event.stepName)).append(',');
+		buf.append(event.metric).append(',');
+		buf.append(event.chunk).append(',');
+		buf.append(event.nanos);
+		return buf.toString();
+	}
+
+	private static String csvField(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static String toJson(ExecutionEvents events, Event event) {
+		StringBuilder buf = new StringBuilder("{");
+		buf.append("\"test\":").append(jsonString(events.testName));
+		buf.append(",\"job\":").append(jsonString(events.jobName));
+		buf.append(",\"executionId\":").append(events.executionId);
+		buf.append(",\"step\":").append(jsonString(event.stepName));
+		buf.append(",\"metric\":").append(jsonString(event.metric));
+		buf.append(",\"chunk\":").append(event.chunk);
+		buf.append(",\"nanos\":").append(event.nanos);
+		return buf.append('}').toString();
+	}
+
+	private static String jsonString(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder buf = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			} else if (c < 0x20) {
+				buf.append(String.format("\\u%04x", (int) c));
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+
+	private static class Event {
+		final String stepName;
+		final String metric;
+		final int chunk;
+		final long nanos;
+
+		Event(String stepName, String metric, int chunk, long nanos) {
+			this.stepName = stepName;
+			this.metric = metric;
+			this.chunk = chunk;
+			this.nanos = nanos;
+		}
+	}
+
+	/*
+	 * Partitions of a step report concurrently, so adding is synchronized.
+	 */
+	private static class ExecutionEvents {
+		final long executionId;
+		volatile String jobName;
+		volatile String testName;
+		private final List<Event> events = new ArrayList<Event>();
+
+		ExecutionEvents(long executionId) {
+			this.executionId = executionId;
+		}
+
+		synchronized void add(String stepName, String metric, int chunk, long nanos) {
+			events.add(new Event(stepName, metric, chunk, nanos));
+		}
+
+		synchronized List<Event> snapshot() {
+			return new ArrayList<Event>(events);
+		}
+	}
+}
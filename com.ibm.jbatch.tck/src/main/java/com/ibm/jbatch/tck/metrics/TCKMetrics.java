@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.tck.metrics;
+
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
+import com.ibm.jbatch.tck.utils.ServiceGateway;
+
+/**
+ * Holds the TCKMetricsSink shared by the test driver and the artifacts in this JVM (or classloader).
+ */
+public class TCKMetrics {
+
+	private static volatile TCKMetricsSink sink;
+
+	/**
+	 * @return the sink loaded by ServiceGateway the first time this is called, or one that ignores
+	 * all events if none is listed.
+	 */
+	public static TCKMetricsSink getSink() {
+		TCKMetricsSink result = sink;
+		if (result == null) {
+			synchronized (TCKMetrics.class) {
+				result = sink;
+				if (result == null) {
+					result = ServiceGateway.getMetricsSinkService();
+					if (result == null) {
+						result = new NoOpSink();
+					}
+					sink = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return false if the sink is known to ignore every event:  the one used when none is listed, or a
+	 * FileMetricsSink without tck.metrics.dir.  Any other sink is assumed to record them.
+	 */
+	public static boolean isRecording() {
+		TCKMetricsSink result = getSink();
+		if (result instanceof NoOpSink) {
+			return false;
+		}
+		if (result instanceof FileMetricsSink) {
+			return ((FileMetricsSink) result).isEnabled();
+		}
+		return true;
+	}
+
+	private static class NoOpSink implements TCKMetricsSink {
+
+		@Override
+		public void jobStarted(String jobName, long executionId, long startLatency) {
+		}
+
+		@Override
+		public void jobEnded(long executionId, String batchStatus) {
+		}
+
+		@Override
+		public void firstRead(long executionId, String stepName, long timeToFirstRead) {
+		}
+
+		@Override
+		public void chunkCompleted(long executionId, String stepName, int chunk, long readTime, long processTime, long writeTime) {
+		}
+
+		@Override
+		public void checkpointCompleted(long executionId, String stepName, int chunk, long checkpointTime) {
+		}
+	}
+}
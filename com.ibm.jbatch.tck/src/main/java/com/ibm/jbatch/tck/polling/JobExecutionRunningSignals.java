@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.polling;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shared registry of "now running" signals, keyed by execution id, with which a test can issue
+ * stop() as soon as the artifacts it means to interrupt are running, rather than after a fixed sleep.
+ *
+ * Signals are raised by the artifacts themselves (e.g. MyLongRunningBatchletImpl, once for each partition
+ * running it).  As with {@link JobExecutionTerminationSignals}, this only works when the runtime executes
+ * the job in the same JVM as the TestNG thread;  otherwise no signal ever arrives and the test waits
+ * for its whole configured sleep time, as it always used to.
+ */
+public final class JobExecutionRunningSignals {
+
+	private final static Logger logger = Logger.getLogger(JobExecutionRunningSignals.class.getName());
+
+	private static final ConcurrentMap<Long, Arrivals> signals = new ConcurrentHashMap<Long, Arrivals>();
+
+	private JobExecutionRunningSignals() {
+	}
+
+	/**
+	 * Called by an artifact once it's running, e.g. from the start of Batchlet.process().
+	 */
+	public static void signal(long executionId) {
+		logger.fine("Signaling running for executionId = " + executionId);
+		arrivalsFor(executionId).arrive();
+	}
+
+	/**
+	 * Waits until the given number of signals have been raised for this execution, or the timeout passes.
+	 * Either way, the signals for this execution are discarded.
+	 *
+	 * @return true if all the signals arrived, false if the wait timed out
+	 */
+	public static boolean await(long executionId, int parties, long timeoutMillis) throws InterruptedException {
+		try {
+			return arrivalsFor(executionId).await(parties, timeoutMillis);
+		} finally {
+			signals.remove(executionId);
+		}
+	}
+
+	/**
+	 * @return the arrivals for this execution, creating them if the test gets here before the first signal does.
+	 */
+	private static Arrivals arrivalsFor(long executionId) {
+		Arrivals arrivals = signals.get(executionId);
+		if (arrivals == null) {
+			Arrivals newArrivals = new Arrivals();
+			arrivals = signals.putIfAbsent(executionId, newArrivals);
+			if (arrivals == null) {
+				arrivals = newArrivals;
+			}
+		}
+		return arrivals;
+	}
+
+	/*
+	 * A CountDownLatch can't be used, since whichever of the test and the artifacts gets here first
+	 * creates the entry, and only the test knows how many signals to expect.
+	 */
+	private static class Arrivals {
+
+		private int count = 0;
+
+		synchronized void arrive() {
+			count++;
+			notifyAll();
+		}
+
+		synchronized boolean await(int parties, long timeoutMillis) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			while (count < parties) {
+				long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0) {
+					return false;
+				}
+				wait(remaining);
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.polling;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+/**
+ * Shared registry of "job is terminating" signals, keyed by execution id.
+ * 
+ * Signals are raised by a job-level listener running inside the batch runtime
+ * (see TerminationSignalJobListener), and consumed by TCKSignalingExecutionWaiterFactory.
+ * This only works when the runtime executes the job in the same JVM (and sees the
+ * same copy of this class) as the TestNG thread;  otherwise no signal ever arrives
+ * and the waiter simply falls back to polling.
+ *
+ * The signal is recorded whichever of the job and the waiter gets here first, since a short job can
+ * end before the test has even created its waiter.  The entry is removed once the waiter is done, so a
+ * signal is only left behind for an execution that is never waited on by TCKSignalingExecutionWaiterFactory.
+ */
+public final class JobExecutionTerminationSignals {
+
+	private final static Logger logger = Logger.getLogger(JobExecutionTerminationSignals.class.getName());
+
+	private static final ConcurrentMap<Long, CountDownLatch> signals = new ConcurrentHashMap<Long, CountDownLatch>();
+
+	private JobExecutionTerminationSignals() {
+	}
+
+	/**
+	 * Called from afterJob(), i.e. once the job has finished executing but possibly
+	 * before the runtime has persisted the final batch and exit status.
+	 * 
+	 * If no waiter has registered yet, the signal is kept for the one that does.
+	 */
+	public static void signal(long executionId) {
+		logger.fine("Signaling termination for executionId = " + executionId);
+		latchFor(executionId).countDown();
+	}
+
+	/**
+	 * @return the latch for this execution, creating it if the waiter gets here before the signal does.
+	 */
+	static CountDownLatch latchFor(long executionId) {
+		CountDownLatch latch = signals.get(executionId);
+		if (latch == null) {
+			CountDownLatch newLatch = new CountDownLatch(1);
+			latch = signals.putIfAbsent(executionId, newLatch);
+			if (latch == null) {
+				latch = newLatch;
+			}
+		}
+		return latch;
+	}
+
+	/**
+	 * The waiter is done with this execution.  Note a restart gets a new execution id, so
+	 * the entry is never needed again.
+	 */
+	static void release(long executionId) {
+		signals.remove(executionId);
+	}
+}
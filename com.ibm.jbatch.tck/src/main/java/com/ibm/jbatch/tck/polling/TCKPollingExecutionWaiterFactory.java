@@ -37,6 +37,13 @@ import com.ibm.jbatch.tck.spi.JobExecutionTimeoutException;
  * Uses polling to repeatedly check execution results, thereby
  * waiting for completion.  Uses private inner class TCKPollingExecutionWaiter
  * to perform this.
+ * 
+ * By default polls at a fixed interval.  Setting system property
+ * <code>tck.execution.waiter.backoff=true</code> switches to exponential backoff
+ * instead:  the interval starts at <code>tck.execution.waiter.backoff.initial</code>
+ * (default 1 ms) and doubles on each poll up to <code>tck.execution.waiter.backoff.max</code>
+ * (default 100 ms, the fixed interval), going back to the initial interval whenever the batch status
+ * is seen to change.
  */
 public class TCKPollingExecutionWaiterFactory implements JobExecutionWaiterFactory {
 
@@ -45,6 +52,10 @@ public class TCKPollingExecutionWaiterFactory implements JobExecutionWaiterFacto
     
 	private final int POLL_INTERVAL = 100; // .1 second
 
+	private final boolean backoff = Boolean.getBoolean("tck.execution.waiter.backoff");
+	private final long initialBackoffInterval = Long.getLong("tck.execution.waiter.backoff.initial", 1);
+	private final long maxBackoffInterval = Long.getLong("tck.execution.waiter.backoff.max", POLL_INTERVAL);
+
 	/**
 	 * This implementation does no pooling of any kind, it just creates a new instance with new thread each time.
 	 * 
@@ -85,18 +96,26 @@ public class TCKPollingExecutionWaiterFactory implements JobExecutionWaiterFacto
 			JobExecution jobExecution = null;
 			
 			long startTime = System.currentTimeMillis();
+			long interval = backoff ? initialBackoffInterval : POLL_INTERVAL;
+			BatchStatus lastStatus = null;
+			long pollCount = 0;
 			
 			while (true) {				
 				try {
-					logger.finer("Sleeping for " + POLL_INTERVAL);
+					logger.finer("Sleeping for " + interval);
 					long curTime = System.currentTimeMillis();
 					timeOutIfExpired(startTime, curTime);
-					Thread.sleep(POLL_INTERVAL);
+					Thread.sleep(interval);
 					logger.finer("Wake up, check for termination.");
-					 jobExecution = jobOp.getJobExecution(executionId);
+					jobExecution = jobOp.getJobExecution(executionId);
+					pollCount++;
 					if (isTerminated(jobExecution)) {
 						break;
 					}
+					if (backoff) {
+						interval = nextInterval(interval, lastStatus, jobExecution.getBatchStatus());
+						lastStatus = jobExecution.getBatchStatus();
+					}
 				} catch (InterruptedException e) {
 					throw new IllegalStateException("Aborting on interrupt", e);
 				} catch (JobSecurityException e) {
@@ -105,9 +124,21 @@ public class TCKPollingExecutionWaiterFactory implements JobExecutionWaiterFacto
 					throw new IllegalStateException("JobExecution disappeared for exec id =" + executionId);
 				}
 			}
+			WaiterStatistics.record(executionId, System.currentTimeMillis() - startTime, pollCount, jobExecution);
 			return jobExecution;
 		}
 
+		/**
+		 * A status change means the job is making progress, so it's worth looking again soon.
+		 */
+		private long nextInterval(long interval, BatchStatus lastStatus, BatchStatus curStatus) {
+			if (lastStatus != null && lastStatus != curStatus) {
+				logger.finer("Batch status changed from " + lastStatus + " to " + curStatus + ", resetting poll interval.");
+				return initialBackoffInterval;
+			}
+			return Math.min(interval * 2, maxBackoffInterval);
+		}
+
 		private boolean isTerminated(JobExecution jobExecution) {
 			boolean retVal = false;
 			BatchStatus bs = jobExecution.getBatchStatus();
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.polling;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.batch.operations.JobOperator;
+import javax.batch.operations.JobSecurityException;
+import javax.batch.operations.NoSuchJobExecutionException;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import com.ibm.jbatch.tck.spi.JobExecutionTimeoutException;
+import com.ibm.jbatch.tck.spi.JobExecutionWaiter;
+import com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory;
+
+/**
+ * Implementation of the TCK "porting package" JobExecutionWaiterFactory SPI 
+ * which, rather than sleeping a fixed interval between polls, waits on the 
+ * termination signal raised by TerminationSignalJobListener.
+ * 
+ * Since the signal comes from afterJob(), it tells us the job is done executing,
+ * but not that the final status has been persisted, so we still confirm
+ * termination through JobOperator.getJobExecution(), just at the minimum interval
+ * once signaled.
+ * 
+ * For jobs which don't include the listener (or runtimes executing the job in another
+ * JVM or classloader) no signal arrives, and this degrades to polling with an interval
+ * growing from MIN_POLL_INTERVAL to MAX_POLL_INTERVAL.  So this should work for any
+ * implementation, never waiting longer between polls than TCKPollingExecutionWaiterFactory.
+ * 
+ * It isn't the default:  none of the TCK's own jobs include the listener.  To use it, add
+ * 'terminationSignalJobListener' to the listeners of the jobs to be waited on and set system property
+ * <code>tck.execution.waiter.factory=com.ibm.jbatch.tck.polling.TCKSignalingExecutionWaiterFactory</code>.
+ */
+public class TCKSignalingExecutionWaiterFactory implements JobExecutionWaiterFactory {
+
+	private final static String sourceClass = TCKSignalingExecutionWaiterFactory.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final static long MIN_POLL_INTERVAL = 5; // .005 second
+	private final static long MAX_POLL_INTERVAL = 100; // .1 second, the TCKPollingExecutionWaiterFactory interval
+
+	private final static AtomicLong signaledWaits = new AtomicLong();
+
+	/**
+	 * @return the number of waits, across all waiters in the JVM, that ended after their execution's termination
+	 * was signaled, rather than by polling alone
+	 */
+	public static long getSignaledWaits() {
+		return signaledWaits.get();
+	}
+
+	/**
+	 * @param executionId
+	 * @param JobOperator 
+	 * @param timeout In milliseconds
+	 * @return JobExecutionWaiter
+	 */
+	@Override
+	public JobExecutionWaiter createWaiter(long executionId, JobOperator jobOp, long timeout) {
+		return new TCKSignalingExecutionWaiter(executionId, jobOp, timeout);
+	}
+
+	private class TCKSignalingExecutionWaiter implements JobExecutionWaiter {
+
+		private long executionId;
+		private JobOperator jobOp;
+		private long timeout;
+
+		private TCKSignalingExecutionWaiter(long executionId, JobOperator jobOp, long timeout) {
+			logger.fine("Creating waiter for executionId = " + executionId + ", jobOp = " + jobOp + ", timeout = " + timeout);
+			this.executionId = executionId;
+			this.jobOp = jobOp;
+			this.timeout = timeout;
+		}
+
+		/**
+		 * Wait for
+		 *   1) BatchStatus to be one of: STOPPED ,FAILED , COMPLETED, ABANDONED
+		 *     AND 
+		 *   2) exitStatus to be non-null
+		 * @return JobExecution
+		 */
+		@Override
+		public JobExecution awaitTermination() throws JobExecutionTimeoutException {
+			logger.fine("Entering awaitTermination for executionId = " + executionId);
+			JobExecution jobExecution = null;
+
+			CountDownLatch signal = JobExecutionTerminationSignals.latchFor(executionId);
+			long interval = MIN_POLL_INTERVAL;
+			long startTime = System.currentTimeMillis();
+			long pollCount = 0;
+			boolean signaled = false;
+
+			try {
+				while (true) {
+					timeOutIfExpired(startTime, System.currentTimeMillis());
+					try {
+						if (signaled) {
+							// The latch stays open, so sleep rather than await it
+							Thread.sleep(MIN_POLL_INTERVAL);
+						} else if (signal.await(interval, TimeUnit.MILLISECONDS)) {
+							logger.finer("Termination signaled, check for termination.");
+							signaled = true;
+						} else {
+							logger.finer("No signal after " + interval + " ms, check for termination.");
+							interval = Math.min(interval * 2, MAX_POLL_INTERVAL);
+						}
+						jobExecution = jobOp.getJobExecution(executionId);
+						pollCount++;
+						if (isTerminated(jobExecution)) {
+							break;
+						}
+					} catch (InterruptedException e) {
+						throw new IllegalStateException("Aborting on interrupt", e);
+					} catch (JobSecurityException e) {
+						throw new IllegalStateException("Aborting on security (authorization) exception", e);
+					} catch (NoSuchJobExecutionException e) {
+						throw new IllegalStateException("JobExecution disappeared for exec id =" + executionId);
+					}
+				}
+			} finally {
+				JobExecutionTerminationSignals.release(executionId);
+			}
+			if (signaled) {
+				signaledWaits.incrementAndGet();
+			}
+			WaiterStatistics.record(executionId, System.currentTimeMillis() - startTime, pollCount, jobExecution);
+			return jobExecution;
+		}
+
+		private boolean isTerminated(JobExecution jobExecution) {
+			BatchStatus bs = jobExecution.getBatchStatus();
+			if (!terminatedStatuses.contains(bs)) {
+				logger.finer("Found non-terminating batch status of: " + bs.name());
+				return false;
+			}
+			logger.fine("Found terminating batch status of: " + bs.name());
+			if (jobExecution.getExitStatus() == null) {
+				logger.fine("Exit status is still 'null'.  Poll again.");
+				return false;
+			}
+			logger.fine("Found exit status of: " + jobExecution.getExitStatus());
+			return true;
+		}
+
+		private void timeOutIfExpired(long startTime, long curTime) throws JobExecutionTimeoutException {
+			long diff = curTime - startTime;
+			if (diff > timeout) {
+				logger.warning("Timed out waiting for TCK Job Execution to reach terminated status.  Time elapsed (long msec) = " + diff + ", and timeout = " + timeout);
+				throw new JobExecutionTimeoutException("Timed out waiting for TCK Job Execution to reach terminated status.  Time elapsed (long msec) = " + diff + ", and timeout = " + timeout);
+			}
+		}
+	}
+
+	private static Set<BatchStatus> terminatedStatuses = new HashSet<BatchStatus>();
+	static {
+		terminatedStatuses.add(BatchStatus.STOPPED);
+		terminatedStatuses.add(BatchStatus.FAILED);
+		terminatedStatuses.add(BatchStatus.COMPLETED);
+		terminatedStatuses.add(BatchStatus.ABANDONED);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.polling;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import javax.batch.runtime.JobExecution;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.Reporter;
+
+/**
+ * Accumulates, across all waits in the JVM, how long the waiters spent waiting
+ * and how many times they polled, as power-of-two histograms.
+ * 
+ * The "overshoot" of a wait is the time between the job's end time (as recorded
+ * by the runtime) and the waiter noticing it, i.e. time spent waiting on the waiter
+ * rather than on the job.
+ * 
+ * The TCK's suites register this class as a TestNG listener, so the histograms are logged (to the
+ * TestNG reporter output and this class's logger) at the end of the suite.  To get them from another suite, add
+ * <pre>
+ *   &lt;listeners&gt;
+ *     &lt;listener class-name="com.ibm.jbatch.tck.polling.WaiterStatistics" /&gt;
+ *   &lt;/listeners&gt;
+ * </pre>
+ */
+public class WaiterStatistics implements ISuiteListener {
+
+	private final static Logger logger = Logger.getLogger(WaiterStatistics.class.getName());
+
+	// Bucket i counts values in (2^(i-1), 2^i], bucket 0 counts values <= 1, and the last bucket is unbounded.
+	private static final int NUM_BUCKETS = 24;
+
+	private static final AtomicLong waits = new AtomicLong();
+	private static final AtomicLong totalWaitTime = new AtomicLong();
+	private static final AtomicLong totalOvershoot = new AtomicLong();
+	private static final AtomicLongArray waitTimeHistogram = new AtomicLongArray(NUM_BUCKETS);
+	private static final AtomicLongArray pollCountHistogram = new AtomicLongArray(NUM_BUCKETS);
+	private static final AtomicLongArray overshootHistogram = new AtomicLongArray(NUM_BUCKETS);
+
+	/**
+	 * Records a completed wait, and logs it to the TestNG Reporter for the current test method.
+	 * 
+	 * @param executionId
+	 * @param waitTime In milliseconds
+	 * @param pollCount Number of calls to JobOperator.getJobExecution()
+	 * @param terminatedJobExecution
+	 */
+	static void record(long executionId, long waitTime, long pollCount, JobExecution terminatedJobExecution) {
+		long overshoot = 0;
+		Date endTime = terminatedJobExecution.getEndTime();
+		if (endTime != null) {
+			overshoot = Math.max(0, System.currentTimeMillis() - endTime.getTime());
+		}
+
+		waits.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+		totalOvershoot.addAndGet(overshoot);
+		waitTimeHistogram.incrementAndGet(bucket(waitTime));
+		pollCountHistogram.incrementAndGet(bucket(pollCount));
+		overshootHistogram.incrementAndGet(bucket(overshoot));
+
+		Reporter.log("Waited " + waitTime + " ms for executionId = " + executionId + " over " + pollCount + " polls, " + overshoot + " ms after job end time<p>");
+	}
+
+	private static int bucket(long value) {
+		if (value <= 1) {
+			return 0;
+		}
+		int b = 64 - Long.numberOfLeadingZeros(value - 1);
+		return Math.min(b, NUM_BUCKETS - 1);
+	}
+
+	public static String summary() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("Job execution waits: ").append(waits.get());
+		buf.append(", total wait time (ms): ").append(totalWaitTime.get());
+		buf.append(", total time after job end (ms): ").append(totalOvershoot.get()).append("<p>");
+		appendHistogram(buf, "Wait time (ms)", waitTimeHistogram);
+		appendHistogram(buf, "Poll count", pollCountHistogram);
+		appendHistogram(buf, "Time after job end (ms)", overshootHistogram);
+		return buf.toString();
+	}
+
+	private static void appendHistogram(StringBuilder buf, String title, AtomicLongArray histogram) {
+		buf.append(title).append(":<br>");
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			long count = histogram.get(i);
+			if (count == 0) {
+				continue;
+			}
+			if (i == NUM_BUCKETS - 1) {
+				buf.append("&nbsp;&nbsp;&gt; ").append(1L << (i - 1));
+			} else {
+				buf.append("&nbsp;&nbsp;&lt;= ").append(1L << i);
+			}
+			buf.append(" : ").append(count).append("<br>");
+		}
+		buf.append("<p>");
+	}
+
+	@Override
+	public void onStart(ISuite suite) {
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		String summary = summary();
+		Reporter.log(summary);
+		logger.info(summary.replaceAll("<p>|<br>", "\n").replace("&nbsp;", " ").replace("&lt;", "<").replace("&gt;", ">"));
+	}
+}
@@ -44,7 +44,7 @@ public class TransactionTests {
 
 	private final static Logger logger = Logger.getLogger(TransactionTests.class.getName());
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
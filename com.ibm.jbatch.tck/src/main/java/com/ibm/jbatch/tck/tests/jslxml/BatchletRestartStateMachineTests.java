@@ -32,7 +32,7 @@ import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
 
 public class BatchletRestartStateMachineTests {
 
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 
@@ -48,7 +48,7 @@ import org.testng.annotations.Test;
 
 public class ChunkTests {
 
-    private static JobOperatorBridge jobOp = null;
+    private static volatile JobOperatorBridge jobOp = null;
 
     public static void setup(String[] args, Properties props) throws Exception {
         String METHOD = "setup";
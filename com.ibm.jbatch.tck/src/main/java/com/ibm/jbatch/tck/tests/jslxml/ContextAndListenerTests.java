@@ -38,7 +38,7 @@ import org.testng.annotations.Test;
 public class ContextAndListenerTests {
 
 	private final static Logger logger = Logger.getLogger(ContextAndListenerTests.class.getName());
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 
 	public static void setup(String[] args, Properties props) throws Exception {
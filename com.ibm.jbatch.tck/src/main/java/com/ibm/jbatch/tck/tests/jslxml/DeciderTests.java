@@ -38,7 +38,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class DeciderTests implements StatusConstants {
 	private final static Logger logger = Logger.getLogger(DeciderTests.class.getName());
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	private final static String FORCE_STOP_EXITSTATUS = "STEP_COMPLETE_BUT_FORCE_JOB_STOPPED_STATUS";
 	private final static String FORCE_FAIL_EXITSTATUS = "STEP_COMPLETE_BUT_FORCE_JOB_FAILED_STATUS";
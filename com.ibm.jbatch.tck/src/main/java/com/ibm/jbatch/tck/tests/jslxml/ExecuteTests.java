@@ -35,7 +35,7 @@ import org.testng.annotations.Test;
 public class ExecuteTests {
 
 	private final static Logger logger = Logger.getLogger(ExecuteTests.class.getName());
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 
 	public static void setup(String[] args, Properties props) throws Exception {
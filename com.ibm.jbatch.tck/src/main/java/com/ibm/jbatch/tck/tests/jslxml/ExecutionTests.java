@@ -35,7 +35,7 @@ import org.testng.annotations.Test;
 
 public class ExecutionTests {
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
@@ -36,7 +36,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class FlowTransitioningTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 	/**
 	 * @testName: testFlowTransitionToStep
@@ -39,7 +39,7 @@ import org.testng.annotations.Test;
 
 public class JobAttributeRestartTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 	private long TIMEOUT = 5000L;
 
@@ -36,7 +36,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class JobExecutableSequenceTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 	/**
 	 * @testName: testJobExecutableSequenceToUnknown
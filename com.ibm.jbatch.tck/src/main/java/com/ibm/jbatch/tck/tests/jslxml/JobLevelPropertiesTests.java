@@ -35,7 +35,7 @@ import org.testng.annotations.Test;
 
 public class JobLevelPropertiesTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 	
 	private String FOO_VALUE = "bar";
 
@@ -39,6 +39,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
 import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
 
@@ -46,7 +47,7 @@ public class JobOperatorTests {
 
 	private final static Logger logger = Logger.getLogger(JobOperatorTests.class.getName());
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 
@@ -456,8 +457,9 @@ public class JobOperatorTests {
 			JobExecution jobExec = jobOp.startJobWithoutWaitingForResult("job_batchlet_longrunning", jobParameters);
 
 			int sleepTime = Integer.parseInt(System.getProperty("JobOperatorTests.testInvokeJobWithUserStop.sleep",DEFAULT_SLEEP_TIME));
-			Reporter.log("Thread.sleep(" +  sleepTime + ")<p>");
-			Thread.sleep(sleepTime);
+			Reporter.log("Wait up to " + sleepTime + " ms for the batchlet to be running<p>");
+			boolean running = JobExecutionRunningSignals.await(jobExec.getExecutionId(), 1, sleepTime);
+			Reporter.log("Batchlet signaled running: " + running + "<p>");
 
 			Reporter.log("Invoking stopJobAndWaitForResult for Execution #1<p>");
 			jobOp.stopJobAndWaitForResult(jobExec);
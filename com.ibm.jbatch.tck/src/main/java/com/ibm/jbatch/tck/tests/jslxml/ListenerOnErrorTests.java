@@ -33,7 +33,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 
 public class ListenerOnErrorTests {
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 	
 	@BeforeMethod
 	@BeforeClass
@@ -37,7 +37,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class MetricsTests {
 
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
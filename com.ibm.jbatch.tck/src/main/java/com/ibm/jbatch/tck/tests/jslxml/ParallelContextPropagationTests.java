@@ -18,6 +18,7 @@ package com.ibm.jbatch.tck.tests.jslxml;
 
 import static com.ibm.jbatch.tck.utils.AssertionUtils.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -25,6 +26,10 @@ import javax.batch.runtime.JobExecution;
 import javax.batch.runtime.StepExecution;
 
 import com.ibm.jbatch.tck.ann.*;
+import com.ibm.jbatch.tck.artifacts.common.ThreadDescriptor;
+import com.ibm.jbatch.tck.artifacts.inner.ParallelContextPropagationArtifacts.PCPThreadTrackingBatchlet;
+import com.ibm.jbatch.tck.artifacts.specialized.ThreadRecordingStepListener;
+import com.ibm.jbatch.tck.artifacts.specialized.ThreadTrackingJobListener;
 import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 import org.junit.Before;
@@ -36,7 +41,7 @@ import org.testng.annotations.Test;
 
 public class ParallelContextPropagationTests {
 
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	@TCKTest(
 		versions={"1.1.WORKING"},
@@ -150,6 +155,122 @@ public class ParallelContextPropagationTests {
 		}
 	}
 
+	@TCKTest(
+			versions={"1.1.WORKING"},
+			assertions={"The values of JobContext and StepContext seen from a partition are unchanged after the partition blocks, whether or not it runs on a virtual thread.",
+						"ThreadLocal state set by one partition is neither lost when it blocks nor visible to another partition.",
+						"Job and step listeners of a partitioned step run on the same thread."},
+			specRefs={
+				@SpecRef(version="1.0", section="10.9.1", notes={"API for JobContext"}),
+				@SpecRef(version="1.0", section="10.9.2", notes={"API for StepContext"}),
+			},
+			apiRefs={
+				@APIRef(className="javax.batch.runtime.context.JobContext", methodNames={"getExecutionId","getInstanceId","getTransientUserData","setTransientUserData"}),
+				@APIRef(className="javax.batch.runtime.context.StepContext", methodNames={"getStepExecutionId","getTransientUserData","setTransientUserData"}),
+			},
+			strategy= "Each partition reads the context ids, sets a ThreadLocal, blocks (so that a virtual thread can be unmounted and resumed on "
+					+ "another carrier), checks that the ids haven't changed and that it still sees its own ThreadLocal value (and saw no other "
+					+ "partition's before setting it), removes the ThreadLocal, and passes a record of the ids and its thread through the collector to the analyzer, "
+					+ "which appends it to the step exit status. The job and step listeners check that they ran on the same Thread, and the step "
+					+ "listener appends a record of its own thread. Finally, we check each partition's ids against the JobExecution and StepExecution, "
+					+ "and that each partition reports its ThreadLocal as kept.",
+			notes={"Virtual threads are detected reflectively, so the test runs the same way on any Java version; which threads were virtual is logged."}
+		)
+	@Test
+	@org.junit.Test
+	public void testPartitionContextPropagationOnThreads() throws Exception {
+
+		JobExecution je = jobOp.startJobAndWaitForResult("partitionCtxPropagationThreads", null);
+
+		assertWithMessage("Test successful completion", "COMPLETED", je.getBatchStatus().toString());
+		assertWithMessage("Job and step listeners ran on the same thread", ThreadTrackingJobListener.GOOD_EXIT, je.getExitStatus());
+
+		long theExecId = je.getExecutionId();
+		long theInstanceId = jobOp.getJobInstance(theExecId).getInstanceId();
+
+		List<StepExecution> se = jobOp.getStepExecutions(theExecId);
+		assertWithMessage("Number StepExecutions", 1, se.size());
+		long theStepExecId = se.get(0).getStepExecutionId();
+
+		List<Properties> partitionRecords = new ArrayList<Properties>();
+		Properties listenerRecord = null;
+		for (Properties record : ThreadDescriptor.parseRecords(se.get(0).getExitStatus())) {
+			if (record.containsKey(ThreadRecordingStepListener.LISTENER)) {
+				listenerRecord = record;
+			} else {
+				partitionRecords.add(record);
+			}
+		}
+		assertWithMessage("Step listener thread recorded", true, listenerRecord != null);
+		Reporter.log("Step listener ran on " + listenerRecord + "<p>");
+
+		assertWithMessage("Number of partitions recorded", 3, partitionRecords.size());
+		for (int i = 0; i < partitionRecords.size(); i++) {
+			Properties record = partitionRecords.get(i);
+			Reporter.log("Partition # " + i + " ran on " + record + "<p>");
+
+			assertWithMessage("For partition # " + i + ", check job execution id", theExecId, Long.parseLong(record.getProperty("J")));
+			assertWithMessage("For partition # " + i + ", check job instance id", theInstanceId, Long.parseLong(record.getProperty("I")));
+			assertWithMessage("For partition # " + i + ", check step exec id", theStepExecId, Long.parseLong(record.getProperty("S")));
+			checkThreadLocalKept("partition # " + i, record);
+		}
+	}
+
+	@TCKTest(
+			versions={"1.1.WORKING"},
+			assertions={"The values of JobContext and StepContext seen from a split-flow are unchanged after the step blocks, whether or not it runs on a virtual thread.",
+						"ThreadLocal state set by one split-flow step is neither lost when it blocks nor visible to another."},
+			specRefs={
+				@SpecRef(version="1.0", section="10.9.1", notes={"API for JobContext"}),
+				@SpecRef(version="1.0", section="10.9.2", notes={"API for StepContext"}),
+			},
+			apiRefs={
+				@APIRef(className="javax.batch.runtime.context.JobContext", methodNames={"getExecutionId","getInstanceId"}),
+				@APIRef(className="javax.batch.runtime.context.StepContext", methodNames={"getStepExecutionId"}),
+			},
+			strategy= "Each step within the split-flow reads the context ids, sets a ThreadLocal, blocks (so that a virtual thread can be "
+					+ "unmounted and resumed on another carrier), checks that the ids haven't changed and whether its ThreadLocal value survived "
+					+ "(and no other step's was visible), removes the ThreadLocal, and sets its exit status to a record of the ids and its thread. "
+					+ "Finally, we check each step's ids against the JobExecution and StepExecutions, and that each step reports its "
+					+ "ThreadLocal as kept.",
+			notes={"Virtual threads are detected reflectively, so the test runs the same way on any Java version; which threads were virtual is logged."}
+		)
+	@Test
+	@org.junit.Test
+	public void testSplitFlowContextPropagationOnThreads() throws Exception {
+
+		JobExecution je = jobOp.startJobAndWaitForResult("splitFlowCtxPropagationThreads", null);
+
+		assertWithMessage("Test successful completion", "COMPLETED", je.getBatchStatus().toString());
+
+		long theExecId = je.getExecutionId();
+		long theInstanceId = jobOp.getJobInstance(theExecId).getInstanceId();
+
+		List<StepExecution> stepExecutions = jobOp.getStepExecutions(theExecId);
+		assertWithMessage("Number StepExecutions", 2, stepExecutions.size());
+
+		for (StepExecution se : stepExecutions) {
+			List<Properties> records = ThreadDescriptor.parseRecords(se.getExitStatus());
+			assertWithMessage("Number of records for step " + se.getStepName(), 1, records.size());
+			Properties record = records.get(0);
+			Reporter.log("Step " + se.getStepName() + " ran on " + record + "<p>");
+
+			assertWithMessage("check job execution id", theExecId, Long.parseLong(record.getProperty("J")));
+			assertWithMessage("check job instance id", theInstanceId, Long.parseLong(record.getProperty("I")));
+			assertWithMessage("check step execution id", se.getStepExecutionId(), Long.parseLong(record.getProperty("S")));
+			checkThreadLocalKept("step " + se.getStepName(), record);
+		}
+	}
+
+	/*
+	 * Each step or partition sets a ThreadLocal before blocking and removes it before finishing, so it should
+	 * neither see another one's value nor lose its own, whether it runs on a platform or a virtual thread.
+	 */
+	private static void checkThreadLocalKept(String where, Properties record) {
+		assertWithMessage("For " + where + ", ThreadLocal state", PCPThreadTrackingBatchlet.KEPT,
+				record.getProperty(PCPThreadTrackingBatchlet.THREAD_LOCAL));
+	}
+
 	private static void handleException(String methodName, Exception e) throws Exception {
 		Reporter.log("Caught exception: " + e.getMessage()+"<p>");
 		Reporter.log(methodName + " failed<p>");
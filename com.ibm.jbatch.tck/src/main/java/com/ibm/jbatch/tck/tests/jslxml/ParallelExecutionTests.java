@@ -36,6 +36,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.ibm.jbatch.tck.ann.*;
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
 import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
 
@@ -45,8 +46,10 @@ public class ParallelExecutionTests {
 	private final static Logger logger = Logger.getLogger(ParallelExecutionTests.class.getName());
 
 	private static final String TIME_TO_SLEEP_BEFORE_ISSUING_STOP = "1900"; 
+	// The partitions in job_batchlet_longrunning_partitioned.xml
+	private static final int LONG_RUNNING_PARTITIONS = 4;
 
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
@@ -165,10 +168,11 @@ public class ParallelExecutionTests {
 			Reporter.log("Invoke startJobWithoutWaitingForResult<p>");
 			JobExecution jobExecution =  jobOp.startJobWithoutWaitingForResult("job_batchlet_longrunning_partitioned", overrideJobParams);
 
-			//Sleep long enough for parallel steps to fan out
+			// Wait for the parallel steps to fan out, i.e. for every partition to be running
 			int sleepTime = Integer.parseInt(System.getProperty("ParallelExecutionTests.testStopRunningPartitionedStep.sleep",TIME_TO_SLEEP_BEFORE_ISSUING_STOP));
-			Reporter.log("Sleep for " + TIME_TO_SLEEP_BEFORE_ISSUING_STOP);
-			Thread.sleep(sleepTime);
+			Reporter.log("Wait up to " + sleepTime + " ms for " + LONG_RUNNING_PARTITIONS + " partitions to be running<p>");
+			boolean running = JobExecutionRunningSignals.await(jobExecution.getExecutionId(), LONG_RUNNING_PARTITIONS, sleepTime);
+			Reporter.log("Partitions signaled running: " + running + "<p>");
 
 
 			Reporter.log("Invoke stopJobAndWaitForResult<p>");
@@ -210,10 +214,11 @@ public class ParallelExecutionTests {
 			Reporter.log("Invoke startJobWithoutWaitingForResult<p>");
 			JobExecution origJobExecution = jobOp.startJobWithoutWaitingForResult("job_batchlet_longrunning_partitioned", jobParams);
 
-			// Sleep long enough for parallel steps to fan out
+			// Wait for the parallel steps to fan out, i.e. for every partition to be running
 			int sleepTime = Integer.parseInt(System.getProperty("ParallelExecutionTests.testStopRestartRunningPartitionedStep.sleep",TIME_TO_SLEEP_BEFORE_ISSUING_STOP));
-			Reporter.log("Sleep for " + TIME_TO_SLEEP_BEFORE_ISSUING_STOP);
-			Thread.sleep(sleepTime);
+			Reporter.log("Wait up to " + sleepTime + " ms for " + LONG_RUNNING_PARTITIONS + " partitions to be running<p>");
+			boolean running = JobExecutionRunningSignals.await(origJobExecution.getExecutionId(), LONG_RUNNING_PARTITIONS, sleepTime);
+			Reporter.log("Partitions signaled running: " + running + "<p>");
 
 			Reporter.log("Invoke stopJobAndWaitForResult<p>");
 			jobOp.stopJobAndWaitForResult(origJobExecution);
@@ -36,7 +36,7 @@ import org.testng.annotations.Test;
 
 public class PropertySubstitutionTests {
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
@@ -33,7 +33,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class RestartNotMostRecentTests {
 	
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 	
 	/*
 	 * @testName: testRestartNotMostRecentException
@@ -32,7 +32,7 @@ import org.testng.annotations.Test;
 
 public class RetryListenerTests {
 
-	private static JobOperatorBridge jobOp = null;
+	private static volatile JobOperatorBridge jobOp = null;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 
@@ -33,7 +33,7 @@ import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 
 public class SplitFlowTransitionLoopTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 	/**
 	 * @testName: testSplitFlowTransitionLoopSplitFlowSplit
@@ -35,7 +35,7 @@ import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
 
 public class StartLimitTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 
 	/*
@@ -45,7 +45,7 @@ public class StepExecutionTests {
 
 	private final static Logger logger = Logger.getLogger(StepExecutionTests.class.getName());
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	public static void setup(String[] args, Properties props) throws Exception {
 		String METHOD = "setup";
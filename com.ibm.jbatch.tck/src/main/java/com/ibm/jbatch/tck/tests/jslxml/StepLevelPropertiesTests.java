@@ -35,7 +35,7 @@ import org.testng.annotations.Test;
 
 public class StepLevelPropertiesTests {
 
-	private JobOperatorBridge jobOp = null;
+	private volatile JobOperatorBridge jobOp = null;
 
 	private int PROPERTIES_COUNT = 3;
 
@@ -29,12 +29,13 @@ import org.testng.Reporter;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.ibm.jbatch.tck.polling.JobExecutionRunningSignals;
 import com.ibm.jbatch.tck.utils.JobOperatorBridge;
 import com.ibm.jbatch.tck.utils.TCKJobExecutionWrapper;
 
 public class StopOrFailOnExitStatusWithRestartTests {
 
-	private static JobOperatorBridge jobOp;
+	private static volatile JobOperatorBridge jobOp;
 
 	private void begin(String str) {
 		Reporter.log("Begin test method: " + str+"<p>");
@@ -87,8 +88,9 @@ public class StopOrFailOnExitStatusWithRestartTests {
 			Reporter.log("StopRestart: Started job with execId=" + execID + "<p>");
 
 			int sleepTime = Integer.parseInt(System.getProperty("StopOrFailOnExitStatusWithRestartTests.testInvokeJobWithUserStop.sleep",DEFAULT_SLEEP_TIME));
-			Reporter.log("Sleep " +  sleepTime  + "<p>");
-			Thread.sleep(sleepTime); 
+			Reporter.log("Wait up to " + sleepTime + " ms for the batchlet to be running<p>");
+			boolean running = JobExecutionRunningSignals.await(execID, 1, sleepTime);
+			Reporter.log("Batchlet signaled running: " + running + "<p>");
 
 			BatchStatus exec1BatchStatus = execution1.getBatchStatus();
 			Reporter.log("execution #1 JobExecution getBatchStatus()="+ exec1BatchStatus + "<p>");
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves batch artifact ref ids through META-INF/batch-artifacts.index, the lookup table
+ * generated next to META-INF/batch.xml by com.ibm.jbatch.tck.ann.proc.BatchArtifactProcessor,
+ * whose doc comment describes the format.
+ *
+ * A lookup hashes the id twice and compares one string, with no XML parsing and no scan.
+ * An id that isn't in the index resolves to null.
+ */
+public class BatchArtifactIndex {
+
+	public static final String INDEX_RESOURCE = "META-INF/batch-artifacts.index";
+
+	private static final String DISPLACEMENTS_PREFIX = "#displacements=";
+
+	private final int[] displacements;
+	private final String[] ids;
+	private final String[] classNames;
+
+	private BatchArtifactIndex(int[] displacements, String[] ids, String[] classNames) {
+		this.displacements = displacements;
+		this.ids = ids;
+		this.classNames = classNames;
+	}
+
+	/**
+	 * @return the index on the class loader's classpath, or null if there isn't one
+	 */
+	public static BatchArtifactIndex load(ClassLoader classLoader) throws IOException {
+		InputStream in = classLoader.getResourceAsStream(INDEX_RESOURCE);
+		if (in == null) {
+			return null;
+		}
+		try {
+			return load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static BatchArtifactIndex load(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+
+		int[] displacements = null;
+		List<String> ids = new ArrayList<String>();
+		List<String> classNames = new ArrayList<String>();
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(DISPLACEMENTS_PREFIX)) {
+				String[] values = line.substring(DISPLACEMENTS_PREFIX.length()).split(",");
+				displacements = new int[values.length];
+				for (int i = 0; i < values.length; i++) {
+					displacements[i] = Integer.parseInt(values[i].trim());
+				}
+			} else if (line.length() > 0 && !line.startsWith("#")) {
+				int separator = line.indexOf('=');
+				if (displacements == null || separator < 1) {
+					throw new IOException("Malformed " + INDEX_RESOURCE + " at line: " + line);
+				}
+				ids.add(line.substring(0, separator));
+				classNames.add(line.substring(separator + 1));
+			}
+		}
+		if (displacements == null) {
+			throw new IOException("No " + DISPLACEMENTS_PREFIX + " line in " + INDEX_RESOURCE);
+		}
+
+		return new BatchArtifactIndex(displacements, ids.toArray(new String[ids.size()]), classNames.toArray(new String[classNames.size()]));
+	}
+
+	/**
+	 * @return the class name for the ref id, or null if the id isn't in the index
+	 */
+	public String getClassName(String id) {
+		if (ids.length == 0) {
+			return null;
+		}
+		int bucket = hash(id, 0) % displacements.length;
+		int slot = hash(id, displacements[bucket]) % ids.length;
+		return ids[slot].equals(id) ? classNames[slot] : null;
+	}
+
+	/**
+	 * @return the ref ids in index order
+	 */
+	public String[] getIds() {
+		return ids.clone();
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	/*
+	 * Must stay the same as BatchArtifactProcessor.hash(), which placed the ids.
+	 */
+	static int hash(String id, int seed) {
+		int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+		for (int i = 0; i < id.length(); i++) {
+			h ^= id.charAt(i);
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		return h & 0x7FFFFFFF;
+	}
+}
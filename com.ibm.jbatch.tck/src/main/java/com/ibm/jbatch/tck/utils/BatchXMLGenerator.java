@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +36,11 @@ import javax.inject.Named;
  * 
  * It was convenient to keep it in the same project with the TCK itself but it
  * can be ignored by someone simply running/executing the TCK.
+ * 
+ * The build (-DbatchXML) now generates batch.xml at compile time with 
+ * com.ibm.jbatch.tck.ann.proc.BatchArtifactProcessor, which doesn't load the artifact classes.
+ * This class is kept for generating it by hand from compiled classes; it sorts the entries
+ * by class name the same way, so the two outputs can be compared directly.
  */
 public class BatchXMLGenerator {
 
@@ -54,6 +61,13 @@ public class BatchXMLGenerator {
 
 			BufferedWriter writer = new BufferedWriter(new FileWriter(batchXMLFile));
 
+			Collections.sort(this.beanDefinitions, new Comparator<BeanDefinition>() {
+				@Override
+				public int compare(BeanDefinition def1, BeanDefinition def2) {
+					return def1.qualifiedClassName.compareTo(def2.qualifiedClassName);
+				}
+			});
+
 			writer.write("<batch-artifacts xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\">\n");
 
 			for (BeanDefinition beanDef : this.beanDefinitions) {
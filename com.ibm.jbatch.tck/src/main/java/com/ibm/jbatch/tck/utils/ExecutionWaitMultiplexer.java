@@ -0,0 +1,271 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import javax.batch.operations.JobOperator;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.JobExecution;
+
+import com.ibm.jbatch.tck.metrics.TCKMetrics;
+import com.ibm.jbatch.tck.polling.TCKPollingExecutionWaiterFactory;
+import com.ibm.jbatch.tck.spi.JobExecutionTimeoutException;
+import com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory;
+
+/**
+ * Waits for any number of job executions to reach a "final" state using a single,
+ * shared scheduler thread, so that the calling thread is free to start other jobs.
+ * 
+ * Each outstanding wait is a task which polls JobOperator.getJobExecution() once and, 
+ * if the execution hasn't terminated, reschedules itself with a doubled interval (up to 
+ * MAX_POLL_INTERVAL).  The criteria for a "final" state are the same as in the default
+ * JobExecutionWaiter:  a terminated batch status and a non-null exit status.
+ *  
+ * Polling like this stands in for the default TCKPollingExecutionWaiterFactory only.  With any other
+ * JobExecutionWaiterFactory the wait goes through the SPI, on a thread of its own for the duration of the
+ * wait, since an SPI waiter blocks the thread that calls it.
+ */
+class ExecutionWaitMultiplexer {
+
+	private final static Logger logger = Logger.getLogger(ExecutionWaitMultiplexer.class.getName());
+
+	private final static long MIN_POLL_INTERVAL = 1;
+	private final static long MAX_POLL_INTERVAL = 100;
+
+	private final static ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "TCK execution wait multiplexer");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final static ExecutorService waiterThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "TCK execution waiter");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private ExecutionWaitMultiplexer() {
+	}
+
+	/**
+	 * @param executionId
+	 * @param jobOp
+	 * @param timeout In milliseconds
+	 * @param waiterFactory The configured JobExecutionWaiterFactory
+	 * @return Future whose get() throws an ExecutionException wrapping a JobExecutionTimeoutException
+	 * if the execution hasn't reached a final state within the timeout.
+	 */
+	static Future<TCKJobExecutionWrapper> awaitTermination(long executionId, JobOperator jobOp, long timeout, JobExecutionWaiterFactory waiterFactory) {
+		if (waiterFactory instanceof TCKPollingExecutionWaiterFactory) {
+			return awaitTermination(executionId, jobOp, timeout);
+		}
+		logger.fine("Submitting " + waiterFactory.getClass().getName() + " wait for executionId = " + executionId + ", timeout = " + timeout);
+		ExecutionFuture future = new ExecutionFuture();
+		waiterThreads.execute(new WaiterTask(executionId, jobOp, timeout, waiterFactory, future));
+		return future;
+	}
+
+	/**
+	 * @param executionId
+	 * @param jobOp
+	 * @param timeout In milliseconds
+	 * @return Future whose get() throws an ExecutionException wrapping a JobExecutionTimeoutException
+	 * if the execution hasn't reached a final state within the timeout.
+	 */
+	static Future<TCKJobExecutionWrapper> awaitTermination(long executionId, JobOperator jobOp, long timeout) {
+		logger.fine("Scheduling wait for executionId = " + executionId + ", timeout = " + timeout);
+		ExecutionFuture future = new ExecutionFuture();
+		PollTask task = new PollTask(executionId, jobOp, timeout, future);
+		scheduler.schedule(task, MIN_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+		return future;
+	}
+
+	private static class PollTask implements Runnable {
+
+		private final long executionId;
+		private final JobOperator jobOp;
+		private final long deadline;
+		private final ExecutionFuture future;
+		private long interval = MIN_POLL_INTERVAL;
+
+		private PollTask(long executionId, JobOperator jobOp, long timeout, ExecutionFuture future) {
+			this.executionId = executionId;
+			this.jobOp = jobOp;
+			this.deadline = System.currentTimeMillis() + timeout;
+			this.future = future;
+		}
+
+		@Override
+		public void run() {
+			if (future.isDone()) {
+				logger.fine("Wait for executionId = " + executionId + " was cancelled.");
+				return;
+			}
+			try {
+				JobExecution jobExecution = jobOp.getJobExecution(executionId);
+				if (isTerminated(jobExecution)) {
+					logger.fine("Found terminated executionId = " + executionId);
+					TCKMetrics.getSink().jobEnded(executionId, String.valueOf(jobExecution.getBatchStatus()));
+					future.complete(new TCKJobExecutionWrapper(jobExecution, jobOp));
+				} else if (System.currentTimeMillis() > deadline) {
+					logger.warning("Timed out waiting for TCK Job Execution to reach terminated status, executionId = " + executionId);
+					future.fail(new JobExecutionTimeoutException("Timed out waiting for TCK Job Execution to reach terminated status, executionId = " + executionId));
+				} else {
+					interval = Math.min(interval * 2, MAX_POLL_INTERVAL);
+					scheduler.schedule(this, interval, TimeUnit.MILLISECONDS);
+				}
+			} catch (RuntimeException e) {
+				future.fail(e);
+			}
+		}
+
+		private boolean isTerminated(JobExecution jobExecution) {
+			return terminatedStatuses.contains(jobExecution.getBatchStatus()) && jobExecution.getExitStatus() != null;
+		}
+	}
+
+	/**
+	 * Blocks in an SPI waiter.  Cancelling the future doesn't interrupt it, the thread is only freed when the wait ends.
+	 */
+	private static class WaiterTask implements Runnable {
+
+		private final long executionId;
+		private final JobOperator jobOp;
+		private final long timeout;
+		private final JobExecutionWaiterFactory waiterFactory;
+		private final ExecutionFuture future;
+
+		private WaiterTask(long executionId, JobOperator jobOp, long timeout, JobExecutionWaiterFactory waiterFactory, ExecutionFuture future) {
+			this.executionId = executionId;
+			this.jobOp = jobOp;
+			this.timeout = timeout;
+			this.waiterFactory = waiterFactory;
+			this.future = future;
+		}
+
+		@Override
+		public void run() {
+			try {
+				JobExecution jobExecution = waiterFactory.createWaiter(executionId, jobOp, timeout).awaitTermination();
+				logger.fine("Found terminated executionId = " + executionId);
+				TCKMetrics.getSink().jobEnded(executionId, String.valueOf(jobExecution.getBatchStatus()));
+				future.complete(new TCKJobExecutionWrapper(jobExecution, jobOp));
+			} catch (JobExecutionTimeoutException e) {
+				logger.warning("Timed out waiting for TCK Job Execution to reach terminated status, executionId = " + executionId);
+				future.fail(e);
+			} catch (RuntimeException e) {
+				future.fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Cancelling only abandons the wait, it doesn't stop the job.
+	 */
+	private static class ExecutionFuture implements Future<TCKJobExecutionWrapper> {
+
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile TCKJobExecutionWrapper result;
+		private volatile Throwable failure;
+		private volatile boolean cancelled;
+
+		private synchronized boolean finish(TCKJobExecutionWrapper result, Throwable failure, boolean cancelled) {
+			if (done.getCount() == 0) {
+				return false;
+			}
+			this.result = result;
+			this.failure = failure;
+			this.cancelled = cancelled;
+			done.countDown();
+			return true;
+		}
+
+		void complete(TCKJobExecutionWrapper result) {
+			finish(result, null, false);
+		}
+
+		void fail(Throwable failure) {
+			finish(null, failure, false);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return finish(null, null, true);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		@Override
+		public TCKJobExecutionWrapper get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		@Override
+		public TCKJobExecutionWrapper get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+		private TCKJobExecutionWrapper getResult() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (failure != null) {
+				throw new ExecutionException(failure);
+			}
+			return result;
+		}
+	}
+
+	private static Set<BatchStatus> terminatedStatuses = new HashSet<BatchStatus>();
+	static {
+		terminatedStatuses.add(BatchStatus.STOPPED);
+		terminatedStatuses.add(BatchStatus.FAILED);
+		terminatedStatuses.add(BatchStatus.COMPLETED);
+		terminatedStatuses.add(BatchStatus.ABANDONED);
+	}
+}
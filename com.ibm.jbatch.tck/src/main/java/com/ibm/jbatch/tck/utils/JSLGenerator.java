@@ -0,0 +1,262 @@
+/*
+ * Copyright 2012 International Business Machines Corp.
+ * 
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.jbatch.tck.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Generates JSL documents far larger than the hand-written ones in META-INF/batch-jobs, to stress a
+ * runtime's JSL parsing and job navigation: long chains of steps, deeply nested flows, wide splits,
+ * and decisions with dense transition tables.  They only use the TCK's reusable artifacts
+ * (doNothingBatchlet, transitionTrackerBatchlet and transitionDecider).
+ *
+ * Each generated job also describes the order its steps must run in, as a list of sequences: every
+ * step runs exactly once, and the steps of each sequence run in the order given.  Steps of different
+ * sequences can run in any order relative to each other (e.g. in different flows of a split).
+ *
+ * Like BatchXMLGenerator, this isn't needed to run the TCK.  The tests generate their jobs in memory;
+ * main() writes a sample corpus to a directory, for use with other tools.
+ */
+public class JSLGenerator {
+
+	private final static Logger logger = Logger.getLogger(JSLGenerator.class.getName());
+
+	public static final String DO_NOTHING_BATCHLET = "doNothingBatchlet";
+	public static final String TRANSITION_TRACKER_BATCHLET = "transitionTrackerBatchlet";
+	public static final String TRANSITION_DECIDER = "transitionDecider";
+
+	/**
+	 * The exit status of the job generated by {@link #decisionTable(String, int, int)}, if every decision
+	 * takes its matching transition.
+	 */
+	public static final String DECISIONS_DONE = "DECISIONS_DONE";
+
+	/**
+	 * The exit status of the job generated by {@link #decisionTable(String, int, int)} if a decision
+	 * takes one of the transitions that shouldn't match.
+	 */
+	public static final String DECISION_MISSED = "DECISION_MISSED";
+
+	private static final String DO_NOTHING_EXIT_STATUS = "The DoNothingBatchlet COMPLETED Without Incident";
+
+	/**
+	 * A generated JSL document and the order its steps must run in.
+	 */
+	public static class GeneratedJob {
+
+		private final String id;
+		private final String xml;
+		private final List<List<String>> sequences;
+		private final int stepCount;
+
+		GeneratedJob(String id, String xml, List<List<String>> sequences, int stepCount) {
+			this.id = id;
+			this.xml = xml;
+			this.sequences = sequences;
+			this.stepCount = stepCount;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getXML() {
+			return xml;
+		}
+
+		/**
+		 * @return the number of steps in the job, each of which runs once
+		 */
+		public int getStepCount() {
+			return stepCount;
+		}
+
+		/**
+		 * @return sequences of step ids, each of which must run in the order given
+		 */
+		public List<List<String>> getOrderedSequences() {
+			return Collections.unmodifiableList(sequences);
+		}
+	}
+
+	/**
+	 * step1, step2, ... stepN, each with next= the following one.
+	 */
+	public static GeneratedJob chain(String jobId, int steps, String batchletRef) {
+		StringBuilder buf = beginJob(jobId);
+		List<String> order = new ArrayList<String>(steps);
+		for (int i = 1; i <= steps; i++) {
+			String stepId = "step" + i;
+			appendStep(buf, "    ", stepId, i < steps ? "step" + (i + 1) : null, batchletRef);
+			order.add(stepId);
+		}
+		return endJob(jobId, buf, Collections.singletonList(order), steps);
+	}
+
+	/**
+	 * flow1 holds step flow1.before, then flow2, then step flow1.after; flow2 holds flow2.before, flow3
+	 * and flow2.after; and so on down to flowN, which only holds step flowN.step.
+	 */
+	public static GeneratedJob nestedFlows(String jobId, int depth, String batchletRef) {
+		StringBuilder buf = beginJob(jobId);
+		List<String> order = new ArrayList<String>(2 * depth);
+		appendNestedFlow(buf, "    ", 1, depth, null, batchletRef, order);
+		return endJob(jobId, buf, Collections.singletonList(order), 2 * depth - 1);
+	}
+
+	private static void appendNestedFlow(StringBuilder buf, String indent, int level, int depth, String next, String batchletRef, List<String> order) {
+		String flowId = "flow" + level;
+		buf.append(indent).append("<flow id=\"").append(flowId).append('"');
+		if (next != null) {
+			buf.append(" next=\"").append(next).append('"');
+		}
+		buf.append(">\n");
+		if (level == depth) {
+			appendStep(buf, indent + "    ", flowId + ".step", null, batchletRef);
+			order.add(flowId + ".step");
+		} else {
+			String nestedFlowId = "flow" + (level + 1);
+			appendStep(buf, indent + "    ", flowId + ".before", nestedFlowId, batchletRef);
+			order.add(flowId + ".before");
+			appendNestedFlow(buf, indent + "    ", level + 1, depth, flowId + ".after", batchletRef, order);
+			appendStep(buf, indent + "    ", flowId + ".after", null, batchletRef);
+			order.add(flowId + ".after");
+		}
+		buf.append(indent).append("</flow>\n");
+	}
+
+	/**
+	 * Step before, then a split of N flows of M steps each (flowI.step1 ... flowI.stepM), then step after.
+	 */
+	public static GeneratedJob wideSplit(String jobId, int flows, int stepsPerFlow, String batchletRef) {
+		StringBuilder buf = beginJob(jobId);
+		appendStep(buf, "    ", "before", "split", batchletRef);
+		buf.append("    <split id=\"split\" next=\"after\">\n");
+
+		List<List<String>> sequences = new ArrayList<List<String>>(flows);
+		for (int f = 1; f <= flows; f++) {
+			String flowId = "flow" + f;
+			List<String> order = new ArrayList<String>(stepsPerFlow + 2);
+			order.add("before");
+			buf.append("        <flow id=\"").append(flowId).append("\">\n");
+			for (int s = 1; s <= stepsPerFlow; s++) {
+				String stepId = flowId + ".step" + s;
+				appendStep(buf, "            ", stepId, s < stepsPerFlow ? flowId + ".step" + (s + 1) : null, batchletRef);
+				order.add(stepId);
+			}
+			buf.append("        </flow>\n");
+			order.add("after");
+			sequences.add(order);
+		}
+
+		buf.append("    </split>\n");
+		appendStep(buf, "    ", "after", null, batchletRef);
+		return endJob(jobId, buf, sequences, flows * stepsPerFlow + 2);
+	}
+
+	/**
+	 * step1, decision1, step2, decision2, ... stepN, decisionN, where each decision is a transitionDecider
+	 * with the given number of transition elements.  All but the last are &lt;end&gt; elements that never match,
+	 * with the exit status DECISION_MISSED; the last matches, and goes on to the next step or, for decisionN,
+	 * ends the job with the exit status DECISIONS_DONE.
+	 *
+	 * This relies on transitionDecider returning "count:exit status of the previous step", where count is the
+	 * number of times it has been called in the job, so decisionI always returns "I:" and the exit status of
+	 * doNothingBatchlet.
+	 */
+	public static GeneratedJob decisionTable(String jobId, int decisions, int transitionsPerDecision) {
+		StringBuilder buf = beginJob(jobId);
+		List<String> order = new ArrayList<String>(decisions);
+		for (int i = 1; i <= decisions; i++) {
+			String stepId = "step" + i;
+			String decisionId = "decision" + i;
+			appendStep(buf, "    ", stepId, decisionId, DO_NOTHING_BATCHLET);
+			order.add(stepId);
+
+			buf.append("    <decision id=\"").append(decisionId).append("\" ref=\"").append(TRANSITION_DECIDER).append("\">\n");
+			for (int t = 1; t < transitionsPerDecision; t++) {
+				// Differs from the decider's exit status only at the end, so each comparison runs its full length
+				buf.append("        <end on=\"").append(i).append(':').append(DO_NOTHING_EXIT_STATUS).append(" MISS").append(t)
+						.append("\" exit-status=\"").append(DECISION_MISSED).append("\"/>\n");
+			}
+			if (i < decisions) {
+				buf.append("        <next on=\"").append(i).append(":*\" to=\"step").append(i + 1).append("\"/>\n");
+			} else {
+				buf.append("        <end on=\"").append(i).append(":*\" exit-status=\"").append(DECISIONS_DONE).append("\"/>\n");
+			}
+			buf.append("    </decision>\n");
+		}
+		return endJob(jobId, buf, Collections.singletonList(order), decisions);
+	}
+
+	private static StringBuilder beginJob(String jobId) {
+		StringBuilder buf = new StringBuilder(4096);
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buf.append("<job id=\"").append(jobId).append("\" xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"1.0\">\n");
+		return buf;
+	}
+
+	private static GeneratedJob endJob(String jobId, StringBuilder buf, List<List<String>> sequences, int stepCount) {
+		buf.append("</job>\n");
+		return new GeneratedJob(jobId, buf.toString(), sequences, stepCount);
+	}
+
+	private static void appendStep(StringBuilder buf, String indent, String stepId, String next, String batchletRef) {
+		buf.append(indent).append("<step id=\"").append(stepId).append('"');
+		if (next != null) {
+			buf.append(" next=\"").append(next).append('"');
+		}
+		buf.append(">\n");
+		buf.append(indent).append("    <batchlet ref=\"").append(batchletRef).append("\"/>\n");
+		buf.append(indent).append("</step>\n");
+	}
+
+	private static void write(File dir, GeneratedJob job) throws IOException {
+		File file = new File(dir, job.getId() + ".xml");
+		logger.info("Writing " + file);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try {
+			writer.write(job.getXML());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a sample corpus to the directory given as the only argument.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1 || !new File(args[0]).isDirectory()) {
+			throw new IllegalArgumentException("The only argument must be the directory to write to.");
+		}
+		File dir = new File(args[0]);
+
+		write(dir, chain("generated_chain_5000", 5000, DO_NOTHING_BATCHLET));
+		write(dir, nestedFlows("generated_nested_flows_200", 200, DO_NOTHING_BATCHLET));
+		write(dir, wideSplit("generated_split_256x4", 256, 4, DO_NOTHING_BATCHLET));
+		write(dir, decisionTable("generated_decisions_100x100", 100, 100));
+
+		logger.info("JSLGenerator completed successfully.");
+	}
+}
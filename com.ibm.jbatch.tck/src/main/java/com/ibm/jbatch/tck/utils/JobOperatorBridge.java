@@ -19,6 +19,7 @@ package com.ibm.jbatch.tck.utils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.batch.operations.JobExecutionAlreadyCompleteException;
@@ -39,20 +40,27 @@ import javax.batch.runtime.StepExecution;
 
 import org.testng.Reporter;
 
+import com.ibm.jbatch.tck.metrics.TCKMetrics;
 import com.ibm.jbatch.tck.spi.JobExecutionWaiter;
 import com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory;
 import com.ibm.jbatch.tck.spi.JobExecutionTimeoutException;
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
 
+/**
+ * Instances hold no per-test state and all fields are final, so a bridge may be shared
+ * by test methods running on multiple threads (e.g. with TestNG parallel="methods").
+ */
 public class JobOperatorBridge {
 
 	public static final String DEFAULT_JOB_OPERATOR_SLEEP_TIME = "60000";
 
 	private final static Logger logger = Logger.getLogger(JobOperatorBridge.class.getName());
 	
-	private JobOperator jobOp = BatchRuntime.getJobOperator();
-	private JobExecutionWaiterFactory waiterFactory = ServiceGateway.getJobExecutionWaiterFactoryService();
+	private final JobOperator jobOp = BatchRuntime.getJobOperator();
+	private final JobExecutionWaiterFactory waiterFactory = ServiceGateway.getJobExecutionWaiterFactoryService();
+	private final TCKMetricsSink metricsSink = TCKMetrics.getSink();
 
-	private int sleepTime = Integer.parseInt(System.getProperty("tck.execution.waiter.timeout", DEFAULT_JOB_OPERATOR_SLEEP_TIME));
+	private final int sleepTime = Integer.parseInt(System.getProperty("tck.execution.waiter.timeout", DEFAULT_JOB_OPERATOR_SLEEP_TIME));
 	private final String TIMEOUT_MSG = "Test failure due to timeout exception.  Either the timeout should be increased and there is nothing else wrong, " 
 	                 + "or perhaps the runtime implementation is handing and/or unresponsive<p>";
 	public JobOperatorBridge() {
@@ -78,7 +86,7 @@ public class JobOperatorBridge {
 	public TCKJobExecutionWrapper restartJobAndWaitForResult(long oldExecutionId, Properties restartJobParameters) throws NoSuchJobExecutionException, NoSuchJobException, JobRestartException, JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, JobSecurityException, JobExecutionTimeoutException {    	
 
 		JobExecution terminatedJobExecution = null;
-		long newExecutionId = jobOp.restart(oldExecutionId, restartJobParameters);
+		long newExecutionId = restart(oldExecutionId, restartJobParameters);
 
 		JobExecutionWaiter waiter = waiterFactory.createWaiter(newExecutionId, jobOp, sleepTime);
 
@@ -89,12 +97,14 @@ public class JobOperatorBridge {
 			Reporter.log(TIMEOUT_MSG);
 			throw e;
 		}									
+		metricsSink.jobEnded(terminatedJobExecution.getExecutionId(), String.valueOf(terminatedJobExecution.getBatchStatus()));
 
 		return new TCKJobExecutionWrapper(terminatedJobExecution, jobOp);
 	}
 	
 	public TCKJobExecutionWrapper restartJobWithoutWaitingForResult(long oldExecutionId, Properties jobParameters) throws NoSuchJobExecutionException, NoSuchJobException, JobRestartException, JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, JobSecurityException, JobExecutionTimeoutException {
-		Long execID = (Long)jobOp.restart(oldExecutionId, jobParameters);
+		Long execID = restart(oldExecutionId, jobParameters);
+		reportEndWhenTerminated(execID);
 		JobExecution jobExecution = jobOp.getJobExecution(execID);
 		return new TCKJobExecutionWrapper(jobExecution, jobOp);
 	}
@@ -108,7 +118,8 @@ public class JobOperatorBridge {
 	}
 
 	public TCKJobExecutionWrapper startJobWithoutWaitingForResult(String jobName, Properties jobParameters) throws JobStartException, NoSuchJobExecutionException, JobSecurityException {
-		Long execID = (Long)jobOp.start(jobName, jobParameters);
+		Long execID = start(jobName, jobParameters);
+		reportEndWhenTerminated(execID);
 		JobExecution jobExecution = jobOp.getJobExecution(execID);
 		return new TCKJobExecutionWrapper(jobExecution, jobOp);
 	}
@@ -120,6 +131,8 @@ public class JobOperatorBridge {
 	/*
 	 * I haven't mentally proven it to myself but I'm assuming this can ONLY be used
 	 * after startJobWithoutWaitingForResult(), not after startJobAndWaitForResult().
+	 * 
+	 * So the end of the execution is already reported to the metrics sink by reportEndWhenTerminated().
 	 */
 	public JobExecution stopJobAndWaitForResult(JobExecution jobExecution) throws NoSuchJobExecutionException, JobExecutionNotRunningException, JobSecurityException, JobExecutionTimeoutException {
 		
@@ -142,7 +155,7 @@ public class JobOperatorBridge {
 
 	public TCKJobExecutionWrapper startJobAndWaitForResult(String jobName, Properties jobParameters) throws JobStartException, NoSuchJobExecutionException, JobSecurityException, JobExecutionTimeoutException{
 		JobExecution terminatedJobExecution = null;
-		long executionId = jobOp.start(jobName, jobParameters);
+		long executionId = start(jobName, jobParameters);
 
 		JobExecutionWaiter waiter = waiterFactory.createWaiter(executionId, jobOp, sleepTime);
 
@@ -153,12 +166,37 @@ public class JobOperatorBridge {
 			Reporter.log(TIMEOUT_MSG);
 			throw e;
 		}									
+		metricsSink.jobEnded(terminatedJobExecution.getExecutionId(), String.valueOf(terminatedJobExecution.getBatchStatus()));
 
 		return new TCKJobExecutionWrapper(terminatedJobExecution, jobOp);
 	}
 
 
 
+	/**
+	 * Starts the job and returns without blocking.  The wait goes through the JobExecutionWaiterFactory SPI,
+	 * on a thread of its own, except with the default polling factory, when all outstanding waits share one polling thread.
+	 * 
+	 * @return Future whose get() throws an ExecutionException wrapping a JobExecutionTimeoutException
+	 * if the execution hasn't reached a final state within the waiter timeout.
+	 */
+	public Future<TCKJobExecutionWrapper> startJobAsync(String jobName, Properties jobParameters) throws JobStartException, JobSecurityException {
+		long executionId = start(jobName, jobParameters);
+		return ExecutionWaitMultiplexer.awaitTermination(executionId, jobOp, sleepTime, waiterFactory);
+	}
+
+	/**
+	 * Restarts the job and returns without blocking.  The wait goes through the JobExecutionWaiterFactory SPI,
+	 * on a thread of its own, except with the default polling factory, when all outstanding waits share one polling thread.
+	 * 
+	 * @return Future whose get() throws an ExecutionException wrapping a JobExecutionTimeoutException
+	 * if the execution hasn't reached a final state within the waiter timeout.
+	 */
+	public Future<TCKJobExecutionWrapper> restartJobAsync(long oldExecutionId, Properties restartJobParameters) throws NoSuchJobExecutionException, NoSuchJobException, JobRestartException, JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, JobSecurityException {
+		long newExecutionId = restart(oldExecutionId, restartJobParameters);
+		return ExecutionWaitMultiplexer.awaitTermination(newExecutionId, jobOp, sleepTime, waiterFactory);
+	}
+
 	public Properties getParameters(long executionId) throws NoSuchJobInstanceException, JobSecurityException, NoSuchJobExecutionException{
 		return jobOp.getParameters(executionId);
 	}
@@ -183,4 +221,33 @@ public class JobOperatorBridge {
 		startJobWithoutWaitingForResult(jobName, null);
 	}
 
+	/*
+	 * Executions the caller doesn't wait for are still closed out in the metrics sink, by a wait on
+	 * the shared ExecutionWaitMultiplexer thread whose Future nobody reads.  If the execution doesn't
+	 * end within the timeout it's left to the sink (FileMetricsSink writes it at JVM shutdown).
+	 * When the sink ignores events there's nothing to close out, so the runtime isn't polled at all.
+	 */
+	private void reportEndWhenTerminated(long executionId) {
+		if (TCKMetrics.isRecording()) {
+			ExecutionWaitMultiplexer.awaitTermination(executionId, jobOp, sleepTime);
+		}
+	}
+
+	/*
+	 * Times the start or restart for the metrics sink.
+	 */
+	private long start(String jobName, Properties jobParameters) throws JobStartException, JobSecurityException {
+		long before = System.nanoTime();
+		long executionId = jobOp.start(jobName, jobParameters);
+		metricsSink.jobStarted(jobName, executionId, System.nanoTime() - before);
+		return executionId;
+	}
+
+	private long restart(long oldExecutionId, Properties restartJobParameters) throws NoSuchJobExecutionException, NoSuchJobException, JobRestartException, JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, JobSecurityException {
+		long before = System.nanoTime();
+		long executionId = jobOp.restart(oldExecutionId, restartJobParameters);
+		metricsSink.jobStarted(null, executionId, System.nanoTime() - before);
+		return executionId;
+	}
+
 }
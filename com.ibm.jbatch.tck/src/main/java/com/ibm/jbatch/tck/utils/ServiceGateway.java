@@ -23,17 +23,34 @@ import java.util.logging.Logger;
 import org.testng.Reporter;
 
 import com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory;
+import com.ibm.jbatch.tck.spi.TCKMetricsSink;
 
 public class ServiceGateway {
     private final static Logger logger = Logger.getLogger(ServiceGateway.class.getName());
 
+    /**
+     * Set to the className of one of the listed JobExecutionWaiterFactory services to use it rather than the first one.
+     */
+    public static final String WAITER_FACTORY_PROP = "tck.execution.waiter.factory";
+
+    /**
+     * Set to the className of one of the listed TCKMetricsSink services to use it rather than the first one.
+     */
+    public static final String METRICS_SINK_PROP = "tck.metrics.sink";
+
     public static JobExecutionWaiterFactory getJobExecutionWaiterFactoryService() { 
     	JobExecutionWaiterFactory services = null;
         ServiceLoader<JobExecutionWaiterFactory> loader = 
             ServiceLoader.load(JobExecutionWaiterFactory.class);
 
+        String requestedClassName = System.getProperty(WAITER_FACTORY_PROP);
+
         for (JobExecutionWaiterFactory provider : loader) {
             if (provider != null) {
+                if (requestedClassName != null && !requestedClassName.equals(provider.getClass().getName())) {
+                    logger.fine("Skipping JobExecutionWaiterFactory with className = " + provider.getClass().getName());
+                    continue;
+                }
                 if (logger.isLoggable(Level.FINE)) {
                     logger.fine("Loaded JobExecutionWaiterFactory with className = " + provider.getClass().getCanonicalName());
                 }
@@ -45,8 +62,39 @@ public class ServiceGateway {
         }
 
         if (services == null) {
+            if (requestedClassName != null) {
+                throw new IllegalStateException("Service loader didn't find " + WAITER_FACTORY_PROP + " = " + requestedClassName + " listed for service: META-INF/services/com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory");
+            }
             throw new IllegalStateException("Service loader didn't find resource found on classpath for service: META-INF/services/com.ibm.jbatch.tck.spi.JobExecutionWaiterFactory");
         }
         return services;
     } 
+
+    /**
+     * Unlike the JobExecutionWaiterFactory, this is also called where the artifacts run, so it doesn't
+     * log to the TestNG Reporter.
+     * 
+     * @return the first (or requested) TCKMetricsSink listed, or null if none are
+     */
+    public static TCKMetricsSink getMetricsSinkService() {
+        ServiceLoader<TCKMetricsSink> loader = ServiceLoader.load(TCKMetricsSink.class);
+
+        String requestedClassName = System.getProperty(METRICS_SINK_PROP);
+
+        for (TCKMetricsSink provider : loader) {
+            if (provider != null) {
+                if (requestedClassName != null && !requestedClassName.equals(provider.getClass().getName())) {
+                    logger.fine("Skipping TCKMetricsSink with className = " + provider.getClass().getName());
+                    continue;
+                }
+                logger.fine("Loaded TCKMetricsSink with className = " + provider.getClass().getCanonicalName());
+                return provider;
+            }
+        }
+
+        if (requestedClassName != null) {
+            throw new IllegalStateException("Service loader didn't find " + METRICS_SINK_PROP + " = " + requestedClassName + " listed for service: META-INF/services/com.ibm.jbatch.tck.spi.TCKMetricsSink");
+        }
+        return null;
+    }
 }